@@ -0,0 +1,94 @@
+/*
+ * Copyright 2009 Christian Trutz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.eclipse.mylyn.github.benchmarks;
+
+import java.util.Random;
+
+import org.eclipse.mylyn.github.internal.GitHubIssue;
+
+import com.google.gson.Gson;
+
+/**
+ * Deterministic test data shared by the benchmarks.
+ */
+class BenchmarkData {
+
+	private static final String[] WORDS = { "the", "connector", "fails", "when",
+			"synchronizing", "issue", "with", "a", "long", "body", "see", "also",
+			"github", "mylyn", "task", "editor", "query", "label", "open", "closed" };
+
+	private BenchmarkData() {
+	}
+
+	static GitHubIssue createIssue(int number, Random random) {
+		GitHubIssue issue = new GitHubIssue(Integer.toString(number), "user" + (number % 17),
+				createText(random, 8), createText(random, 80));
+		issue.setState(number % 3 == 0 ? "closed" : "open");
+		issue.setCreated_at("2010/02/04 21:03:54 -0800");
+		issue.setUpdated_at("2010/02/05 08:12:31 -0800");
+		if (number % 3 == 0) {
+			issue.setClosed_at("2010/02/06 10:45:02 -0800");
+		}
+		return issue;
+	}
+
+	/**
+	 * a payload of the list and search API with the given number of issues
+	 */
+	static String createIssuesJson(int count) {
+		Gson gson = new Gson();
+		Random random = new Random(count);
+		StringBuilder json = new StringBuilder(count * 700);
+		json.append("{\"issues\":[");
+		for (int x = 0; x < count; ++x) {
+			if (x > 0) {
+				json.append(',');
+			}
+			json.append(gson.toJson(createIssue(x + 1, random)));
+		}
+		json.append("]}");
+		return json.toString();
+	}
+
+	/**
+	 * prose of about the given length, with an issue reference every few
+	 * sentences
+	 */
+	static String createComment(int length) {
+		Random random = new Random(length);
+		StringBuilder text = new StringBuilder(length + 100);
+		while (text.length() < length) {
+			text.append(createText(random, 12));
+			if (random.nextInt(4) == 0) {
+				text.append(" fixed by #").append(1 + random.nextInt(5000));
+			}
+			text.append(".\n");
+		}
+		return text.toString();
+	}
+
+	private static String createText(Random random, int words) {
+		StringBuilder text = new StringBuilder();
+		for (int x = 0; x < words; ++x) {
+			if (x > 0) {
+				text.append(' ');
+			}
+			text.append(WORDS[random.nextInt(WORDS.length)]);
+		}
+		return text.toString();
+	}
+}
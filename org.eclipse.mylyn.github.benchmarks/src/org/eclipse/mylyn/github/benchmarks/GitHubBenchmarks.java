@@ -0,0 +1,52 @@
+/*
+ * Copyright 2009 Christian Trutz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.eclipse.mylyn.github.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs all benchmarks of this plug-in and writes the results as JSON, so that
+ * they can be compared between releases.
+ * <p>
+ * Usage: GitHubBenchmarks [result file] [benchmark pattern]
+ */
+public class GitHubBenchmarks {
+
+	public static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+	public static void main(String[] args) throws RunnerException {
+		String result = args.length > 0 ? args[0] : DEFAULT_RESULT_FILE;
+		String include = args.length > 1 ? args[1]
+				: GitHubBenchmarks.class.getPackage().getName() + ".*";
+		Options options = new OptionsBuilder()
+				.include(include)
+				.forks(1)
+				// gson 1.3 parses arrays recursively and overflows the
+				// default stack on 10000 issues
+				.jvmArgsAppend("-Xss8m")
+				.warmupIterations(5)
+				.measurementIterations(10)
+				.resultFormat(ResultFormatType.JSON)
+				.result(result)
+				.build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2009 Christian Trutz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.eclipse.mylyn.github.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jface.text.hyperlink.IHyperlink;
+import org.eclipse.mylyn.github.internal.GitHub;
+import org.eclipse.mylyn.github.ui.internal.GitHubRepositoryConnectorUI;
+import org.eclipse.mylyn.tasks.core.TaskRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Hyperlink detection in large comments, both for the hyperlink under the
+ * cursor and for all hyperlinks of the text.
+ * <p>
+ * The text only contains references to issues of the same repository, since
+ * references to other repositories need the repository manager of a
+ * running workbench. As in an editor, the text does not change between
+ * calls, so they measure the lookup of the hyperlinks of the last scan;
+ * {@link #findAllChanged()} measures a scan of the whole text.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HyperlinkBenchmark {
+
+	@Param({ "1000", "100000", "1000000" })
+	public int length;
+
+	private GitHubRepositoryConnectorUI connectorUi;
+
+	private TaskRepository repository;
+
+	private String text;
+
+	private int index;
+
+	private int offset;
+
+	@Setup
+	public void setup() {
+		connectorUi = new GitHubRepositoryConnectorUI();
+		repository = new TaskRepository(GitHub.CONNECTOR_KIND, GitHub.createGitHubUrl("foo", "bar"));
+		text = BenchmarkData.createComment(length);
+		index = text.indexOf('#', text.length() / 2) + 1;
+	}
+
+	@Benchmark
+	public IHyperlink[] findAll() {
+		return connectorUi.findHyperlinks(repository, text, -1, 0);
+	}
+
+	@Benchmark
+	public IHyperlink[] findAllChanged() {
+		// a new offset invalidates the last scan
+		return connectorUi.findHyperlinks(repository, text, -1, ++offset);
+	}
+
+	@Benchmark
+	public IHyperlink[] findAtIndex() {
+		return connectorUi.findHyperlinks(repository, text, index, 0);
+	}
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2009 Christian Trutz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.eclipse.mylyn.github.benchmarks;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.mylyn.github.internal.GitHubIssue;
+import org.eclipse.mylyn.github.internal.GitHubIssueHandler;
+import org.eclipse.mylyn.github.internal.GitHubIssueStreamParser;
+import org.eclipse.mylyn.github.internal.GitHubIssues;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.gson.Gson;
+
+/**
+ * Deserialization of issue lists as returned by the list and search API.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MarshalingBenchmark {
+
+	@Param({ "10", "1000", "10000" })
+	public int issues;
+
+	private final Gson gson = new Gson();
+
+	private String json;
+
+	@Setup
+	public void setup() {
+		json = BenchmarkData.createIssuesJson(issues);
+	}
+
+	@Benchmark
+	public GitHubIssues gson() {
+		return gson.fromJson(json, GitHubIssues.class);
+	}
+
+	@Benchmark
+	public int streamParser(final Blackhole blackhole) throws Exception {
+		return new GitHubIssueStreamParser(gson).parse(new StringReader(json),
+				new GitHubIssueHandler() {
+					public void handleIssue(GitHubIssue issue) {
+						blackhole.consume(issue);
+					}
+				});
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2009 Christian Trutz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.eclipse.mylyn.github.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.mylyn.github.internal.GitHub;
+import org.eclipse.mylyn.github.internal.GitHubIssue;
+import org.eclipse.mylyn.github.internal.GitHubRepositoryConnector;
+import org.eclipse.mylyn.github.internal.GitHubTaskDataHandler;
+import org.eclipse.mylyn.tasks.core.TaskRepository;
+import org.eclipse.mylyn.tasks.core.data.TaskData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Conversion of issues to task data and of dates between the GitHub and the
+ * task attribute format.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TaskDataBenchmark {
+
+	private GitHubTaskDataHandler handler;
+
+	private TaskRepository repository;
+
+	private GitHubIssue openIssue;
+
+	private GitHubIssue closedIssue;
+
+	private String localDate;
+
+	@Setup
+	public void setup() {
+		handler = (GitHubTaskDataHandler) new GitHubRepositoryConnector().getTaskDataHandler();
+		repository = new TaskRepository(GitHub.CONNECTOR_KIND, GitHub.createGitHubUrl("foo", "bar"));
+		Random random = new Random(1);
+		openIssue = BenchmarkData.createIssue(1, random);
+		closedIssue = BenchmarkData.createIssue(3, random);
+		localDate = handler.toLocalDate(openIssue.getCreated_at());
+	}
+
+	@Benchmark
+	public TaskData createPartialTaskDataOpen() {
+		return handler.createPartialTaskData(repository, new NullProgressMonitor(),
+				"foo", "bar", openIssue);
+	}
+
+	@Benchmark
+	public TaskData createPartialTaskDataClosed() {
+		return handler.createPartialTaskData(repository, new NullProgressMonitor(),
+				"foo", "bar", closedIssue);
+	}
+
+	@Benchmark
+	public String toLocalDate() {
+		return handler.toLocalDate(openIssue.getCreated_at());
+	}
+
+	@Benchmark
+	public String toGitHubDate() {
+		return handler.toGitHubDate(localDate);
+	}
+}
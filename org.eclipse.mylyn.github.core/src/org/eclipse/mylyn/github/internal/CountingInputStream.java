@@ -0,0 +1,94 @@
+/*
+ * Copyright 2009 Christian Trutz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.eclipse.mylyn.github.internal;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Counts the bytes read from the wrapped stream, and fails if it ends before
+ * the expected length.
+ */
+class CountingInputStream extends FilterInputStream {
+
+	private final long expectedLength;
+
+	private long count;
+
+	CountingInputStream(InputStream in) {
+		this(in, -1);
+	}
+
+	/**
+	 * @param expectedLength
+	 *            - The length of the stream, or -1 if unknown
+	 */
+	CountingInputStream(InputStream in, long expectedLength) {
+		super(in);
+		this.expectedLength = expectedLength;
+	}
+
+	@Override
+	public int read() throws IOException {
+		int b = super.read();
+		if (b != -1) {
+			++count;
+		} else {
+			checkLength();
+		}
+		return b;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		int n = super.read(b, off, len);
+		if (n > 0) {
+			count += n;
+		} else if (n < 0) {
+			checkLength();
+		}
+		return n;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		long skipped = super.skip(n);
+		count += skipped;
+		return skipped;
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+	private void checkLength() throws IOException {
+		if (expectedLength >= 0 && count < expectedLength) {
+			throw new EOFException("Response truncated after " + count + " of "
+					+ expectedLength + " bytes");
+		}
+	}
+
+	/**
+	 * the number of bytes read so far
+	 */
+	long getCount() {
+		return count;
+	}
+}
@@ -1,12 +1,13 @@
 package org.eclipse.mylyn.github.internal;
 
-import java.util.regex.Matcher;
+import java.io.File;
 import java.util.regex.Pattern;
 
 import org.eclipse.core.runtime.ILog;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.Status;
+import org.osgi.framework.Bundle;
 
 public class GitHub {
 	public static final String BUNDLE_ID = "org.eclipse.mylyn.github.core";
@@ -38,10 +39,31 @@ public class GitHub {
 				+ e.getMessage(), e);
 	}
 
+	/**
+	 * the state location of the core bundle, or null if the platform is not
+	 * running
+	 */
+	public static File getStateLocation() {
+		Bundle bundle = Platform.isRunning() ? Platform.getBundle(BUNDLE_ID) : null;
+		if (bundle == null) {
+			return null;
+		}
+		return Platform.getStateLocation(bundle).toFile();
+	}
+
 	public static ILog getLog() {
 		return Platform.getLog(Platform.getBundle(BUNDLE_ID));
 	}
 	
+	/**
+	 * Log the status to the error log, if the platform is running.
+	 */
+	public static void log(IStatus status) {
+		if (Platform.isRunning()) {
+			getLog().log(status);
+		}
+	}
+
 	public static void logError(String message,Throwable t) {
 		getLog().log(createErrorStatus(message, t));
 	}
@@ -50,20 +72,20 @@ public class GitHub {
 		getLog().log(createErrorStatus(t.getMessage(), t));
 	}
 
+	/**
+	 * @see GitHubRepositoryId#getUser()
+	 */
 	public static String computeTaskRepositoryUser(String repositoryUrl) {
-		Matcher matcher = URL_PATTERN.matcher(repositoryUrl);
-		if (matcher.matches()) {
-			return matcher.group(1);
-		}
-		return null;
+		GitHubRepositoryId id = GitHubRepositoryId.get(repositoryUrl);
+		return id == null ? null : id.getUser();
 	}
 
+	/**
+	 * @see GitHubRepositoryId#getProject()
+	 */
 	public static String computeTaskRepositoryProject(String repositoryUrl) {
-		Matcher matcher = URL_PATTERN.matcher(repositoryUrl);
-		if (matcher.matches()) {
-			return matcher.group(2);
-		}
-		return null;
+		GitHubRepositoryId id = GitHubRepositoryId.get(repositoryUrl);
+		return id == null ? null : id.getProject();
 	}
 	
 	/**
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2009 Christian Trutz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.eclipse.mylyn.github.internal;
+
+import org.apache.commons.httpclient.HttpMethod;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+/**
+ * Aborts the request a thread is executing on behalf of a
+ * {@link GitHubService} call. A handle is installed on the thread running the
+ * call; {@link #abort()} may then be called from any other thread and closes
+ * the connection of the request in progress, so that the call ends with an
+ * {@link OperationCanceledException} instead of waiting for the response. A
+ * request is in progress until its response body is read.
+ */
+public class GitHubAbortHandle {
+
+	private static final ThreadLocal<GitHubAbortHandle> CURRENT = new ThreadLocal<GitHubAbortHandle>();
+
+	private HttpMethod method;
+
+	private boolean aborted;
+
+	/**
+	 * Install the handle on the current thread until {@link #uninstall()}.
+	 */
+	public void install() {
+		CURRENT.set(this);
+	}
+
+	public void uninstall() {
+		CURRENT.remove();
+	}
+
+	/**
+	 * Abort the request in progress and any later request of the call.
+	 */
+	public void abort() {
+		HttpMethod executing;
+		synchronized (this) {
+			aborted = true;
+			executing = method;
+		}
+		if (executing != null) {
+			executing.abort();
+		}
+	}
+
+	public synchronized boolean isAborted() {
+		return aborted;
+	}
+
+	/**
+	 * Note that the current thread is about to execute the method.
+	 * 
+	 * @return the handle of the thread, or null if it has none
+	 * @throws OperationCanceledException
+	 *             if the call was aborted already
+	 */
+	static GitHubAbortHandle started(HttpMethod method) {
+		GitHubAbortHandle handle = CURRENT.get();
+		if (handle != null) {
+			synchronized (handle) {
+				if (handle.aborted) {
+					throw new OperationCanceledException();
+				}
+				handle.method = method;
+			}
+		}
+		return handle;
+	}
+
+	synchronized void finished() {
+		method = null;
+	}
+
+	/**
+	 * Note that the current thread is done with the method, including its
+	 * response body.
+	 */
+	static void finished(HttpMethod method) {
+		GitHubAbortHandle handle = CURRENT.get();
+		if (handle != null) {
+			synchronized (handle) {
+				if (handle.method == method) {
+					handle.method = null;
+				}
+			}
+		}
+	}
+
+	/**
+	 * whether the call of the current thread was aborted
+	 */
+	static boolean isCurrentAborted() {
+		GitHubAbortHandle handle = CURRENT.get();
+		return handle != null && handle.isAborted();
+	}
+}
@@ -0,0 +1,341 @@
+/*
+ * Copyright 2009 Christian Trutz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.eclipse.mylyn.github.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+/**
+ * Non-blocking variant of the {@link GitHubService} API. Every call runs on a
+ * bounded pool of I/O threads and returns a {@link Future} at once; the
+ * optional {@link GitHubCallback} is notified when the call ends.
+ * <p>
+ * Cancelling a future with {@code mayInterruptIfRunning} aborts the HTTP
+ * request in progress, so the I/O thread is free again without waiting for
+ * the response. Calls queue up while all threads are busy.
+ */
+public class GitHubAsyncService {
+
+	public static final int DEFAULT_THREADS = 4;
+
+	private static GitHubAsyncService defaultService;
+
+	private final GitHubService service;
+
+	private final ThreadPoolExecutor executor;
+
+	/**
+	 * the asynchronous service shared by the connector and its UI
+	 */
+	public static synchronized GitHubAsyncService getDefault() {
+		if (defaultService == null) {
+			defaultService = new GitHubAsyncService(new GitHubService(), DEFAULT_THREADS);
+		}
+		return defaultService;
+	}
+
+	/**
+	 * @param service
+	 *            - The service executing the calls, shared by the I/O threads
+	 * @param threads
+	 *            - The number of I/O threads
+	 */
+	public GitHubAsyncService(GitHubService service, int threads) {
+		this.service = service;
+		executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+					private final AtomicInteger count = new AtomicInteger();
+
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable, "GitHub I/O-"
+								+ count.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+	}
+
+	public GitHubService getService() {
+		return service;
+	}
+
+	/**
+	 * A call of the service that aborts its request when cancelled and
+	 * notifies its callback when done.
+	 */
+	private static class AsyncCall<T> extends FutureTask<T> {
+
+		private final GitHubAbortHandle handle;
+
+		private final IProgressMonitor monitor;
+
+		private final GitHubCallback<T> callback;
+
+		AsyncCall(Callable<T> call, GitHubAbortHandle handle, IProgressMonitor monitor,
+				GitHubCallback<T> callback) {
+			super(call);
+			this.handle = handle;
+			this.monitor = monitor;
+			this.callback = callback;
+		}
+
+		@Override
+		public void run() {
+			handle.install();
+			try {
+				super.run();
+			} finally {
+				handle.uninstall();
+			}
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			// the request is aborted rather than the thread interrupted, the
+			// connection pool does not expect interrupts
+			boolean cancelled = super.cancel(false);
+			if (cancelled && mayInterruptIfRunning) {
+				monitor.setCanceled(true);
+				handle.abort();
+			}
+			return cancelled;
+		}
+
+		@Override
+		protected void done() {
+			if (callback == null) {
+				return;
+			}
+			try {
+				callback.completed(get());
+			} catch (CancellationException e) {
+				callback.failed(e);
+			} catch (ExecutionException e) {
+				callback.failed(e.getCause());
+			} catch (InterruptedException e) {
+				// cannot happen, the call is done
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * A call that is passed a monitor which is cancelled together with the
+	 * future.
+	 */
+	private interface MonitoredCall<T> {
+		T call(IProgressMonitor monitor) throws Exception;
+	}
+
+	private <T> Future<T> submit(final MonitoredCall<T> call, GitHubCallback<T> callback) {
+		final IProgressMonitor monitor = new NullProgressMonitor();
+		AsyncCall<T> future = new AsyncCall<T>(new Callable<T>() {
+			public T call() throws Exception {
+				return call.call(monitor);
+			}
+		}, new GitHubAbortHandle(), monitor, callback);
+		executor.execute(future);
+		return future;
+	}
+
+	/**
+	 * Run any call of the service on an I/O thread.
+	 * 
+	 * @param callback
+	 *            - Notified when the call ends, may be null
+	 */
+	public <T> Future<T> submit(final Callable<T> call, GitHubCallback<T> callback) {
+		return submit(new MonitoredCall<T>() {
+			public T call(IProgressMonitor monitor) throws Exception {
+				return call.call();
+			}
+		}, callback);
+	}
+
+	/**
+	 * @see GitHubService#verifyCredentials(GitHubCredentials)
+	 */
+	public Future<Boolean> verifyCredentials(final GitHubCredentials credentials,
+			GitHubCallback<Boolean> callback) {
+		return submit(new MonitoredCall<Boolean>() {
+			public Boolean call(IProgressMonitor monitor) throws GitHubServiceException {
+				return service.verifyCredentials(credentials);
+			}
+		}, callback);
+	}
+
+	/**
+	 * @see GitHubService#showIssue(String, String, String, IProgressMonitor)
+	 */
+	public Future<GitHubIssue> showIssue(final String user, final String repo,
+			final String issueNumber, GitHubCallback<GitHubIssue> callback) {
+		return submit(new MonitoredCall<GitHubIssue>() {
+			public GitHubIssue call(IProgressMonitor monitor) throws GitHubServiceException {
+				return service.showIssue(user, repo, issueNumber, monitor);
+			}
+		}, callback);
+	}
+
+	/**
+	 * @see GitHubService#searchIssues(String, String, String, String,
+	 *      IProgressMonitor)
+	 */
+	public Future<GitHubIssues> searchIssues(final String user, final String repo,
+			final String state, final String searchTerm, GitHubCallback<GitHubIssues> callback) {
+		return submit(new MonitoredCall<GitHubIssues>() {
+			public GitHubIssues call(IProgressMonitor monitor) throws GitHubServiceException {
+				return service.searchIssues(user, repo, state, searchTerm, monitor);
+			}
+		}, callback);
+	}
+
+	/**
+	 * @see GitHubService#listIssues(String, String, String, int,
+	 *      IProgressMonitor)
+	 */
+	public Future<GitHubIssue[]> listIssues(final String user, final String repo,
+			final String state, final int page, GitHubCallback<GitHubIssue[]> callback) {
+		return submit(new MonitoredCall<GitHubIssue[]>() {
+			public GitHubIssue[] call(IProgressMonitor monitor) throws GitHubServiceException {
+				return service.listIssues(user, repo, state, page, monitor);
+			}
+		}, callback);
+	}
+
+	/**
+	 * @see GitHubService#openIssue(String, String, GitHubIssue,
+	 *      GitHubCredentials)
+	 */
+	public Future<GitHubIssue> openIssue(final String user, final String repo,
+			final GitHubIssue issue, final GitHubCredentials credentials,
+			GitHubCallback<GitHubIssue> callback) {
+		return submit(new MonitoredCall<GitHubIssue>() {
+			public GitHubIssue call(IProgressMonitor monitor) throws GitHubServiceException {
+				return service.openIssue(user, repo, issue, credentials);
+			}
+		}, callback);
+	}
+
+	/**
+	 * @see GitHubService#editIssue(String, String, GitHubIssue,
+	 *      GitHubCredentials)
+	 */
+	public Future<GitHubIssue> editIssue(final String user, final String repo,
+			final GitHubIssue issue, final GitHubCredentials credentials,
+			GitHubCallback<GitHubIssue> callback) {
+		return submit(new MonitoredCall<GitHubIssue>() {
+			public GitHubIssue call(IProgressMonitor monitor) throws GitHubServiceException {
+				return service.editIssue(user, repo, issue, credentials);
+			}
+		}, callback);
+	}
+
+	/**
+	 * @see GitHubService#closeIssue(String, String, GitHubIssue,
+	 *      GitHubCredentials)
+	 */
+	public Future<GitHubIssue> closeIssue(final String user, final String repo,
+			final GitHubIssue issue, final GitHubCredentials credentials,
+			GitHubCallback<GitHubIssue> callback) {
+		return submit(new MonitoredCall<GitHubIssue>() {
+			public GitHubIssue call(IProgressMonitor monitor) throws GitHubServiceException {
+				return service.closeIssue(user, repo, issue, credentials);
+			}
+		}, callback);
+	}
+
+	/**
+	 * @see GitHubService#reopenIssue(String, String, GitHubIssue,
+	 *      GitHubCredentials)
+	 */
+	public Future<GitHubIssue> reopenIssue(final String user, final String repo,
+			final GitHubIssue issue, final GitHubCredentials credentials,
+			GitHubCallback<GitHubIssue> callback) {
+		return submit(new MonitoredCall<GitHubIssue>() {
+			public GitHubIssue call(IProgressMonitor monitor) throws GitHubServiceException {
+				return service.reopenIssue(user, repo, issue, credentials);
+			}
+		}, callback);
+	}
+
+	/**
+	 * @see GitHubService#changeLabels(String, String, List, GitHubCredentials,
+	 *      IProgressMonitor)
+	 */
+	public Future<List<GitHubLabelResult>> changeLabels(final String user,
+			final String repo, final List<GitHubLabelChange> changes,
+			final GitHubCredentials credentials,
+			GitHubCallback<List<GitHubLabelResult>> callback) {
+		return submit(new MonitoredCall<List<GitHubLabelResult>>() {
+			public List<GitHubLabelResult> call(IProgressMonitor monitor)
+					throws GitHubServiceException {
+				return service.changeLabels(user, repo, changes, credentials, monitor);
+			}
+		}, callback);
+	}
+
+	/**
+	 * Wait for the result of a call while checking the monitor, e.g. in a
+	 * job. The call is cancelled, and its request aborted, when the monitor
+	 * is.
+	 * 
+	 * @throws OperationCanceledException
+	 *             if the monitor or the future was cancelled
+	 */
+	public static <T> T await(Future<T> future, IProgressMonitor monitor)
+			throws GitHubServiceException {
+		try {
+			return GitHubQueryExecutor.await(future, monitor);
+		} catch (OperationCanceledException e) {
+			future.cancel(true);
+			throw e;
+		} catch (CancellationException e) {
+			throw new OperationCanceledException();
+		}
+	}
+
+	/**
+	 * Cancel all queued calls, those in progress run to completion.
+	 */
+	public void shutdown() {
+		executor.shutdown();
+		List<Runnable> queued = new ArrayList<Runnable>();
+		executor.getQueue().drainTo(queued);
+		for (Runnable call : queued) {
+			((Future<?>) call).cancel(false);
+		}
+		synchronized (GitHubAsyncService.class) {
+			if (defaultService == this) {
+				defaultService = null;
+			}
+		}
+	}
+}
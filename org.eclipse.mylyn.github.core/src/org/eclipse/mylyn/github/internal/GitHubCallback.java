@@ -0,0 +1,38 @@
+/*
+ * Copyright 2009 Christian Trutz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.eclipse.mylyn.github.internal;
+
+/**
+ * Receives the outcome of a call of the {@link GitHubAsyncService}. It is
+ * notified on the I/O thread that ran the call, so implementations in the UI
+ * must hand the result over to the display thread.
+ * 
+ * @param <T>
+ *            the type of the result
+ */
+public interface GitHubCallback<T> {
+
+	void completed(T result);
+
+	/**
+	 * @param e
+	 *            - The failure, usually a {@link GitHubServiceException}, or a
+	 *            {@link java.util.concurrent.CancellationException} if the call
+	 *            was cancelled
+	 */
+	void failed(Throwable e);
+}
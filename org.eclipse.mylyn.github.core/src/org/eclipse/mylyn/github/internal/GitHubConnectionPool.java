@@ -0,0 +1,175 @@
+/*
+ * Copyright 2009 Christian Trutz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.eclipse.mylyn.github.internal;
+
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
+import org.apache.commons.httpclient.util.IdleConnectionTimeoutThread;
+import org.eclipse.mylyn.tasks.core.TaskRepository;
+
+/**
+ * Pool of keep-alive HTTP connections to the GitHub API, shared by all
+ * {@link GitHubService} instances that do not bring their own
+ * {@link HttpClient}.
+ * <p>
+ * Connection limits and timeouts can be tuned per {@link TaskRepository}
+ * through the repository properties {@link #PROPERTY_MAX_CONNECTIONS_PER_HOST},
+ * {@link #PROPERTY_MAX_TOTAL_CONNECTIONS}, {@link #PROPERTY_IDLE_TIMEOUT},
+ * {@link #PROPERTY_CONNECTION_TIMEOUT} and {@link #PROPERTY_SOCKET_TIMEOUT}.
+ * Since all repositories talk to the same host, the pool honors the largest
+ * limits and read timeouts and the shortest idle timeout requested by any
+ * repository.
+ * <p>
+ * After {@link #shutdown()} the default pool is replaced on the next call to
+ * {@link #getDefault()}. Services created with
+ * {@link GitHubService#GitHubService()} look the client up per request and
+ * so move to the new pool; services given the client of a pool that was shut
+ * down must be recreated.
+ */
+public class GitHubConnectionPool {
+
+	public static final String PROPERTY_MAX_CONNECTIONS_PER_HOST = "github.connections.maxPerHost";
+	public static final String PROPERTY_MAX_TOTAL_CONNECTIONS = "github.connections.maxTotal";
+	/**
+	 * milliseconds after which an unused connection is closed
+	 */
+	public static final String PROPERTY_IDLE_TIMEOUT = "github.connections.idleTimeout";
+	/**
+	 * milliseconds to wait for a connection to the server to be established
+	 */
+	public static final String PROPERTY_CONNECTION_TIMEOUT = "github.connections.connectTimeout";
+	/**
+	 * milliseconds to wait for data on an open connection
+	 */
+	public static final String PROPERTY_SOCKET_TIMEOUT = "github.connections.socketTimeout";
+
+	public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 8;
+	public static final int DEFAULT_MAX_TOTAL_CONNECTIONS = 32;
+	public static final long DEFAULT_IDLE_TIMEOUT = 60000L;
+	public static final int DEFAULT_CONNECTION_TIMEOUT = 30000;
+	public static final int DEFAULT_SOCKET_TIMEOUT = 60000;
+
+	private static GitHubConnectionPool defaultPool;
+
+	private final MultiThreadedHttpConnectionManager connectionManager;
+
+	private final IdleConnectionTimeoutThread idleConnectionThread;
+
+	private final HttpClient httpClient;
+
+	private long idleTimeout = DEFAULT_IDLE_TIMEOUT;
+
+	/**
+	 * the pool shared by all repositories
+	 */
+	public static synchronized GitHubConnectionPool getDefault() {
+		if (defaultPool == null) {
+			defaultPool = new GitHubConnectionPool();
+		}
+		return defaultPool;
+	}
+
+	public GitHubConnectionPool() {
+		connectionManager = new MultiThreadedHttpConnectionManager();
+		HttpConnectionManagerParams params = connectionManager.getParams();
+		params.setDefaultMaxConnectionsPerHost(DEFAULT_MAX_CONNECTIONS_PER_HOST);
+		params.setMaxTotalConnections(DEFAULT_MAX_TOTAL_CONNECTIONS);
+		// a stalled connection must not hang synchronizations and submits
+		params.setConnectionTimeout(DEFAULT_CONNECTION_TIMEOUT);
+		params.setSoTimeout(DEFAULT_SOCKET_TIMEOUT);
+
+		idleConnectionThread = new IdleConnectionTimeoutThread();
+		idleConnectionThread.setName("GitHub idle connection eviction");
+		idleConnectionThread.setDaemon(true);
+		idleConnectionThread.addConnectionManager(connectionManager);
+		idleConnectionThread.setConnectionTimeout(idleTimeout);
+		idleConnectionThread.setTimeoutInterval(idleTimeout / 2);
+		idleConnectionThread.start();
+
+		httpClient = new HttpClient(connectionManager);
+	}
+
+	/**
+	 * the client backed by this pool, safe for concurrent use
+	 */
+	public HttpClient getHttpClient() {
+		return httpClient;
+	}
+
+	/**
+	 * Apply the connection settings of the given repository to this pool.
+	 * Limits are only ever raised so that one repository cannot starve
+	 * another that asked for more connections.
+	 */
+	public synchronized void configure(TaskRepository repository) {
+		HttpConnectionManagerParams params = connectionManager.getParams();
+
+		int maxPerHost = getIntProperty(repository, PROPERTY_MAX_CONNECTIONS_PER_HOST,
+				DEFAULT_MAX_CONNECTIONS_PER_HOST);
+		if (maxPerHost > params.getDefaultMaxConnectionsPerHost()) {
+			params.setDefaultMaxConnectionsPerHost(maxPerHost);
+		}
+		int maxTotal = getIntProperty(repository, PROPERTY_MAX_TOTAL_CONNECTIONS,
+				DEFAULT_MAX_TOTAL_CONNECTIONS);
+		if (maxTotal > params.getMaxTotalConnections()) {
+			params.setMaxTotalConnections(maxTotal);
+		}
+		int connectTimeout = getIntProperty(repository, PROPERTY_CONNECTION_TIMEOUT,
+				DEFAULT_CONNECTION_TIMEOUT);
+		if (connectTimeout > params.getConnectionTimeout()) {
+			params.setConnectionTimeout(connectTimeout);
+		}
+		int socketTimeout = getIntProperty(repository, PROPERTY_SOCKET_TIMEOUT,
+				DEFAULT_SOCKET_TIMEOUT);
+		if (socketTimeout > params.getSoTimeout()) {
+			params.setSoTimeout(socketTimeout);
+		}
+		long timeout = getIntProperty(repository, PROPERTY_IDLE_TIMEOUT, (int) DEFAULT_IDLE_TIMEOUT);
+		if (timeout > 0 && timeout < idleTimeout) {
+			idleTimeout = timeout;
+			idleConnectionThread.setConnectionTimeout(idleTimeout);
+			idleConnectionThread.setTimeoutInterval(Math.max(1000L, idleTimeout / 2));
+		}
+	}
+
+	/**
+	 * Close all pooled connections and stop the eviction thread. The client
+	 * of this pool cannot be used afterwards.
+	 */
+	public synchronized void shutdown() {
+		idleConnectionThread.shutdown();
+		connectionManager.shutdown();
+		synchronized (GitHubConnectionPool.class) {
+			if (defaultPool == this) {
+				defaultPool = null;
+			}
+		}
+	}
+
+	private static int getIntProperty(TaskRepository repository, String key, int defaultValue) {
+		String value = repository.getProperty(key);
+		if (value != null && value.trim().length() > 0) {
+			try {
+				return Integer.parseInt(value.trim());
+			} catch (NumberFormatException e) {
+				// fall through to the default
+			}
+		}
+		return defaultValue;
+	}
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2009 Christian Trutz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.eclipse.mylyn.github.internal;
+
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Converts timestamps between the GitHub format, e.g.
+ * {@code 2010/02/02 22:58:39 -0800}, and the format of task attributes.
+ * <p>
+ * The codec is safe for concurrent use. Well-formed GitHub timestamps are
+ * parsed without a {@link DateFormat}; other values and the locale dependent
+ * task attribute format use a format per thread. Recently converted values
+ * are cached, since a synchronization converts the same few timestamps of
+ * every issue over and over.
+ */
+public final class GitHubDateCodec {
+
+	/**
+	 * the format of GitHub timestamps
+	 */
+	public static final String GITHUB_PATTERN = "yyyy/MM/dd HH:mm:ss Z";
+
+	private static final int CACHE_SIZE = 512;
+
+	private static final GitHubDateCodec DEFAULT = new GitHubDateCodec();
+
+	private static final int[] DAYS_IN_MONTH = { 31, 29, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31 };
+
+	/**
+	 * An immutable cache entry, safe to publish through a racy array write.
+	 */
+	private static final class Conversion {
+		final String from;
+		final String to;
+
+		Conversion(String from, String to) {
+			this.from = from;
+			this.to = to;
+		}
+	}
+
+	private final ThreadLocal<DateFormat> githubFormat = new ThreadLocal<DateFormat>() {
+		@Override
+		protected DateFormat initialValue() {
+			return new SimpleDateFormat(GITHUB_PATTERN, Locale.US);
+		}
+	};
+
+	private final ThreadLocal<DateFormat> localFormat = new ThreadLocal<DateFormat>() {
+		@Override
+		protected DateFormat initialValue() {
+			return DateFormat.getDateTimeInstance();
+		}
+	};
+
+	private final Conversion[] toLocalCache = new Conversion[CACHE_SIZE];
+
+	private final Conversion[] toGitHubCache = new Conversion[CACHE_SIZE];
+
+	/**
+	 * the codec shared by all repositories
+	 */
+	public static GitHubDateCodec getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Parse a GitHub timestamp.
+	 * 
+	 * @return milliseconds since the epoch, or -1 if the value is missing or
+	 *         malformed
+	 */
+	public long parseGitHubDate(String value) {
+		if (value == null) {
+			return -1;
+		}
+		long time = parseFixedWidth(value);
+		if (time != Long.MIN_VALUE) {
+			return time;
+		}
+		if (value.trim().length() == 0) {
+			return -1;
+		}
+		try {
+			return githubFormat.get().parse(value).getTime();
+		} catch (ParseException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Format a time as GitHub timestamp in the default time zone.
+	 */
+	public String formatGitHubDate(long time) {
+		return githubFormat.get().format(new Date(time));
+	}
+
+	/**
+	 * Parse a date in the format of the task attributes.
+	 * 
+	 * @return the date, or null if the value is missing or malformed
+	 */
+	public Date parseLocalDate(String value) {
+		if (value == null) {
+			return null;
+		}
+		try {
+			return localFormat.get().parse(value);
+		} catch (ParseException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Convert a GitHub timestamp to the format of the task attributes.
+	 * 
+	 * @return the converted date, or the given value if it cannot be parsed
+	 */
+	public String toLocalDate(String date) {
+		if (date == null || date.trim().length() == 0) {
+			return date;
+		}
+		int slot = slot(date);
+		Conversion cached = toLocalCache[slot];
+		if (cached != null && cached.from.equals(date)) {
+			return cached.to;
+		}
+		long time = parseGitHubDate(date);
+		String converted = time == -1 ? date : localFormat.get().format(new Date(time));
+		toLocalCache[slot] = new Conversion(date, converted);
+		return converted;
+	}
+
+	/**
+	 * Convert a date in the format of the task attributes to a GitHub
+	 * timestamp.
+	 * 
+	 * @return the converted date, or the given value if it cannot be parsed
+	 */
+	public String toGitHubDate(String date) {
+		if (date == null) {
+			return null;
+		}
+		int slot = slot(date);
+		Conversion cached = toGitHubCache[slot];
+		if (cached != null && cached.from.equals(date)) {
+			return cached.to;
+		}
+		Date parsed = parseLocalDate(date);
+		String converted = parsed == null ? date : formatGitHubDate(parsed.getTime());
+		toGitHubCache[slot] = new Conversion(date, converted);
+		return converted;
+	}
+
+	private static int slot(String value) {
+		int hash = value.hashCode();
+		return (hash ^ (hash >>> 16)) & (CACHE_SIZE - 1);
+	}
+
+	/**
+	 * Parse the exact layout {@code yyyy/MM/dd HH:mm:ss +hhmm} without
+	 * allocating.
+	 * 
+	 * @return milliseconds since the epoch, or {@link Long#MIN_VALUE} if the
+	 *         value does not have that layout or has out of range fields, in
+	 *         which case the lenient {@link DateFormat} decides
+	 */
+	static long parseFixedWidth(String value) {
+		if (value.length() != 25 || value.charAt(4) != '/' || value.charAt(7) != '/'
+				|| value.charAt(10) != ' ' || value.charAt(13) != ':'
+				|| value.charAt(16) != ':' || value.charAt(19) != ' ') {
+			return Long.MIN_VALUE;
+		}
+		char sign = value.charAt(20);
+		if (sign != '+' && sign != '-') {
+			return Long.MIN_VALUE;
+		}
+		int year = digits(value, 0, 4);
+		int month = digits(value, 5, 2);
+		int day = digits(value, 8, 2);
+		int hour = digits(value, 11, 2);
+		int minute = digits(value, 14, 2);
+		int second = digits(value, 17, 2);
+		int offsetHours = digits(value, 21, 2);
+		int offsetMinutes = digits(value, 23, 2);
+		// earlier dates are Julian for the DateFormat
+		if (year < 1583 || month < 1 || month > 12 || day < 1
+				|| day > DAYS_IN_MONTH[month - 1]
+				|| (month == 2 && day == 29 && !isLeapYear(year)) || hour < 0
+				|| hour > 23 || minute < 0 || minute > 59 || second < 0
+				|| second > 59 || offsetHours < 0 || offsetMinutes < 0
+				|| offsetMinutes > 59) {
+			return Long.MIN_VALUE;
+		}
+		long seconds = ((daysSinceEpoch(year, month, day) * 24 + hour) * 60 + minute) * 60 + second;
+		int offset = (offsetHours * 60 + offsetMinutes) * 60;
+		return (seconds - (sign == '-' ? -offset : offset)) * 1000;
+	}
+
+	/**
+	 * @return the value of the decimal digits, or -1 if a character is not a
+	 *         digit
+	 */
+	private static int digits(String value, int start, int length) {
+		int result = 0;
+		for (int x = start; x < start + length; ++x) {
+			int digit = value.charAt(x) - '0';
+			if (digit < 0 || digit > 9) {
+				return -1;
+			}
+			result = result * 10 + digit;
+		}
+		return result;
+	}
+
+	private static boolean isLeapYear(int year) {
+		return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+	}
+
+	/**
+	 * days from 1970-01-01 to the given date of the proleptic Gregorian
+	 * calendar
+	 */
+	private static long daysSinceEpoch(int year, int month, int day) {
+		long y = month <= 2 ? year - 1 : year;
+		long era = y / 400;
+		long yearOfEra = y - era * 400;
+		long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+		long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146097 + dayOfEra - 719468;
+	}
+}
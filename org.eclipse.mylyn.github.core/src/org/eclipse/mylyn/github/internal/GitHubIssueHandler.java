@@ -0,0 +1,34 @@
+/*
+ * Copyright 2009 Christian Trutz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.eclipse.mylyn.github.internal;
+
+/**
+ * Receives issues one at a time while a list of issues is being read.
+ *
+ * @see GitHubService#searchIssues(String, String, String, String,
+ *      GitHubIssueHandler)
+ */
+public interface GitHubIssueHandler {
+
+	/**
+	 * Called for every issue of the list, in the order sent by the server.
+	 *
+	 * @param issue
+	 *            - The issue that was just read
+	 */
+	void handleIssue(GitHubIssue issue);
+}
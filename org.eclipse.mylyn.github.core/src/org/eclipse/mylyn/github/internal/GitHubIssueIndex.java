@@ -0,0 +1,238 @@
+/*
+ * Copyright 2009 Christian Trutz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.eclipse.mylyn.github.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * In-memory inverted index over the titles and bodies of the synchronized
+ * issues of each repository, used to answer query texts without a request to
+ * the search API. Only the words, numbers and states of the issues are kept;
+ * the issues themselves are read from the {@link GitHubIssueStore}.
+ * <p>
+ * Texts are split into lower case words of letters and digits. An issue
+ * matches a query text if every word of the query is a prefix of a word of
+ * its title or body.
+ */
+public class GitHubIssueIndex {
+
+	private static final Comparator<String> BY_NUMBER = new Comparator<String>() {
+		public int compare(String number1, String number2) {
+			return toNumber(number1) - toNumber(number2);
+		}
+	};
+
+	/**
+	 * What is kept of an indexed issue.
+	 */
+	private static class Entry {
+		final String state;
+
+		/**
+		 * the words of the issue, the same instances as the keys of the
+		 * postings
+		 */
+		final String[] words;
+
+		Entry(String state, String[] words) {
+			this.state = state;
+			this.words = words;
+		}
+	}
+
+	/**
+	 * The index of one repository.
+	 */
+	private static class RepositoryIndex {
+		final Map<String, Entry> issues = new HashMap<String, Entry>();
+		final TreeMap<String, Set<String>> postings = new TreeMap<String, Set<String>>();
+
+		void add(GitHubIssue issue) {
+			String number = issue.getNumber();
+			Entry previous = issues.remove(number);
+			if (previous != null) {
+				for (String word : previous.words) {
+					Set<String> numbers = postings.get(word);
+					numbers.remove(number);
+					if (numbers.isEmpty()) {
+						postings.remove(word);
+					}
+				}
+			}
+			Set<String> tokens = tokenize(issue);
+			String[] words = new String[tokens.size()];
+			int i = 0;
+			for (String word : tokens) {
+				Set<String> numbers = postings.get(word);
+				if (numbers == null) {
+					numbers = new HashSet<String>(4);
+					postings.put(word, numbers);
+				} else {
+					word = postings.tailMap(word).firstKey();
+				}
+				numbers.add(number);
+				words[i++] = word;
+			}
+			issues.put(number, new Entry(issue.getState(), words));
+		}
+
+		/**
+		 * the numbers of the issues with a word starting with the prefix
+		 */
+		Set<String> find(String prefix) {
+			SortedMap<String, Set<String>> words = postings.subMap(prefix, prefix
+					+ Character.MAX_VALUE);
+			if (words.size() == 1) {
+				return words.values().iterator().next();
+			}
+			Set<String> numbers = new HashSet<String>();
+			for (Set<String> wordNumbers : words.values()) {
+				numbers.addAll(wordNumbers);
+			}
+			return numbers;
+		}
+	}
+
+	private final Map<String, RepositoryIndex> repositories = new HashMap<String, RepositoryIndex>();
+
+	/**
+	 * Index issues of a repository, replacing earlier versions of the same
+	 * issues. The repository is known to the index afterwards, even if no
+	 * issues are given.
+	 */
+	public synchronized void addAll(String repositoryUrl, Collection<GitHubIssue> issues) {
+		RepositoryIndex index = repositories.get(repositoryUrl);
+		if (index == null) {
+			index = new RepositoryIndex();
+			repositories.put(repositoryUrl, index);
+		}
+		for (GitHubIssue issue : issues) {
+			index.add(issue);
+		}
+	}
+
+	/**
+	 * @return true if issues of the repository were added
+	 */
+	public synchronized boolean contains(String repositoryUrl) {
+		return repositories.containsKey(repositoryUrl);
+	}
+
+	/**
+	 * the number of indexed issues of the repository
+	 */
+	public synchronized int size(String repositoryUrl) {
+		RepositoryIndex index = repositories.get(repositoryUrl);
+		return index == null ? 0 : index.issues.size();
+	}
+
+	/**
+	 * Find the issues of a repository matching a query text.
+	 * 
+	 * @param state
+	 *            - The state of the issues to find, or null for all states
+	 * @return the numbers of the matching issues in ascending order
+	 */
+	public synchronized List<String> search(String repositoryUrl, String text, String state) {
+		RepositoryIndex index = repositories.get(repositoryUrl);
+		if (index == null) {
+			return Collections.emptyList();
+		}
+		Collection<String> numbers = null;
+		for (String word : tokenize(text)) {
+			Set<String> found = index.find(word);
+			if (numbers == null) {
+				numbers = found;
+			} else {
+				// iterate the smaller set
+				Collection<String> smaller = numbers.size() <= found.size() ? numbers : found;
+				Collection<String> larger = smaller == numbers ? found : numbers;
+				List<String> retained = new ArrayList<String>(smaller.size());
+				for (String number : smaller) {
+					if (larger.contains(number)) {
+						retained.add(number);
+					}
+				}
+				numbers = new HashSet<String>(retained);
+			}
+			if (numbers.isEmpty()) {
+				return Collections.emptyList();
+			}
+		}
+		if (numbers == null) {
+			numbers = index.issues.keySet();
+		}
+		List<String> result = new ArrayList<String>(numbers.size());
+		for (String number : numbers) {
+			if (state == null || state.equals(index.issues.get(number).state)) {
+				result.add(number);
+			}
+		}
+		Collections.sort(result, BY_NUMBER);
+		return result;
+	}
+
+	public synchronized void clear() {
+		repositories.clear();
+	}
+
+	private static Set<String> tokenize(GitHubIssue issue) {
+		Set<String> words = tokenize(issue.getTitle());
+		words.addAll(tokenize(issue.getBody()));
+		return words;
+	}
+
+	/**
+	 * the distinct lower case words of letters and digits of the text
+	 */
+	static Set<String> tokenize(String text) {
+		Set<String> words = new LinkedHashSet<String>();
+		if (text == null) {
+			return words;
+		}
+		int start = -1;
+		for (int x = 0; x <= text.length(); ++x) {
+			boolean wordCharacter = x < text.length() && Character.isLetterOrDigit(text.charAt(x));
+			if (wordCharacter && start < 0) {
+				start = x;
+			} else if (!wordCharacter && start >= 0) {
+				words.add(text.substring(start, x).toLowerCase());
+				start = -1;
+			}
+		}
+		return words;
+	}
+
+	private static int toNumber(String number) {
+		try {
+			return Integer.parseInt(number);
+		} catch (NumberFormatException e) {
+			return Integer.MAX_VALUE;
+		}
+	}
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2009 Christian Trutz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.eclipse.mylyn.github.internal;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+/**
+ * Iterates over the pages of the issues of a repository.
+ * <p>
+ * A following page is only requested if the server announced it with a
+ * {@code Link} header of relation {@code next}. The issues list of the API v2
+ * ignores the page parameter and announces nothing, so its first page is the
+ * complete listing and is requested once. While the caller processes a page,
+ * the announced next page is fetched on the {@link GitHubQueryExecutor}, so
+ * at most two pages are held in memory. The iteration also ends at an empty
+ * page, or when a page starts with the same issue as the page before.
+ * Cancelling the monitor stops fetching further pages.
+ * <p>
+ * Iterators are not thread safe; call {@link #close()} when stopping early.
+ * 
+ * @see GitHubService#listIssuePages(String, String, String, IProgressMonitor)
+ */
+public class GitHubIssuePageIterator {
+
+	/**
+	 * The issues of one page and whether the server announced another one.
+	 */
+	static class Page {
+		final GitHubIssue[] issues;
+
+		final boolean hasNext;
+
+		Page(GitHubIssue[] issues, boolean hasNext) {
+			this.issues = issues;
+			this.hasNext = hasNext;
+		}
+	}
+
+	/**
+	 * how often a caller waiting for a page checks its monitor
+	 */
+	private static final long CANCEL_POLL_MILLIS = 100;
+
+	private final GitHubService service;
+
+	private final String user;
+
+	private final String repo;
+
+	private final String state;
+
+	private final IProgressMonitor monitor;
+
+	private int nextPage = 1;
+
+	private Future<Page> prefetch;
+
+	private GitHubIssue[] current;
+
+	private String previousFirstNumber;
+
+	private boolean lastPage;
+
+	private boolean done;
+
+	GitHubIssuePageIterator(GitHubService service, String user, String repo,
+			String state, IProgressMonitor monitor) {
+		this.service = service;
+		this.user = user;
+		this.repo = repo;
+		this.state = state;
+		this.monitor = monitor;
+	}
+
+	/**
+	 * @return true if there is another page, fetching it if necessary
+	 * @throws OperationCanceledException
+	 *             if the monitor was cancelled
+	 */
+	public boolean hasNext() throws GitHubServiceException {
+		if (done) {
+			return false;
+		}
+		if (current == null) {
+			if (prefetch == null) {
+				if (lastPage) {
+					done = true;
+					return false;
+				}
+				prefetch = fetch(nextPage++);
+			}
+			Page page;
+			try {
+				page = await(prefetch);
+			} catch (GitHubServiceException e) {
+				close();
+				throw e;
+			} catch (RuntimeException e) {
+				close();
+				throw e;
+			}
+			prefetch = null;
+			GitHubIssue[] issues = page.issues;
+			if (issues.length == 0 || issues[0].getNumber() == null
+					|| issues[0].getNumber().equals(previousFirstNumber)) {
+				done = true;
+				return false;
+			}
+			previousFirstNumber = issues[0].getNumber();
+			current = issues;
+			if (page.hasNext) {
+				// fetch the following page while the caller processes this one
+				prefetch = fetch(nextPage++);
+			} else {
+				lastPage = true;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * the issues of the next page
+	 */
+	public List<GitHubIssue> next() throws GitHubServiceException {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		List<GitHubIssue> page = Arrays.asList(current);
+		current = null;
+		return page;
+	}
+
+	/**
+	 * Stop the iteration and cancel fetching the next page.
+	 */
+	public void close() {
+		done = true;
+		current = null;
+		if (prefetch != null) {
+			prefetch.cancel(true);
+			prefetch = null;
+		}
+	}
+
+	private Future<Page> fetch(final int page) {
+		checkCanceled();
+		return GitHubQueryExecutor.getDefault().submit(new Callable<Page>() {
+			public Page call() throws GitHubServiceException {
+				if (monitor != null && monitor.isCanceled()) {
+					throw new OperationCanceledException();
+				}
+				return service.listIssuePage(user, repo, state, page, monitor);
+			}
+		});
+	}
+
+	private Page await(Future<Page> page) throws GitHubServiceException {
+		while (true) {
+			checkCanceled();
+			try {
+				return page.get(CANCEL_POLL_MILLIS, TimeUnit.MILLISECONDS);
+			} catch (TimeoutException e) {
+				// check the monitor again
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new OperationCanceledException();
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof GitHubServiceException) {
+					throw (GitHubServiceException) cause;
+				} else if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				} else if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw new GitHubServiceException(cause.getMessage(), cause);
+			}
+		}
+	}
+
+	private void checkCanceled() {
+		if (monitor != null && monitor.isCanceled()) {
+			close();
+			throw new OperationCanceledException();
+		}
+	}
+}
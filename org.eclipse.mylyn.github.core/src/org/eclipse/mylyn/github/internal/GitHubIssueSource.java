@@ -0,0 +1,39 @@
+/*
+ * Copyright 2009 Christian Trutz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.eclipse.mylyn.github.internal;
+
+/**
+ * Issues kept by the caller of a streamed listing, e.g. in the
+ * {@link GitHubIssueStore}, from which the listing is replayed when GitHub
+ * answers that it was not modified.
+ *
+ * @see GitHubService#searchIssues(String, String, String, String,
+ *      GitHubIssueHandler, GitHubIssueSource,
+ *      org.eclipse.core.runtime.IProgressMonitor)
+ */
+public interface GitHubIssueSource {
+
+	/**
+	 * @return true if {@link #getIssue(String)} returns the issue
+	 */
+	boolean hasIssue(String number);
+
+	/**
+	 * the issue as it was last listed, or null if it is not known
+	 */
+	GitHubIssue getIssue(String number);
+}
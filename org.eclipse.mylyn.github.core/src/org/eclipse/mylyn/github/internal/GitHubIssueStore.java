@@ -0,0 +1,410 @@
+/*
+ * Copyright 2009 Christian Trutz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.eclipse.mylyn.github.internal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistent store of {@link GitHubIssue} records, so that issues seen
+ * before are available without a network round-trip, even offline.
+ * <p>
+ * Records are appended to a single log file; a newer record of the same
+ * issue supersedes the older one. An in-memory index maps each issue of
+ * each repository to the offset of its latest record and is rebuilt by
+ * scanning the log when the store is opened. Issues whose
+ * {@code updated_at} did not change are not written again, and the log is
+ * compacted when superseded records make up most of it.
+ */
+public class GitHubIssueStore {
+
+	private static final int MAGIC = 0x47484953; // "GHIS"
+
+	private static final int VERSION = 1;
+
+	private static final int HEADER_LENGTH = 8;
+
+	/**
+	 * compact only logs larger than this
+	 */
+	private static final long COMPACTION_THRESHOLD = 1024 * 1024;
+
+	/**
+	 * Location of the latest record of an issue.
+	 */
+	private static class IndexEntry {
+		final long offset;
+		final long storedAt;
+		final String updatedAt;
+
+		IndexEntry(long offset, long storedAt, String updatedAt) {
+			this.offset = offset;
+			this.storedAt = storedAt;
+			this.updatedAt = updatedAt;
+		}
+	}
+
+	private final File file;
+
+	private final Map<String, Map<String, IndexEntry>> index = new HashMap<String, Map<String, IndexEntry>>();
+
+	private DataOutputStream out;
+
+	private RandomAccessFile in;
+
+	private long length;
+
+	private int records;
+
+	/**
+	 * Open the store, creating the log file if it does not exist.
+	 */
+	public GitHubIssueStore(File file) throws IOException {
+		this.file = file;
+		load();
+		compactIfWasted();
+	}
+
+	/**
+	 * Store issues of a repository, replacing earlier records of the same
+	 * issues. An issue whose {@code updated_at} equals that of its stored
+	 * record is only marked as stored now, without writing it again.
+	 */
+	public synchronized void putAll(String repositoryUrl, Collection<GitHubIssue> issues)
+			throws IOException {
+		long storedAt = System.currentTimeMillis();
+		Map<String, IndexEntry> repositoryIndex = getIndex(repositoryUrl);
+		DataOutputStream output = null;
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+		for (GitHubIssue issue : issues) {
+			IndexEntry stored = repositoryIndex.get(issue.getNumber());
+			if (stored != null && stored.updatedAt != null
+					&& stored.updatedAt.equals(issue.getUpdated_at())) {
+				repositoryIndex.put(issue.getNumber(), new IndexEntry(stored.offset, storedAt,
+						stored.updatedAt));
+				continue;
+			}
+			if (output == null) {
+				output = getOutput();
+			}
+			bytes.reset();
+			writeRecord(new DataOutputStream(bytes), repositoryUrl, issue, storedAt);
+			output.writeInt(bytes.size());
+			bytes.writeTo(output);
+			repositoryIndex.put(issue.getNumber(), new IndexEntry(length, storedAt, issue
+					.getUpdated_at()));
+			length += 4 + bytes.size();
+			++records;
+		}
+		if (output != null) {
+			output.flush();
+			compactIfWasted();
+		}
+	}
+
+	/**
+	 * Forget the issue, so that it is requested again. The record stays in
+	 * the log until it is compacted.
+	 */
+	public synchronized void remove(String repositoryUrl, String number) {
+		Map<String, IndexEntry> issues = index.get(repositoryUrl);
+		if (issues != null) {
+			issues.remove(number);
+		}
+	}
+
+	public void put(String repositoryUrl, GitHubIssue issue) throws IOException {
+		List<GitHubIssue> issues = new ArrayList<GitHubIssue>(1);
+		issues.add(issue);
+		putAll(repositoryUrl, issues);
+	}
+
+	/**
+	 * the stored issue, or null if the issue is unknown
+	 */
+	public synchronized GitHubIssue get(String repositoryUrl, String number) throws IOException {
+		Map<String, IndexEntry> issues = index.get(repositoryUrl);
+		IndexEntry entry = issues == null ? null : issues.get(number);
+		return entry == null ? null : readRecord(entry.offset);
+	}
+
+	/**
+	 * the time in milliseconds since the epoch when the issue was stored, or
+	 * -1 if the issue is unknown
+	 */
+	public synchronized long getStoredAt(String repositoryUrl, String number) {
+		Map<String, IndexEntry> issues = index.get(repositoryUrl);
+		IndexEntry entry = issues == null ? null : issues.get(number);
+		return entry == null ? -1 : entry.storedAt;
+	}
+
+	/**
+	 * the numbers of the stored issues of the repository
+	 */
+	public synchronized List<String> getNumbers(String repositoryUrl) {
+		Map<String, IndexEntry> issues = index.get(repositoryUrl);
+		if (issues == null) {
+			return new ArrayList<String>(0);
+		}
+		return new ArrayList<String>(issues.keySet());
+	}
+
+	/**
+	 * all stored issues of the repository
+	 */
+	public synchronized List<GitHubIssue> getAll(String repositoryUrl) throws IOException {
+		Map<String, IndexEntry> issues = index.get(repositoryUrl);
+		List<GitHubIssue> result = new ArrayList<GitHubIssue>(issues == null ? 0 : issues.size());
+		if (issues != null) {
+			for (IndexEntry entry : issues.values()) {
+				result.add(readRecord(entry.offset));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * the number of issues in the store
+	 */
+	public synchronized int size() {
+		int size = 0;
+		for (Map<String, IndexEntry> issues : index.values()) {
+			size += issues.size();
+		}
+		return size;
+	}
+
+	public synchronized void close() throws IOException {
+		try {
+			if (out != null) {
+				out.close();
+			}
+		} finally {
+			out = null;
+			if (in != null) {
+				in.close();
+				in = null;
+			}
+		}
+	}
+
+	/**
+	 * Rewrite the log with only the latest record of every issue.
+	 */
+	public synchronized void compact() throws IOException {
+		File compacted = new File(file.getPath() + ".tmp");
+		Map<String, Map<String, IndexEntry>> newIndex = new HashMap<String, Map<String, IndexEntry>>();
+		DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(compacted)));
+		long newLength = HEADER_LENGTH;
+		try {
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+			for (Map.Entry<String, Map<String, IndexEntry>> repository : index.entrySet()) {
+				Map<String, IndexEntry> issues = new HashMap<String, IndexEntry>();
+				newIndex.put(repository.getKey(), issues);
+				for (IndexEntry entry : repository.getValue().values()) {
+					GitHubIssue issue = readRecord(entry.offset);
+					bytes.reset();
+					writeRecord(new DataOutputStream(bytes), repository.getKey(), issue, entry.storedAt);
+					output.writeInt(bytes.size());
+					bytes.writeTo(output);
+					issues.put(issue.getNumber(), new IndexEntry(newLength, entry.storedAt,
+							entry.updatedAt));
+					newLength += 4 + bytes.size();
+				}
+			}
+		} finally {
+			output.close();
+		}
+		close();
+		if (!file.delete() || !compacted.renameTo(file)) {
+			throw new IOException("Cannot replace " + file);
+		}
+		index.clear();
+		index.putAll(newIndex);
+		length = newLength;
+		records = size();
+	}
+
+	/**
+	 * Compact the log once superseded records outnumber the live ones.
+	 */
+	private void compactIfWasted() throws IOException {
+		if (records > 2 * size() && length > COMPACTION_THRESHOLD) {
+			compact();
+		}
+	}
+
+	private Map<String, IndexEntry> getIndex(String repositoryUrl) {
+		Map<String, IndexEntry> issues = index.get(repositoryUrl);
+		if (issues == null) {
+			issues = new HashMap<String, IndexEntry>();
+			index.put(repositoryUrl, issues);
+		}
+		return issues;
+	}
+
+	private void load() throws IOException {
+		if (!file.exists() || file.length() < HEADER_LENGTH) {
+			file.getParentFile().mkdirs();
+			DataOutputStream output = new DataOutputStream(new FileOutputStream(file));
+			try {
+				output.writeInt(MAGIC);
+				output.writeInt(VERSION);
+			} finally {
+				output.close();
+			}
+			length = HEADER_LENGTH;
+			return;
+		}
+		DataInputStream input = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(file)));
+		long fileLength = file.length();
+		long offset = HEADER_LENGTH;
+		boolean truncated = false;
+		try {
+			if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+				throw new IOException("Unsupported issue store " + file);
+			}
+			while (offset < fileLength) {
+				int recordLength = input.readInt();
+				if (recordLength < 0 || recordLength > fileLength - offset - 4) {
+					// torn length prefix, the record was never completed
+					truncated = true;
+					break;
+				}
+				byte[] record = new byte[recordLength];
+				input.readFully(record);
+				DataInputStream recordInput = new DataInputStream(
+						new ByteArrayInputStream(record));
+				String repositoryUrl = readString(recordInput);
+				long storedAt = recordInput.readLong();
+				String number = readString(recordInput);
+				// user, title, body, state and created_at precede updated_at
+				for (int i = 0; i < 5; ++i) {
+					readString(recordInput);
+				}
+				String updatedAt = readString(recordInput);
+				getIndex(repositoryUrl).put(number, new IndexEntry(offset, storedAt, updatedAt));
+				offset += 4 + recordLength;
+				++records;
+			}
+		} catch (EOFException e) {
+			// incomplete last record, written while the workbench crashed
+			truncated = true;
+		} finally {
+			input.close();
+		}
+		if (truncated) {
+			RandomAccessFile truncate = new RandomAccessFile(file, "rw");
+			try {
+				truncate.setLength(offset);
+			} finally {
+				truncate.close();
+			}
+		}
+		length = offset;
+	}
+
+	private DataOutputStream getOutput() throws IOException {
+		if (out == null) {
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+		}
+		return out;
+	}
+
+	private GitHubIssue readRecord(long offset) throws IOException {
+		if (out != null) {
+			out.flush();
+		}
+		if (in == null) {
+			in = new RandomAccessFile(file, "r");
+		}
+		in.seek(offset);
+		byte[] record = new byte[in.readInt()];
+		in.readFully(record);
+		DataInputStream input = new DataInputStream(new ByteArrayInputStream(record));
+		readString(input); // repository
+		input.readLong(); // stored at
+		GitHubIssue issue = new GitHubIssue();
+		issue.setNumber(readString(input));
+		issue.setUser(readString(input));
+		issue.setTitle(readString(input));
+		issue.setBody(readString(input));
+		issue.setState(readString(input));
+		issue.setCreated_at(readString(input));
+		issue.setUpdated_at(readString(input));
+		issue.setClosed_at(readString(input));
+		return issue;
+	}
+
+	private static void writeRecord(DataOutputStream output, String repositoryUrl,
+			GitHubIssue issue, long storedAt) throws IOException {
+		writeString(output, repositoryUrl);
+		output.writeLong(storedAt);
+		writeString(output, issue.getNumber());
+		writeString(output, issue.getUser());
+		writeString(output, issue.getTitle());
+		writeString(output, issue.getBody());
+		writeString(output, issue.getState());
+		writeString(output, issue.getCreated_at());
+		writeString(output, issue.getUpdated_at());
+		writeString(output, issue.getClosed_at());
+		output.flush();
+	}
+
+	/**
+	 * Strings are written as their UTF-8 length and bytes, since issue bodies
+	 * may exceed the limit of {@link DataOutputStream#writeUTF(String)}.
+	 */
+	static void writeString(DataOutputStream output, String value) throws IOException {
+		if (value == null) {
+			output.writeInt(-1);
+		} else {
+			byte[] bytes = value.getBytes("UTF-8");
+			output.writeInt(bytes.length);
+			output.write(bytes);
+		}
+	}
+
+	static String readString(DataInputStream input) throws IOException {
+		int length = input.readInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		input.readFully(bytes);
+		return new String(bytes, "UTF-8");
+	}
+}
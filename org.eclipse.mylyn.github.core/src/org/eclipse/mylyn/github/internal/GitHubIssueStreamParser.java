@@ -0,0 +1,206 @@
+/*
+ * Copyright 2009 Christian Trutz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.eclipse.mylyn.github.internal;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+/**
+ * Reads a {@code {"issues":[...]}} document incrementally and hands each
+ * issue to a {@link GitHubIssueHandler} as soon as it has been read.
+ * <p>
+ * Only the text of the issue currently being read is held in memory, so the
+ * memory needed does not depend on the number of issues in the document.
+ * Members other than {@code issues} are skipped.
+ */
+public class GitHubIssueStreamParser {
+
+	private static final String ISSUES = "issues";
+
+	private final Gson gson;
+
+	private final StringBuilder buffer = new StringBuilder(1024);
+
+	private Reader reader;
+
+	private int peeked = -2;
+
+	public GitHubIssueStreamParser(Gson gson) {
+		this.gson = gson;
+	}
+
+	/**
+	 * Read all issues from the reader. The reader is not closed.
+	 *
+	 * @return the number of issues read
+	 * @throws JsonParseException
+	 *             if the document is malformed
+	 */
+	public int parse(Reader reader, GitHubIssueHandler handler) throws IOException {
+		this.reader = reader;
+		this.peeked = -2;
+		int count = 0;
+		try {
+			expect('{');
+			if (peekNonWhitespace() == '}') {
+				read();
+				return 0;
+			}
+			while (true) {
+				String key = readString();
+				expect(':');
+				if (ISSUES.equals(key) && peekNonWhitespace() == '[') {
+					count += parseIssues(handler);
+				} else {
+					skipValue(null);
+				}
+				int c = readNonWhitespace();
+				if (c == '}') {
+					return count;
+				} else if (c != ',') {
+					throw unexpected(c);
+				}
+			}
+		} finally {
+			this.reader = null;
+		}
+	}
+
+	private int parseIssues(GitHubIssueHandler handler) throws IOException {
+		int count = 0;
+		expect('[');
+		if (peekNonWhitespace() == ']') {
+			read();
+			return 0;
+		}
+		while (true) {
+			if (peekNonWhitespace() == '{') {
+				buffer.setLength(0);
+				skipValue(buffer);
+				handler.handleIssue(gson.fromJson(buffer.toString(), GitHubIssue.class));
+				++count;
+			} else {
+				skipValue(null);
+			}
+			int c = readNonWhitespace();
+			if (c == ']') {
+				return count;
+			} else if (c != ',') {
+				throw unexpected(c);
+			}
+		}
+	}
+
+	/**
+	 * Skip one JSON value, appending its text to the given buffer if not null.
+	 */
+	private void skipValue(StringBuilder out) throws IOException {
+		int depth = 0;
+		boolean inString = false;
+		boolean escaped = false;
+		peekNonWhitespace();
+		do {
+			int c = read();
+			if (c == -1) {
+				throw unexpected(c);
+			}
+			if (out != null) {
+				out.append((char) c);
+			}
+			if (inString) {
+				if (escaped) {
+					escaped = false;
+				} else if (c == '\\') {
+					escaped = true;
+				} else if (c == '"') {
+					inString = false;
+				}
+			} else if (c == '"') {
+				inString = true;
+			} else if (c == '{' || c == '[') {
+				++depth;
+			} else if (c == '}' || c == ']') {
+				--depth;
+			} else if (depth == 0) {
+				// scalar: consume up to the next delimiter
+				int next = peek();
+				while (next != -1 && next != ',' && next != '}' && next != ']'
+						&& !Character.isWhitespace(next)) {
+					c = read();
+					if (out != null) {
+						out.append((char) c);
+					}
+					next = peek();
+				}
+			}
+		} while (inString || depth > 0);
+	}
+
+	private String readString() throws IOException {
+		buffer.setLength(0);
+		if (peekNonWhitespace() != '"') {
+			throw unexpected(peek());
+		}
+		skipValue(buffer);
+		return gson.fromJson("[" + buffer + "]", String[].class)[0];
+	}
+
+	private void expect(char expected) throws IOException {
+		int c = readNonWhitespace();
+		if (c != expected) {
+			throw unexpected(c);
+		}
+	}
+
+	private int readNonWhitespace() throws IOException {
+		peekNonWhitespace();
+		return read();
+	}
+
+	private int peekNonWhitespace() throws IOException {
+		int c = peek();
+		while (c != -1 && Character.isWhitespace(c)) {
+			read();
+			c = peek();
+		}
+		return c;
+	}
+
+	private int peek() throws IOException {
+		if (peeked == -2) {
+			peeked = reader.read();
+		}
+		return peeked;
+	}
+
+	private int read() throws IOException {
+		if (peeked != -2) {
+			int c = peeked;
+			peeked = -2;
+			return c;
+		}
+		return reader.read();
+	}
+
+	private JsonParseException unexpected(int c) {
+		return new JsonParseException(c == -1 ? "Unexpected end of issue list"
+				: "Unexpected character '" + (char) c + "' in issue list");
+	}
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2009 Christian Trutz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.eclipse.mylyn.github.internal;
+
+/**
+ * A label to add to or remove from an issue.
+ *
+ * @see GitHubService#changeLabels(String, String, java.util.List,
+ *      GitHubCredentials, org.eclipse.core.runtime.IProgressMonitor)
+ */
+public class GitHubLabelChange {
+
+	public enum Kind {
+		ADD, REMOVE
+	}
+
+	private final int issueNumber;
+
+	private final String label;
+
+	private final Kind kind;
+
+	public GitHubLabelChange(int issueNumber, String label, Kind kind) {
+		this.issueNumber = issueNumber;
+		this.label = label;
+		this.kind = kind;
+	}
+
+	public int getIssueNumber() {
+		return issueNumber;
+	}
+
+	public String getLabel() {
+		return label;
+	}
+
+	public Kind getKind() {
+		return kind;
+	}
+
+	@Override
+	public String toString() {
+		return (kind == Kind.ADD ? "+" : "-") + label + " #" + issueNumber;
+	}
+}
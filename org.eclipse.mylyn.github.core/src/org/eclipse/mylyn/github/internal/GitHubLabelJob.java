@@ -0,0 +1,90 @@
+/*
+ * Copyright 2009 Christian Trutz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.eclipse.mylyn.github.internal;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+/**
+ * Job that applies many label changes to the issues of one repository.
+ * <p>
+ * The job fails with a multi-status listing the changes that were not
+ * applied; all results are available from {@link #getResults()} once the job
+ * is done.
+ */
+public class GitHubLabelJob extends Job {
+
+	private final GitHubService service;
+
+	private final String user;
+
+	private final String repo;
+
+	private final List<GitHubLabelChange> changes;
+
+	private final GitHubCredentials credentials;
+
+	private volatile List<GitHubLabelResult> results = Collections.emptyList();
+
+	public GitHubLabelJob(GitHubService service, String user, String repo,
+			List<GitHubLabelChange> changes, GitHubCredentials credentials) {
+		super("Changing labels of " + user + "/" + repo);
+		this.service = service;
+		this.user = user;
+		this.repo = repo;
+		this.changes = changes;
+		this.credentials = credentials;
+	}
+
+	@Override
+	protected IStatus run(IProgressMonitor monitor) {
+		try {
+			results = service.changeLabels(user, repo, changes, credentials, monitor);
+		} catch (OperationCanceledException e) {
+			return Status.CANCEL_STATUS;
+		} catch (GitHubServiceException e) {
+			return GitHub.createErrorStatus(e);
+		}
+		MultiStatus status = new MultiStatus(GitHub.BUNDLE_ID, 0,
+				"Some labels could not be changed", null);
+		for (GitHubLabelResult result : results) {
+			if (result.getException() != null) {
+				status.add(GitHub.createErrorStatus(result.getChange() + ": "
+						+ result.getException().getMessage(), result.getException()));
+			} else if (!result.isSuccess()) {
+				status.add(GitHub.createStatus(IStatus.WARNING, result.getChange()
+						+ ": not confirmed by the server"));
+			}
+		}
+		return status.isOK() ? Status.OK_STATUS : status;
+	}
+
+	/**
+	 * the result of every change, in the order of the changes, or an empty
+	 * list if the job has not completed
+	 */
+	public List<GitHubLabelResult> getResults() {
+		return results;
+	}
+}
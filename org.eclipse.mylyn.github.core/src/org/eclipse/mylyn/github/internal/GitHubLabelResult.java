@@ -0,0 +1,54 @@
+/*
+ * Copyright 2009 Christian Trutz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.eclipse.mylyn.github.internal;
+
+/**
+ * The outcome of one {@link GitHubLabelChange}.
+ */
+public class GitHubLabelResult {
+
+	private final GitHubLabelChange change;
+
+	private final boolean success;
+
+	private final GitHubServiceException exception;
+
+	public GitHubLabelResult(GitHubLabelChange change, boolean success,
+			GitHubServiceException exception) {
+		this.change = change;
+		this.success = success;
+		this.exception = exception;
+	}
+
+	public GitHubLabelChange getChange() {
+		return change;
+	}
+
+	/**
+	 * @return true if the server confirmed the change
+	 */
+	public boolean isSuccess() {
+		return success;
+	}
+
+	/**
+	 * the failure of the request, or null if the request was sent
+	 */
+	public GitHubServiceException getException() {
+		return exception;
+	}
+}
@@ -0,0 +1,369 @@
+/*
+ * Copyright 2009 Christian Trutz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.eclipse.mylyn.github.internal;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Counters and latency histograms of the hot paths of the connector: the
+ * requests per endpoint, the bytes sent and received, the time spent parsing
+ * JSON and converting issues to task data, cache hit ratios and errors by
+ * HTTP status.
+ * <p>
+ * Recording is lock-free. The metrics can be read through this class or,
+ * after {@link #registerMBeans()}, through JMX under the domain
+ * {@value #DOMAIN}. The MBean names of each instance carry its own
+ * {@code instance} key property, {@code default} for {@link #getDefault()}.
+ */
+public class GitHubMetrics implements GitHubMetricsMBean {
+
+	private static final Log LOG = LogFactory.getLog(GitHubMetrics.class);
+
+	public static final String DOMAIN = "org.eclipse.mylyn.github";
+
+	/**
+	 * prefix of the timers of requests, followed by the endpoint
+	 */
+	public static final String REQUEST = "request.";
+
+	/**
+	 * prefix of the timers of JSON parsing, followed by the parsed type
+	 */
+	public static final String PARSE = "parse.";
+
+	public static final String TASK_DATA_CONVERSION = "conversion.taskData";
+
+	private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+	private static final GitHubMetrics DEFAULT = new GitHubMetrics("default");
+
+	private final String instance;
+
+	private final ConcurrentMap<String, GitHubTimer> timers = new ConcurrentHashMap<String, GitHubTimer>();
+
+	private final ConcurrentMap<Integer, AtomicLong> errors = new ConcurrentHashMap<Integer, AtomicLong>();
+
+	private final ConcurrentMap<String, AtomicLong[]> caches = new ConcurrentHashMap<String, AtomicLong[]>();
+
+	private final AtomicLong requestCount = new AtomicLong();
+
+	private final AtomicLong requestBytes = new AtomicLong();
+
+	private final AtomicLong responseBytes = new AtomicLong();
+
+	private final AtomicLong compressedResponseBytes = new AtomicLong();
+
+	private final AtomicLong ioErrors = new AtomicLong();
+
+	private MBeanServer mbeanServer;
+
+	private final List<ObjectName> registeredNames = new ArrayList<ObjectName>();
+
+	/**
+	 * Create metrics of their own, e.g. for a test. The connector records
+	 * into {@link #getDefault()}.
+	 */
+	public GitHubMetrics() {
+		this(Integer.toString(INSTANCES.incrementAndGet()));
+	}
+
+	private GitHubMetrics(String instance) {
+		this.instance = instance;
+	}
+
+	/**
+	 * the metrics shared by all services of the connector
+	 */
+	public static GitHubMetrics getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * the timer of the given name, created on first use
+	 */
+	public GitHubTimer getTimer(String name) {
+		GitHubTimer timer = timers.get(name);
+		if (timer == null) {
+			GitHubTimer created = new GitHubTimer(name);
+			timer = timers.putIfAbsent(name, created);
+			if (timer == null) {
+				timer = created;
+				registerTimer(timer);
+			}
+		}
+		return timer;
+	}
+
+	/**
+	 * the value of the {@code instance} key property of the MBean names of
+	 * these metrics
+	 */
+	public String getInstance() {
+		return instance;
+	}
+
+	/**
+	 * a snapshot of all timers by name
+	 */
+	public Map<String, GitHubTimer> getTimers() {
+		return new TreeMap<String, GitHubTimer>(timers);
+	}
+
+	/**
+	 * Record a request that took the given time and was answered with the
+	 * given number of body bytes.
+	 * 
+	 * @param endpoint
+	 *            - The endpoint, e.g. {@code issues/show/}
+	 * @param requestBytes
+	 *            - The size of the request body, or -1 if unknown
+	 */
+	public void recordRequest(String endpoint, long nanos, long requestBytes) {
+		requestCount.incrementAndGet();
+		if (requestBytes > 0) {
+			this.requestBytes.addAndGet(requestBytes);
+		}
+		getTimer(REQUEST + endpoint).record(nanos);
+	}
+
+	/**
+	 * Record the size of a response body as received and, if it was
+	 * compressed, after decompression.
+	 */
+	public void recordResponseBytes(long received, long decoded) {
+		responseBytes.addAndGet(decoded);
+		compressedResponseBytes.addAndGet(received);
+	}
+
+	/**
+	 * Record a response with an error status.
+	 */
+	public void recordError(int status) {
+		AtomicLong counter = errors.get(status);
+		if (counter == null) {
+			AtomicLong created = new AtomicLong();
+			counter = errors.putIfAbsent(status, created);
+			if (counter == null) {
+				counter = created;
+			}
+		}
+		counter.incrementAndGet();
+	}
+
+	/**
+	 * Record a request that failed without a response.
+	 */
+	public void recordIOError() {
+		ioErrors.incrementAndGet();
+	}
+
+	public void recordCacheHit(String cache) {
+		getCacheCounters(cache)[0].incrementAndGet();
+	}
+
+	public void recordCacheMiss(String cache) {
+		getCacheCounters(cache)[1].incrementAndGet();
+	}
+
+	/**
+	 * hits and misses of the cache
+	 */
+	private AtomicLong[] getCacheCounters(String cache) {
+		AtomicLong[] counters = caches.get(cache);
+		if (counters == null) {
+			AtomicLong[] created = new AtomicLong[] { new AtomicLong(), new AtomicLong() };
+			counters = caches.putIfAbsent(cache, created);
+			if (counters == null) {
+				counters = created;
+			}
+		}
+		return counters;
+	}
+
+	/**
+	 * the share of lookups of the cache that were hits, or 0 if it was not
+	 * used
+	 */
+	public double getCacheHitRatio(String cache) {
+		AtomicLong[] counters = caches.get(cache);
+		if (counters == null) {
+			return 0;
+		}
+		long hits = counters[0].get();
+		long lookups = hits + counters[1].get();
+		return lookups == 0 ? 0 : (double) hits / lookups;
+	}
+
+	/**
+	 * the number of responses by error status
+	 */
+	public Map<Integer, Long> getErrorCounts() {
+		Map<Integer, Long> counts = new TreeMap<Integer, Long>();
+		for (Map.Entry<Integer, AtomicLong> error : errors.entrySet()) {
+			counts.put(error.getKey(), error.getValue().get());
+		}
+		return counts;
+	}
+
+	public long getRequestCount() {
+		return requestCount.get();
+	}
+
+	public long getRequestBytes() {
+		return requestBytes.get();
+	}
+
+	/**
+	 * the size of the response bodies after decompression
+	 */
+	public long getResponseBytes() {
+		return responseBytes.get();
+	}
+
+	/**
+	 * the size of the response bodies as received
+	 */
+	public long getCompressedResponseBytes() {
+		return compressedResponseBytes.get();
+	}
+
+	public long getIOErrors() {
+		return ioErrors.get();
+	}
+
+	public String[] getErrors() {
+		List<String> lines = new ArrayList<String>();
+		for (Map.Entry<Integer, Long> error : getErrorCounts().entrySet()) {
+			lines.add(error.getKey() + "=" + error.getValue());
+		}
+		return lines.toArray(new String[lines.size()]);
+	}
+
+	public String[] getCacheHitRatios() {
+		List<String> lines = new ArrayList<String>();
+		for (Map.Entry<String, AtomicLong[]> cache : new TreeMap<String, AtomicLong[]>(caches)
+				.entrySet()) {
+			long hits = cache.getValue()[0].get();
+			long lookups = hits + cache.getValue()[1].get();
+			lines.add(String.format("%s=%.3f (%d/%d)", cache.getKey(),
+					getCacheHitRatio(cache.getKey()), hits, lookups));
+		}
+		return lines.toArray(new String[lines.size()]);
+	}
+
+	public String[] getTimerSummaries() {
+		List<String> lines = new ArrayList<String>();
+		for (GitHubTimer timer : getTimers().values()) {
+			lines.add(timer.toString());
+		}
+		return lines.toArray(new String[lines.size()]);
+	}
+
+	/**
+	 * Clear all counters and timers.
+	 */
+	public void reset() {
+		for (GitHubTimer timer : timers.values()) {
+			timer.reset();
+		}
+		errors.clear();
+		caches.clear();
+		requestCount.set(0);
+		requestBytes.set(0);
+		responseBytes.set(0);
+		compressedResponseBytes.set(0);
+		ioErrors.set(0);
+	}
+
+	/**
+	 * Export the metrics and every timer, including those created later, to
+	 * the platform MBean server. Does nothing if they are registered already.
+	 */
+	public synchronized void registerMBeans() {
+		if (mbeanServer != null) {
+			return;
+		}
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(DOMAIN + ":type=Metrics,instance="
+					+ instance);
+			server.registerMBean(new StandardMBean(this, GitHubMetricsMBean.class), name);
+			registeredNames.add(name);
+			mbeanServer = server;
+		} catch (JMException e) {
+			LOG.warn("Cannot register metrics", e);
+			return;
+		} catch (SecurityException e) {
+			LOG.warn("Cannot register metrics", e);
+			return;
+		}
+		for (GitHubTimer timer : timers.values()) {
+			registerTimer(timer);
+		}
+	}
+
+	/**
+	 * Remove the metrics and the timers registered by
+	 * {@link #registerMBeans()} from the MBean server.
+	 */
+	public synchronized void unregisterMBeans() {
+		if (mbeanServer == null) {
+			return;
+		}
+		for (ObjectName name : registeredNames) {
+			try {
+				if (mbeanServer.isRegistered(name)) {
+					mbeanServer.unregisterMBean(name);
+				}
+			} catch (JMException e) {
+				LOG.warn("Cannot unregister " + name, e);
+			}
+		}
+		registeredNames.clear();
+		mbeanServer = null;
+	}
+
+	private synchronized void registerTimer(GitHubTimer timer) {
+		if (mbeanServer == null) {
+			return;
+		}
+		try {
+			ObjectName name = new ObjectName(DOMAIN + ":type=Timer,instance="
+					+ instance + ",name=" + ObjectName.quote(timer.getName()));
+			mbeanServer.registerMBean(new StandardMBean(timer, GitHubTimerMBean.class), name);
+			registeredNames.add(name);
+		} catch (JMException e) {
+			LOG.warn("Cannot register timer " + timer.getName(), e);
+		}
+	}
+}
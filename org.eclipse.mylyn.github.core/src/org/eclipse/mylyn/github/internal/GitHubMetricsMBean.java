@@ -0,0 +1,51 @@
+/*
+ * Copyright 2009 Christian Trutz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.eclipse.mylyn.github.internal;
+
+/**
+ * JMX view of the {@link GitHubMetrics}. The latency of each endpoint is
+ * available as a {@link GitHubTimerMBean} of its own.
+ */
+public interface GitHubMetricsMBean {
+
+	long getRequestCount();
+
+	long getRequestBytes();
+
+	long getResponseBytes();
+
+	long getCompressedResponseBytes();
+
+	long getIOErrors();
+
+	/**
+	 * error counts as "status=count"
+	 */
+	String[] getErrors();
+
+	/**
+	 * hit ratios as "cache=ratio (hits/lookups)"
+	 */
+	String[] getCacheHitRatios();
+
+	/**
+	 * one summary line per timer
+	 */
+	String[] getTimerSummaries();
+
+	void reset();
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2009 Christian Trutz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.eclipse.mylyn.github.internal;
+
+/**
+ * A change of an issue waiting in the {@link GitHubOutgoingQueue} to be sent
+ * to GitHub.
+ */
+public final class GitHubOutgoingOperation {
+
+	public enum Kind {
+		EDIT, CLOSE, REOPEN, ADD_LABEL, REMOVE_LABEL
+	}
+
+	private final Kind kind;
+
+	private final String repositoryUrl;
+
+	private final String issueNumber;
+
+	private final String title;
+
+	private final String body;
+
+	private final String label;
+
+	private final String baseUpdatedAt;
+
+	private final long queuedAt;
+
+	GitHubOutgoingOperation(Kind kind, String repositoryUrl, String issueNumber,
+			String title, String body, String label, String baseUpdatedAt, long queuedAt) {
+		this.kind = kind;
+		this.repositoryUrl = repositoryUrl;
+		this.issueNumber = issueNumber;
+		this.title = title;
+		this.body = body;
+		this.label = label;
+		this.baseUpdatedAt = baseUpdatedAt;
+		this.queuedAt = queuedAt;
+	}
+
+	/**
+	 * Change title and body of the issue.
+	 * 
+	 * @param baseUpdatedAt
+	 *            - The {@code updated_at} of the issue the change was made
+	 *            to, or null if unknown
+	 */
+	public static GitHubOutgoingOperation edit(String repositoryUrl, GitHubIssue issue,
+			String baseUpdatedAt) {
+		return new GitHubOutgoingOperation(Kind.EDIT, repositoryUrl, issue.getNumber(),
+				issue.getTitle(), issue.getBody(), null, baseUpdatedAt,
+				System.currentTimeMillis());
+	}
+
+	/**
+	 * Close or reopen the issue.
+	 */
+	public static GitHubOutgoingOperation changeStatus(String repositoryUrl,
+			String issueNumber, boolean close) {
+		return new GitHubOutgoingOperation(close ? Kind.CLOSE : Kind.REOPEN, repositoryUrl,
+				issueNumber, null, null, null, null, System.currentTimeMillis());
+	}
+
+	public static GitHubOutgoingOperation changeLabel(String repositoryUrl,
+			GitHubLabelChange change) {
+		return new GitHubOutgoingOperation(
+				change.getKind() == GitHubLabelChange.Kind.ADD ? Kind.ADD_LABEL : Kind.REMOVE_LABEL,
+				repositoryUrl, Integer.toString(change.getIssueNumber()), null, null,
+				change.getLabel(), null, System.currentTimeMillis());
+	}
+
+	/**
+	 * the same edit based on another {@code updated_at}
+	 */
+	GitHubOutgoingOperation withBase(String baseUpdatedAt) {
+		return new GitHubOutgoingOperation(kind, repositoryUrl, issueNumber, title, body,
+				label, baseUpdatedAt, queuedAt);
+	}
+
+	public Kind getKind() {
+		return kind;
+	}
+
+	public String getRepositoryUrl() {
+		return repositoryUrl;
+	}
+
+	public String getIssueNumber() {
+		return issueNumber;
+	}
+
+	public String getTitle() {
+		return title;
+	}
+
+	public String getBody() {
+		return body;
+	}
+
+	public String getLabel() {
+		return label;
+	}
+
+	public String getBaseUpdatedAt() {
+		return baseUpdatedAt;
+	}
+
+	/**
+	 * the time in milliseconds since the epoch when the change was made
+	 */
+	public long getQueuedAt() {
+		return queuedAt;
+	}
+
+	boolean isLabelChange() {
+		return kind == Kind.ADD_LABEL || kind == Kind.REMOVE_LABEL;
+	}
+
+	GitHubLabelChange toLabelChange() {
+		return new GitHubLabelChange(Integer.parseInt(issueNumber), label,
+				kind == Kind.ADD_LABEL ? GitHubLabelChange.Kind.ADD
+						: GitHubLabelChange.Kind.REMOVE);
+	}
+
+	/**
+	 * the issue with the title and body of an edit
+	 */
+	GitHubIssue toIssue() {
+		GitHubIssue issue = new GitHubIssue();
+		issue.setNumber(issueNumber);
+		issue.setTitle(title);
+		issue.setBody(body);
+		return issue;
+	}
+
+	@Override
+	public String toString() {
+		return kind + " #" + issueNumber + (label != null ? " " + label : "");
+	}
+}
@@ -0,0 +1,672 @@
+/*
+ * Copyright 2009 Christian Trutz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.eclipse.mylyn.github.internal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.SubProgressMonitor;
+
+/**
+ * Durable queue of changes to issues that could not be sent yet, e.g.
+ * because GitHub is unreachable. Queued operations are persisted to a file
+ * and sent by a background worker, which retries with exponential backoff
+ * until GitHub accepts them.
+ * <p>
+ * Before an edit is sent, the worker fetches the issue: if it was changed on
+ * the server since the user's edit was based on it, by anybody but this
+ * queue, the edit is rejected rather than overwriting the other change.
+ * Rejected operations are logged, reported to the {@link Listener} and
+ * available from {@link #getRejected()}.
+ * <p>
+ * Credentials are never persisted; operations of a repository are sent once
+ * its credentials were given with {@link #setCredentials}.
+ */
+public class GitHubOutgoingQueue {
+
+	/**
+	 * Told about operations sent to GitHub or rejected, by the submitting
+	 * thread or the background worker.
+	 */
+	public interface Listener {
+
+		/**
+		 * @param issue
+		 *            - The issue as GitHub returned it after the operation,
+		 *            or as fetched if it needed no change
+		 */
+		void sent(GitHubOutgoingOperation operation, GitHubIssue issue);
+
+		/**
+		 * The operation was dropped from the queue without being sent.
+		 * 
+		 * @param reason
+		 *            - Why, e.g. a conflicting change on the server
+		 */
+		void rejected(GitHubOutgoingOperation operation, String reason);
+	}
+
+	private static final Log LOG = LogFactory.getLog(GitHubOutgoingQueue.class);
+
+	private static final int MAGIC = 0x47484f51; // "GHOQ"
+
+	private static final int VERSION = 1;
+
+	public static final long DEFAULT_BASE_DELAY = 5 * 1000L;
+
+	public static final long DEFAULT_MAX_DELAY = 15 * 60 * 1000L;
+
+	private final File file;
+
+	private final GitHubService service;
+
+	private final GitHubRetryPolicy backoff;
+
+	private final GitHubDateCodec dateCodec = GitHubDateCodec.getDefault();
+
+	private final List<GitHubOutgoingOperation> operations = new ArrayList<GitHubOutgoingOperation>();
+
+	private final Map<String, GitHubCredentials> credentials = new ConcurrentHashMap<String, GitHubCredentials>();
+
+	private final Map<GitHubOutgoingOperation, String> rejected = new LinkedHashMap<GitHubOutgoingOperation, String>();
+
+	/**
+	 * updated_at of issues after changes sent by this queue, by repository
+	 * URL and issue number
+	 */
+	private final Map<String, String> appliedUpdatedAt = new ConcurrentHashMap<String, String>();
+
+	private final ScheduledExecutorService worker;
+
+	private ScheduledFuture<?> scheduledDrain;
+
+	private int failures;
+
+	private volatile Listener listener;
+
+	/**
+	 * @param file
+	 *            - The file holding the queue, created if it does not exist,
+	 *            or null to keep the queue in memory only
+	 * @param service
+	 *            - The service sending the operations
+	 */
+	public GitHubOutgoingQueue(File file, GitHubService service) throws IOException {
+		this(file, service, new GitHubRetryPolicy(Integer.MAX_VALUE, DEFAULT_BASE_DELAY,
+				DEFAULT_MAX_DELAY));
+	}
+
+	/**
+	 * @param backoff
+	 *            - The delays between attempts to send queued operations
+	 */
+	public GitHubOutgoingQueue(File file, GitHubService service, GitHubRetryPolicy backoff)
+			throws IOException {
+		this.file = file;
+		this.service = service;
+		this.backoff = backoff;
+		worker = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "GitHub outgoing");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		if (file != null) {
+			// a crash while the queue was replaced leaves the written file only
+			File written = getWrittenFile();
+			if (file.exists()) {
+				load(file);
+			} else if (written.exists()) {
+				load(written);
+			}
+		}
+	}
+
+	/**
+	 * Set the credentials used to send the operations of a repository, and
+	 * start sending those waiting for them.
+	 */
+	public void setCredentials(String repositoryUrl, GitHubCredentials credentials) {
+		this.credentials.put(repositoryUrl, credentials);
+		if (hasPending(repositoryUrl)) {
+			schedule(0);
+		}
+	}
+
+	public void setListener(Listener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Send operations of one repository now, in order. If operations of the
+	 * repository are queued already, or GitHub cannot be reached, they are
+	 * queued instead, so that they are not lost and keep their order.
+	 * 
+	 * @return true if all operations were sent, false if some were queued
+	 * @throws GitHubServiceException
+	 *             if GitHub refused an operation, the following ones are not
+	 *             sent
+	 */
+	public boolean submit(String repositoryUrl, List<GitHubOutgoingOperation> submitted,
+			GitHubCredentials credentials, IProgressMonitor monitor)
+			throws GitHubServiceException {
+		setCredentials(repositoryUrl, credentials);
+		if (hasPending(repositoryUrl)) {
+			addAll(submitted);
+			return false;
+		}
+		GitHubRepositoryId id = GitHubRepositoryId.get(repositoryUrl);
+		List<GitHubOutgoingOperation> labels = new ArrayList<GitHubOutgoingOperation>();
+		for (int i = 0; i < submitted.size(); ++i) {
+			GitHubOutgoingOperation operation = submitted.get(i);
+			if (operation.isLabelChange()) {
+				labels.add(operation);
+				continue;
+			}
+			try {
+				apply(id, operation, credentials, null);
+			} catch (GitHubServiceException e) {
+				if (!isTransient(e)) {
+					throw e;
+				}
+				addAll(submitted.subList(i, submitted.size()));
+				return false;
+			}
+		}
+		if (!labels.isEmpty()) {
+			List<GitHubOutgoingOperation> failed = new ArrayList<GitHubOutgoingOperation>();
+			for (GitHubLabelResult result : applyLabels(id, labels, credentials, monitor)) {
+				GitHubServiceException e = result.getException();
+				if (e != null && !isTransient(e)) {
+					throw e;
+				}
+				if (e != null) {
+					failed.add(GitHubOutgoingOperation.changeLabel(repositoryUrl, result.getChange()));
+				}
+			}
+			if (!failed.isEmpty()) {
+				addAll(failed);
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Queue an operation to be sent in the background.
+	 */
+	public void add(GitHubOutgoingOperation operation) {
+		List<GitHubOutgoingOperation> added = new ArrayList<GitHubOutgoingOperation>(1);
+		added.add(operation);
+		addAll(added);
+	}
+
+	public void addAll(List<GitHubOutgoingOperation> added) {
+		synchronized (this) {
+			operations.addAll(added);
+			persist();
+		}
+		schedule(0);
+	}
+
+	/**
+	 * whether operations of the repository are waiting to be sent
+	 */
+	public synchronized boolean hasPending(String repositoryUrl) {
+		for (GitHubOutgoingOperation operation : operations) {
+			if (operation.getRepositoryUrl().equals(repositoryUrl)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * the operations waiting to be sent, in order
+	 */
+	public synchronized List<GitHubOutgoingOperation> getOperations() {
+		return new ArrayList<GitHubOutgoingOperation>(operations);
+	}
+
+	public synchronized int size() {
+		return operations.size();
+	}
+
+	/**
+	 * the operations that were dropped with the reason, e.g. a conflicting
+	 * change on the server
+	 */
+	public synchronized Map<GitHubOutgoingOperation, String> getRejected() {
+		return new LinkedHashMap<GitHubOutgoingOperation, String>(rejected);
+	}
+
+	/**
+	 * Send the queued operations of all repositories with credentials, and
+	 * reject those GitHub refuses.
+	 * 
+	 * @return the time in milliseconds after which operations left in the
+	 *         queue should be tried again, or -1 if the queue is empty or
+	 *         waits for credentials only
+	 */
+	public long drain(IProgressMonitor monitor) {
+		Map<String, List<GitHubOutgoingOperation>> byRepository = new LinkedHashMap<String, List<GitHubOutgoingOperation>>();
+		synchronized (this) {
+			coalesce();
+			for (GitHubOutgoingOperation operation : operations) {
+				List<GitHubOutgoingOperation> pending = byRepository.get(operation.getRepositoryUrl());
+				if (pending == null) {
+					pending = new ArrayList<GitHubOutgoingOperation>();
+					byRepository.put(operation.getRepositoryUrl(), pending);
+				}
+				pending.add(operation);
+			}
+		}
+		for (Map.Entry<String, List<GitHubOutgoingOperation>> pending : byRepository.entrySet()) {
+			if (monitor.isCanceled()) {
+				throw new OperationCanceledException();
+			}
+			GitHubCredentials repositoryCredentials = credentials.get(pending.getKey());
+			if (repositoryCredentials == null) {
+				continue;
+			}
+			try {
+				drain(pending.getKey(), pending.getValue(), repositoryCredentials, monitor);
+			} catch (GitHubServiceException e) {
+				if (LOG.isDebugEnabled()) {
+					LOG.debug("Cannot send queued operations to " + pending.getKey(), e);
+				}
+				return getBackoff(e);
+			}
+		}
+		synchronized (this) {
+			failures = 0;
+		}
+		return -1;
+	}
+
+	/**
+	 * Send the queued operations of one repository.
+	 * 
+	 * @throws GitHubServiceException
+	 *             the transient failure that stopped sending
+	 */
+	private void drain(String repositoryUrl, List<GitHubOutgoingOperation> pending,
+			GitHubCredentials repositoryCredentials, IProgressMonitor monitor)
+			throws GitHubServiceException {
+		GitHubRepositoryId id = GitHubRepositoryId.get(repositoryUrl);
+		// issues as last seen during this pass, by number
+		Map<String, GitHubIssue> fresh = new HashMap<String, GitHubIssue>();
+		List<GitHubOutgoingOperation> labels = new ArrayList<GitHubOutgoingOperation>();
+		for (GitHubOutgoingOperation operation : pending) {
+			if (id == null) {
+				remove(operation, "Not a GitHub repository");
+			} else if (operation.isLabelChange()) {
+				labels.add(operation);
+			} else {
+				try {
+					remove(operation, apply(id, operation, repositoryCredentials, fresh));
+				} catch (GitHubServiceException e) {
+					if (isTransient(e)) {
+						throw e;
+					}
+					remove(operation, e.getMessage());
+				}
+			}
+		}
+		if (labels.isEmpty()) {
+			return;
+		}
+		List<GitHubLabelResult> results = applyLabels(id, labels, repositoryCredentials, monitor);
+		GitHubServiceException failure = null;
+		for (int i = 0; i < results.size(); ++i) {
+			GitHubServiceException e = results.get(i).getException();
+			if (e == null) {
+				remove(labels.get(i), results.get(i).isSuccess() ? null
+						: "Not confirmed by the server");
+			} else if (isTransient(e)) {
+				failure = e;
+			} else {
+				remove(labels.get(i), e.getMessage());
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * Send an operation other than a label change.
+	 * 
+	 * @param fresh
+	 *            - Issues fetched to check for conflicts by number, or null to
+	 *            send without checking
+	 * @return null if the operation is done, or the reason it was rejected
+	 */
+	private String apply(GitHubRepositoryId id, GitHubOutgoingOperation operation,
+			GitHubCredentials repositoryCredentials, Map<String, GitHubIssue> fresh)
+			throws GitHubServiceException {
+		GitHubIssue current = null;
+		if (fresh != null) {
+			current = fresh.get(operation.getIssueNumber());
+			if (current == null) {
+				current = service.showIssue(id.getUser(), id.getProject(),
+						operation.getIssueNumber());
+			}
+		}
+		GitHubIssue updated;
+		switch (operation.getKind()) {
+		case EDIT:
+			if (current != null) {
+				if (equal(current.getTitle(), operation.getTitle())
+						&& equal(current.getBody(), operation.getBody())) {
+					sent(operation, current);
+					return null;
+				}
+				if (isConflict(operation, current)) {
+					return "Changed on the server at " + current.getUpdated_at();
+				}
+			}
+			updated = service.editIssue(id.getUser(), id.getProject(), operation.toIssue(),
+					repositoryCredentials);
+			break;
+		case CLOSE:
+			if (current != null && "closed".equals(current.getState())) {
+				sent(operation, current);
+				return null;
+			}
+			updated = service.closeIssue(id.getUser(), id.getProject(), operation.toIssue(),
+					repositoryCredentials);
+			break;
+		case REOPEN:
+			if (current != null && "open".equals(current.getState())) {
+				sent(operation, current);
+				return null;
+			}
+			updated = service.reopenIssue(id.getUser(), id.getProject(), operation.toIssue(),
+					repositoryCredentials);
+			break;
+		default:
+			throw new IllegalArgumentException(operation.toString());
+		}
+		if (updated != null) {
+			appliedUpdatedAt.put(getKey(operation), String.valueOf(updated.getUpdated_at()));
+			if (fresh != null) {
+				fresh.put(operation.getIssueNumber(), updated);
+			}
+			sent(operation, updated);
+		}
+		return null;
+	}
+
+	private void sent(GitHubOutgoingOperation operation, GitHubIssue issue) {
+		Listener notified = listener;
+		if (notified != null) {
+			try {
+				notified.sent(operation, issue);
+			} catch (RuntimeException e) {
+				LOG.error("Listener failed", e);
+			}
+		}
+	}
+
+	private List<GitHubLabelResult> applyLabels(GitHubRepositoryId id,
+			List<GitHubOutgoingOperation> labels, GitHubCredentials repositoryCredentials,
+			IProgressMonitor monitor) throws GitHubServiceException {
+		List<GitHubLabelChange> changes = new ArrayList<GitHubLabelChange>(labels.size());
+		for (GitHubOutgoingOperation operation : labels) {
+			changes.add(operation.toLabelChange());
+		}
+		// the monitor of a submit is started already
+		return service.changeLabels(id.getUser(), id.getProject(), changes,
+				repositoryCredentials, monitor == null ? new NullProgressMonitor()
+						: new SubProgressMonitor(monitor, 1));
+	}
+
+	/**
+	 * Whether the issue was changed on the server since the edit was based
+	 * on it, by anybody but this queue.
+	 */
+	private boolean isConflict(GitHubOutgoingOperation edit, GitHubIssue current) {
+		if (edit.getBaseUpdatedAt() == null) {
+			return false;
+		}
+		long updatedAt = dateCodec.parseGitHubDate(current.getUpdated_at());
+		if (updatedAt == dateCodec.parseGitHubDate(edit.getBaseUpdatedAt())) {
+			return false;
+		}
+		String applied = appliedUpdatedAt.get(getKey(edit));
+		return applied == null || dateCodec.parseGitHubDate(applied) != updatedAt;
+	}
+
+	private static String getKey(GitHubOutgoingOperation operation) {
+		return operation.getRepositoryUrl() + "#" + operation.getIssueNumber();
+	}
+
+	private static boolean equal(String a, String b) {
+		return a == null ? b == null : a.equals(b);
+	}
+
+	private boolean isTransient(GitHubServiceException e) {
+		return e instanceof RateLimitExceededException || backoff.isRetryable(e);
+	}
+
+	private synchronized long getBackoff(GitHubServiceException e) {
+		++failures;
+		if (e instanceof RateLimitExceededException) {
+			return Math.max(0, ((RateLimitExceededException) e).getResetTime()
+					- System.currentTimeMillis());
+		}
+		long delay = backoff.getDelay(failures, e, -1);
+		return delay < 0 ? DEFAULT_MAX_DELAY : delay;
+	}
+
+	/**
+	 * Remove an operation that was sent or rejected.
+	 * 
+	 * @param rejection
+	 *            - The reason the operation was rejected, or null if it was
+	 *            sent
+	 */
+	private void remove(GitHubOutgoingOperation operation, String rejection) {
+		synchronized (this) {
+			operations.remove(operation);
+			if (rejection != null) {
+				LOG.warn("Dropped " + operation + " of " + operation.getRepositoryUrl() + ": "
+						+ rejection);
+				rejected.put(operation, rejection);
+			}
+			persist();
+		}
+		Listener notified = listener;
+		if (rejection != null && notified != null) {
+			try {
+				notified.rejected(operation, rejection);
+			} catch (RuntimeException e) {
+				LOG.error("Listener failed", e);
+			}
+		}
+	}
+
+	/**
+	 * Merge the edits of an issue into the last one, based on the
+	 * {@code updated_at} the first one was based on.
+	 */
+	private void coalesce() {
+		Map<String, String> firstBase = new HashMap<String, String>();
+		Map<String, GitHubOutgoingOperation> lastEdit = new HashMap<String, GitHubOutgoingOperation>();
+		for (GitHubOutgoingOperation operation : operations) {
+			if (operation.getKind() == GitHubOutgoingOperation.Kind.EDIT) {
+				String key = getKey(operation);
+				if (!lastEdit.containsKey(key)) {
+					firstBase.put(key, operation.getBaseUpdatedAt());
+				}
+				lastEdit.put(key, operation);
+			}
+		}
+		if (lastEdit.size() == countEdits()) {
+			return;
+		}
+		List<GitHubOutgoingOperation> coalesced = new ArrayList<GitHubOutgoingOperation>(operations.size());
+		for (GitHubOutgoingOperation operation : operations) {
+			if (operation.getKind() != GitHubOutgoingOperation.Kind.EDIT) {
+				coalesced.add(operation);
+			} else if (lastEdit.get(getKey(operation)) == operation) {
+				coalesced.add(operation.withBase(firstBase.get(getKey(operation))));
+			}
+		}
+		operations.clear();
+		operations.addAll(coalesced);
+		persist();
+	}
+
+	private int countEdits() {
+		int edits = 0;
+		for (GitHubOutgoingOperation operation : operations) {
+			if (operation.getKind() == GitHubOutgoingOperation.Kind.EDIT) {
+				++edits;
+			}
+		}
+		return edits;
+	}
+
+	/**
+	 * Drain the queue after the delay, unless a drain is due earlier.
+	 */
+	private synchronized void schedule(long delay) {
+		if (worker.isShutdown()) {
+			return;
+		}
+		if (scheduledDrain != null) {
+			if (scheduledDrain.getDelay(TimeUnit.MILLISECONDS) <= delay) {
+				return;
+			}
+			scheduledDrain.cancel(false);
+		}
+		scheduledDrain = worker.schedule(new Runnable() {
+			public void run() {
+				synchronized (GitHubOutgoingQueue.this) {
+					scheduledDrain = null;
+				}
+				try {
+					long next = drain(new NullProgressMonitor());
+					if (next >= 0) {
+						schedule(next);
+					}
+				} catch (RuntimeException e) {
+					LOG.error("Cannot send queued operations", e);
+				}
+			}
+		}, delay, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stop the background worker, queued operations stay in the file.
+	 */
+	public void close() {
+		worker.shutdownNow();
+	}
+
+	private File getWrittenFile() {
+		return new File(file.getPath() + ".tmp");
+	}
+
+	/**
+	 * Write the queue to a new file which then replaces the old one, so that
+	 * a crash leaves either of them. Where a rename cannot replace a file,
+	 * the old one is deleted first and {@link #load(File)} falls back to the
+	 * new one.
+	 */
+	private void persist() {
+		if (file == null) {
+			return;
+		}
+		file.getAbsoluteFile().getParentFile().mkdirs();
+		File written = getWrittenFile();
+		try {
+			DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(written)));
+			try {
+				output.writeInt(MAGIC);
+				output.writeInt(VERSION);
+				output.writeInt(operations.size());
+				for (GitHubOutgoingOperation operation : operations) {
+					GitHubIssueStore.writeString(output, operation.getKind().name());
+					GitHubIssueStore.writeString(output, operation.getRepositoryUrl());
+					GitHubIssueStore.writeString(output, operation.getIssueNumber());
+					GitHubIssueStore.writeString(output, operation.getTitle());
+					GitHubIssueStore.writeString(output, operation.getBody());
+					GitHubIssueStore.writeString(output, operation.getLabel());
+					GitHubIssueStore.writeString(output, operation.getBaseUpdatedAt());
+					output.writeLong(operation.getQueuedAt());
+				}
+			} finally {
+				output.close();
+			}
+			if (!written.renameTo(file)
+					&& ((file.exists() && !file.delete()) || !written.renameTo(file))) {
+				throw new IOException("Cannot replace " + file);
+			}
+		} catch (IOException e) {
+			// the operations are still queued in memory
+			LOG.error("Cannot write outgoing queue " + file, e);
+		}
+	}
+
+	private void load(File source) throws IOException {
+		DataInputStream input = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(source)));
+		try {
+			if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+				throw new IOException("Unsupported outgoing queue " + source);
+			}
+			int size = input.readInt();
+			for (int i = 0; i < size; ++i) {
+				operations.add(new GitHubOutgoingOperation(
+						GitHubOutgoingOperation.Kind.valueOf(GitHubIssueStore.readString(input)),
+						GitHubIssueStore.readString(input), GitHubIssueStore.readString(input),
+						GitHubIssueStore.readString(input), GitHubIssueStore.readString(input),
+						GitHubIssueStore.readString(input), GitHubIssueStore.readString(input),
+						input.readLong()));
+			}
+		} finally {
+			input.close();
+		}
+	}
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2009 Christian Trutz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.eclipse.mylyn.github.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+/**
+ * Bounded pool of threads that runs the parts of a query concurrently.
+ * <p>
+ * Tasks wait in a bounded queue while all threads are busy, so the caller
+ * keeps polling its monitor. Only when the queue is full does the submitting
+ * thread run the task itself. Background work submitted with
+ * {@link #submit(Callable)}, such as fetching the next page of a listing,
+ * runs on separate threads, so it is neither run inline by a caller nor
+ * stuck behind the query tasks waiting for it.
+ */
+public class GitHubQueryExecutor {
+
+	public static final int DEFAULT_THREADS = 4;
+
+	/**
+	 * number of query tasks waiting for a thread before callers run them
+	 */
+	public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+	/**
+	 * how often a waiting caller checks its monitor for cancellation
+	 */
+	private static final long CANCEL_POLL_MILLIS = 100;
+
+	private static GitHubQueryExecutor defaultExecutor;
+
+	private final ThreadPoolExecutor executor;
+
+	private final ThreadPoolExecutor backgroundExecutor;
+
+	/**
+	 * the executor shared by all repositories
+	 */
+	public static synchronized GitHubQueryExecutor getDefault() {
+		if (defaultExecutor == null) {
+			defaultExecutor = new GitHubQueryExecutor(DEFAULT_THREADS);
+		}
+		return defaultExecutor;
+	}
+
+	public GitHubQueryExecutor(int threads) {
+		executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(DEFAULT_QUEUE_CAPACITY),
+				new NamedThreadFactory("GitHub query-"),
+				new ThreadPoolExecutor.CallerRunsPolicy());
+		// one pending task per open page iterator at most, so the queue is
+		// bounded by the number of concurrent listings
+		backgroundExecutor = new ThreadPoolExecutor(threads, threads, 60L,
+				TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+				new NamedThreadFactory("GitHub prefetch-"));
+	}
+
+	private static class NamedThreadFactory implements ThreadFactory {
+		private final String prefix;
+
+		private final AtomicInteger count = new AtomicInteger();
+
+		NamedThreadFactory(String prefix) {
+			this.prefix = prefix;
+		}
+
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
+	/**
+	 * Run all tasks concurrently and wait for them, reporting one unit of
+	 * work to the monitor per finished task.
+	 *
+	 * @return the results in the order of the tasks
+	 * @throws GitHubServiceException
+	 *             the first failure of a task, the remaining tasks are
+	 *             cancelled
+	 * @throws OperationCanceledException
+	 *             if the monitor was cancelled while waiting
+	 */
+	public <T> List<T> invokeAll(List<Callable<T>> tasks, IProgressMonitor monitor)
+			throws GitHubServiceException {
+		List<Future<T>> futures = new ArrayList<Future<T>>(tasks.size());
+		try {
+			for (Callable<T> task : tasks) {
+				if (monitor.isCanceled()) {
+					throw new OperationCanceledException();
+				}
+				futures.add(executor.submit(task));
+			}
+			List<T> results = new ArrayList<T>(futures.size());
+			for (Future<T> future : futures) {
+				results.add(await(future, monitor));
+				monitor.worked(1);
+			}
+			return results;
+		} finally {
+			for (Future<T> future : futures) {
+				future.cancel(true);
+			}
+		}
+	}
+
+	/**
+	 * Wait for the future, checking the monitor for cancellation.
+	 */
+	static <T> T await(Future<T> future, IProgressMonitor monitor)
+			throws GitHubServiceException {
+		while (true) {
+			if (monitor.isCanceled()) {
+				throw new OperationCanceledException();
+			}
+			try {
+				return future.get(CANCEL_POLL_MILLIS, TimeUnit.MILLISECONDS);
+			} catch (TimeoutException e) {
+				// check the monitor again
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new OperationCanceledException();
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof GitHubServiceException) {
+					throw (GitHubServiceException) cause;
+				} else if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				} else if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw new GitHubServiceException(cause.getMessage(), cause);
+			}
+		}
+	}
+
+	/**
+	 * Run a task in the background, never in the calling thread. Tasks wait
+	 * for a thread if all are busy.
+	 */
+	public <T> Future<T> submit(Callable<T> task) {
+		return backgroundExecutor.submit(task);
+	}
+
+	public void shutdown() {
+		executor.shutdownNow();
+		backgroundExecutor.shutdownNow();
+		synchronized (GitHubQueryExecutor.class) {
+			if (defaultExecutor == this) {
+				defaultExecutor = null;
+			}
+		}
+	}
+}
@@ -16,18 +16,29 @@
  */
 package org.eclipse.mylyn.github.internal;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.mylyn.commons.net.AuthenticationType;
 import org.eclipse.mylyn.tasks.core.AbstractRepositoryConnector;
 import org.eclipse.mylyn.tasks.core.IRepositoryQuery;
 import org.eclipse.mylyn.tasks.core.ITask;
 import org.eclipse.mylyn.tasks.core.TaskRepository;
 import org.eclipse.mylyn.tasks.core.data.AbstractTaskDataHandler;
+import org.eclipse.mylyn.tasks.core.data.TaskAttribute;
 import org.eclipse.mylyn.tasks.core.data.TaskData;
 import org.eclipse.mylyn.tasks.core.data.TaskDataCollector;
 import org.eclipse.mylyn.tasks.core.data.TaskMapper;
@@ -47,9 +58,89 @@ public class GitHubRepositoryConnector extends AbstractRepositoryConnector {
 	protected static final String KIND = GitHub.CONNECTOR_KIND;
 
 	/**
-	 * GitHub service which creates, lists, deletes, etc. GitHub tasks.
+	 * Issue states listed during synchronization.
 	 */
-	private final GitHubService service = new GitHubService();
+	private static final String[] STATES = new String[] { "open", "closed" };
+
+	/**
+	 * Number of already listed issues converted to task data by one query
+	 * task.
+	 */
+	private static final int CONVERSION_BATCH_SIZE = 250;
+
+	/**
+	 * Repository property: milliseconds for which an issue written to the
+	 * issue store is considered current by {@link #getTaskData}.
+	 */
+	public static final String PROPERTY_STORE_MAX_AGE = "github.store.maxAge";
+
+	public static final long DEFAULT_STORE_MAX_AGE = 60 * 1000L;
+
+	private static final String ISSUE_STORE_FILE = "issues.log";
+
+	private static final String OUTGOING_QUEUE_FILE = "outgoing.dat";
+
+	/**
+	 * the name of the hit ratio of the issue store in the {@link GitHubMetrics}
+	 */
+	public static final String ISSUE_STORE_METRICS_NAME = "issueStore";
+
+	/**
+	 * task attribute holding the modification date of the task data last
+	 * applied to the task
+	 */
+	private static final String TASK_MODIFICATION_DATE = "github.modificationDate";
+
+	/**
+	 * GitHub service which creates, lists, deletes, etc. GitHub tasks. Uses
+	 * the connections of the shared {@link GitHubConnectionPool}, so all
+	 * repositories reuse the same keep-alive connections.
+	 */
+	private final GitHubService service;
+
+	/**
+	 * the directory of the issue store and the outgoing queue, or null for
+	 * the state location of the core bundle
+	 */
+	private final File stateLocation;
+
+	/**
+	 * Persistent store of the issues seen by this connector, opened lazily.
+	 */
+	private GitHubIssueStore issueStore;
+
+	private boolean issueStoreOpened = false;
+
+	/**
+	 * Queue of task changes waiting for GitHub to be reachable, opened by the
+	 * first synchronization so that changes queued before a restart are sent.
+	 */
+	private GitHubOutgoingQueue outgoingQueue;
+
+	/**
+	 * told about the operations of the outgoing queue that were sent or
+	 * rejected
+	 */
+	private final List<GitHubOutgoingQueue.Listener> outgoingListeners = new CopyOnWriteArrayList<GitHubOutgoingQueue.Listener>();
+
+	/**
+	 * Full-text index of the stored issues, loaded per repository on first
+	 * use, which answers query texts without a request to GitHub. It holds
+	 * the issue numbers only, the issues are read from the issue store.
+	 */
+	private final GitHubIssueIndex issueIndex = new GitHubIssueIndex();
+
+	/**
+	 * repository URL and issue state of the listings indexed completely
+	 * since the connector was created, which the index may answer alone
+	 */
+	private final ConcurrentMap<String, Boolean> indexedListings = new ConcurrentHashMap<String, Boolean>();
+
+	/**
+	 * the state of the running full synchronizations by repository URL, so
+	 * that failures outside of the session can be recorded
+	 */
+	private final ConcurrentMap<String, GitHubSynchronizationState> synchronizations = new ConcurrentHashMap<String, GitHubSynchronizationState>();
 
 	/**
 	 * GitHub specific {@link AbstractTaskDataHandler}.
@@ -57,6 +148,28 @@ public class GitHubRepositoryConnector extends AbstractRepositoryConnector {
 	private final GitHubTaskDataHandler taskDataHandler;
 
 	public GitHubRepositoryConnector() {
+		this(new GitHubService());
+	}
+
+	/**
+	 * Create a connector sending its requests through the service, e.g. one
+	 * using another API URL.
+	 */
+	public GitHubRepositoryConnector(GitHubService service) {
+		this(service, null);
+	}
+
+	/**
+	 * Create a connector keeping its issue store and outgoing queue in the
+	 * directory.
+	 * 
+	 * @param stateLocation
+	 *            - The directory, or null for the state location of the core
+	 *            bundle
+	 */
+	public GitHubRepositoryConnector(GitHubService service, File stateLocation) {
+		this.service = service;
+		this.stateLocation = stateLocation;
 		taskDataHandler = new GitHubTaskDataHandler(this);
 	}
 	
@@ -107,89 +220,610 @@ public class GitHubRepositoryConnector extends AbstractRepositoryConnector {
 	}
 
 	@Override
-	public IStatus performQuery(TaskRepository repository,
+	public IStatus performQuery(final TaskRepository repository,
 			IRepositoryQuery query, TaskDataCollector collector,
-			ISynchronizationSession session, IProgressMonitor monitor) {
+			ISynchronizationSession session, final IProgressMonitor monitor) {
 
 		IStatus result = Status.OK_STATUS;
 		String queryStatus = query.getAttribute("status");
 		
 		String[] statuses;
 		if (queryStatus.equals("all")) {
-			statuses = new String[] {"open","closed"};
+			statuses = STATES;
 		} else {
 			statuses = new String[] { queryStatus };
 		}
 		
-		monitor.beginTask("Querying repository ...", statuses.length);
+		configure(repository);
 		try {
-			String user = GitHub.computeTaskRepositoryUser(repository.getUrl());
-			String project = GitHub.computeTaskRepositoryProject(repository.getUrl());
-			
-			// perform query
+			GitHubRepositoryId id = getRepositoryId(repository);
+			final String user = id.getUser();
+			final String project = id.getProject();
 			
-			for (String status: statuses) {
-				GitHubIssues issues = service.searchIssues(user,project,
-						status, query
-								.getAttribute("queryText"));
-	
-				// collect task data
-				for (GitHubIssue issue : issues.getIssues()) {
-					TaskData taskData = taskDataHandler.createPartialTaskData(
-							repository, monitor,user, project, issue);
-					collector.accept(taskData);
+			// task data is created concurrently, deliver it one at a time
+			final TaskDataCollector synchronizedCollector = new SynchronizedTaskDataCollector(collector);
+
+			// perform query, one task per status or per batch of listed issues
+			List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+			final String queryText = query.getAttribute("queryText");
+			final boolean hasQueryText = queryText != null && queryText.trim().length() > 0;
+			// search the local index unless the query asks for the server
+			boolean searchIndex = hasQueryText
+					&& !Boolean.valueOf(query.getAttribute("searchServer")).booleanValue();
+			GitHubSynchronizationState state = getSynchronizationState(session);
+			for (final String status: statuses) {
+				// answer from the index and the issue store, which also hold
+				// the listing fetched in preSynchronization, if possible
+				List<String> listed = null;
+				if (searchIndex && isListingIndexed(repository, status)) {
+					listed = issueIndex.search(repository.getRepositoryUrl(), queryText, status);
+				} else if (state != null && !hasQueryText && state.isListed(status)) {
+					listed = issueIndex.search(repository.getRepositoryUrl(), "", status);
+				}
+				if (listed != null && !isStored(repository, listed)) {
+					// issues changed since are requested again
+					listed = null;
+				}
+				if (listed != null) {
+					for (int start = 0; start < listed.size(); start += CONVERSION_BATCH_SIZE) {
+						final List<String> batch = listed.subList(start,
+								Math.min(listed.size(), start + CONVERSION_BATCH_SIZE));
+						tasks.add(new Callable<Object>() {
+							public Object call() {
+								// collect task data
+								for (String number : batch) {
+									checkCanceled(monitor);
+									GitHubIssue issue = getStoredIssue(repository, number,
+											Long.MAX_VALUE);
+									if (issue != null) {
+										TaskData taskData = taskDataHandler.createPartialTaskData(
+												repository, monitor, user, project, issue);
+										synchronizedCollector.accept(taskData);
+									}
+								}
+								return null;
+							}
+						});
+					}
+				} else {
+					tasks.add(new Callable<Object>() {
+						public Object call() throws GitHubServiceException {
+							final IssueStoreWriter storeWriter = new IssueStoreWriter(repository);
+							final boolean[] received = new boolean[1];
+							GitHubIssueHandler handler = new GitHubIssueHandler() {
+								public void handleIssue(GitHubIssue issue) {
+									checkCanceled(monitor);
+									received[0] = true;
+									storeWriter.add(issue);
+									TaskData taskData = taskDataHandler.createPartialTaskData(
+											repository, monitor, user, project, issue);
+									synchronizedCollector.accept(taskData);
+								}
+							};
+							try {
+								// collect task data while the response is being read,
+								// without a query text the complete listing is read
+								service.searchIssues(user, project, status,
+										hasQueryText ? queryText : "", handler,
+										getIssueSource(repository), monitor);
+								if (!hasQueryText) {
+									storeWriter.flush();
+									setListingIndexed(repository, status);
+								}
+							} catch (GitHubServiceException e) {
+								// offline: answer from the stored issues
+								if (received[0] || !isNetworkFailure(e)) {
+									throw e;
+								}
+								for (String number : getIssueIndex(repository.getRepositoryUrl()).search(
+										repository.getRepositoryUrl(), queryText, status)) {
+									GitHubIssue issue = getStoredIssue(repository, number,
+											Long.MAX_VALUE);
+									if (issue != null) {
+										TaskData taskData = taskDataHandler.createPartialTaskData(
+												repository, monitor, user, project, issue);
+										synchronizedCollector.accept(taskData);
+									}
+								}
+							} finally {
+								storeWriter.flush();
+							}
+							return null;
+						}
+					});
 				}
-				monitor.worked(1);
 			}
 
+			monitor.beginTask("Querying repository ...", tasks.size());
+			GitHubQueryExecutor.getDefault().invokeAll(tasks, monitor);
+
 			result = Status.OK_STATUS;
+		} catch (OperationCanceledException e) {
+			result = Status.CANCEL_STATUS;
 		} catch (GitHubServiceException e) {
 			result = GitHub.createErrorStatus(e);
+		} catch (CoreException e) {
+			result = e.getStatus();
 		}
 
+		if (!result.isOK()) {
+			markSynchronizationFailed(repository, session);
+		}
 		monitor.done();
 		return result;
 	}
 
+	/**
+	 * Keep the high-water mark of the running synchronization of the
+	 * repository, if any, from advancing.
+	 */
+	private void markSynchronizationFailed(TaskRepository repository,
+			ISynchronizationSession session) {
+		GitHubSynchronizationState state = getSynchronizationState(session);
+		if (state == null) {
+			state = synchronizations.get(repository.getRepositoryUrl());
+		}
+		if (state != null) {
+			state.markFailed();
+		}
+	}
+
+	/**
+	 * whether all issues of the repository in the given state were indexed
+	 * by a complete listing
+	 */
+	private boolean isListingIndexed(TaskRepository repository, String state) {
+		return indexedListings.containsKey(repository.getRepositoryUrl() + "#" + state);
+	}
+
+	private void setListingIndexed(TaskRepository repository, String state) {
+		indexedListings.put(repository.getRepositoryUrl() + "#" + state, Boolean.TRUE);
+	}
+
+	/**
+	 * @return true if the request failed because GitHub could not be reached
+	 */
+	private static boolean isNetworkFailure(GitHubServiceException e) {
+		return e.getCause() instanceof IOException;
+	}
+
+	/**
+	 * the persistent issue store, or null if it is not available
+	 */
+	private synchronized GitHubIssueStore getIssueStore() {
+		if (!issueStoreOpened) {
+			issueStoreOpened = true;
+			File stateLocation = getStateLocation();
+			if (stateLocation != null) {
+				try {
+					issueStore = new GitHubIssueStore(new File(stateLocation, ISSUE_STORE_FILE));
+				} catch (IOException e) {
+					GitHub.logError("Cannot open issue store", e);
+				}
+			}
+		}
+		return issueStore;
+	}
+
+	/**
+	 * the queue of task changes not sent yet, kept in memory only if it
+	 * cannot be persisted
+	 */
+	public synchronized GitHubOutgoingQueue getOutgoingQueue() {
+		if (outgoingQueue == null) {
+			File stateLocation = getStateLocation();
+			if (stateLocation != null) {
+				try {
+					outgoingQueue = new GitHubOutgoingQueue(new File(stateLocation,
+							OUTGOING_QUEUE_FILE), service);
+				} catch (IOException e) {
+					GitHub.logError("Cannot open outgoing queue", e);
+				}
+			}
+			if (outgoingQueue == null) {
+				try {
+					outgoingQueue = new GitHubOutgoingQueue(null, service);
+				} catch (IOException e) {
+					// not thrown without a file
+					throw new IllegalStateException(e);
+				}
+			}
+			outgoingQueue.setListener(new GitHubOutgoingQueue.Listener() {
+				public void sent(GitHubOutgoingOperation operation, GitHubIssue issue) {
+					// the refresh after a submit sees the change
+					storeIssues(operation.getRepositoryUrl(), Collections.singletonList(issue));
+					for (GitHubOutgoingQueue.Listener listener : outgoingListeners) {
+						listener.sent(operation, issue);
+					}
+				}
+
+				public void rejected(GitHubOutgoingOperation operation, String reason) {
+					GitHub.log(GitHub.createStatus(IStatus.WARNING, "Change of issue "
+							+ operation.getIssueNumber() + " of "
+							+ operation.getRepositoryUrl() + " was not sent: " + reason));
+					for (GitHubOutgoingQueue.Listener listener : outgoingListeners) {
+						listener.rejected(operation, reason);
+					}
+				}
+			});
+		}
+		return outgoingQueue;
+	}
+
+	private File getStateLocation() {
+		return stateLocation != null ? stateLocation : GitHub.getStateLocation();
+	}
+
+	/**
+	 * Connect to GitHub with the settings of the repository. The metrics are
+	 * registered once the connector is used, rather than whenever Mylyn or a
+	 * test creates a connector.
+	 */
+	private static void configure(TaskRepository repository) {
+		GitHubMetrics.getDefault().registerMBeans();
+		GitHubConnectionPool.getDefault().configure(repository);
+	}
+
+	/**
+	 * Tell the listener about the operations of the outgoing queue that are
+	 * sent or rejected, e.g. to mark the task of a rejected change as
+	 * outgoing again.
+	 */
+	public void addOutgoingListener(GitHubOutgoingQueue.Listener listener) {
+		outgoingListeners.add(listener);
+	}
+
+	public void removeOutgoingListener(GitHubOutgoingQueue.Listener listener) {
+		outgoingListeners.remove(listener);
+	}
+
+	/**
+	 * Give the outgoing queue the credentials of the repository, so that
+	 * changes queued for it are sent without waiting for the next submit.
+	 */
+	private void resumeOutgoing(TaskRepository repository, GitHubRepositoryId id) {
+		if (repository.getCredentials(AuthenticationType.REPOSITORY) != null) {
+			getOutgoingQueue().setCredentials(id.getRepositoryUrl(),
+					GitHubCredentials.create(repository));
+		}
+	}
+
+	/**
+	 * the issue index, with the stored issues of the repository loaded one
+	 * at a time
+	 */
+	private GitHubIssueIndex getIssueIndex(String repositoryUrl) {
+		synchronized (issueIndex) {
+			GitHubIssueStore store = getIssueStore();
+			if (!issueIndex.contains(repositoryUrl)) {
+				issueIndex.addAll(repositoryUrl, Collections.<GitHubIssue> emptyList());
+				if (store != null) {
+					try {
+						for (String number : store.getNumbers(repositoryUrl)) {
+							GitHubIssue issue = store.get(repositoryUrl, number);
+							if (issue != null) {
+								issueIndex.addAll(repositoryUrl, Collections.singletonList(issue));
+							}
+						}
+					} catch (IOException e) {
+						GitHub.logError("Cannot read issue store", e);
+					}
+				}
+			}
+		}
+		return issueIndex;
+	}
+
+	/**
+	 * whether all issues are in the issue store
+	 */
+	private boolean isStored(TaskRepository repository, List<String> numbers) {
+		GitHubIssueStore store = getIssueStore();
+		if (store == null) {
+			return false;
+		}
+		for (String number : numbers) {
+			if (store.getStoredAt(repository.getRepositoryUrl(), number) < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void storeIssues(String repositoryUrl, Collection<GitHubIssue> issues) {
+		GitHubIssueStore store = getIssueStore();
+		if (store != null && !issues.isEmpty()) {
+			// the index refers to the stored issues
+			getIssueIndex(repositoryUrl).addAll(repositoryUrl, issues);
+			try {
+				store.putAll(repositoryUrl, issues);
+			} catch (IOException e) {
+				GitHub.logError("Cannot store issues", e);
+			}
+		}
+	}
+
+	/**
+	 * Store an issue returned by GitHub after a change.
+	 */
+	void issueChanged(TaskRepository repository, GitHubIssue issue) {
+		storeIssues(repository.getRepositoryUrl(), Collections.singletonList(issue));
+	}
+
+	/**
+	 * Forget the stored state of an issue being changed, so that it is
+	 * requested again rather than served as it was before the change.
+	 */
+	void issueChanging(TaskRepository repository, String taskId) {
+		GitHubIssueStore store = getIssueStore();
+		if (store != null) {
+			store.remove(repository.getRepositoryUrl(), taskId);
+		}
+	}
+
+	/**
+	 * the stored issues of the repository, from which listings GitHub did not
+	 * modify are replayed, or null if there is no issue store
+	 */
+	private GitHubIssueSource getIssueSource(TaskRepository repository) {
+		final GitHubIssueStore store = getIssueStore();
+		if (store == null) {
+			return null;
+		}
+		final String repositoryUrl = repository.getRepositoryUrl();
+		return new GitHubIssueSource() {
+			public boolean hasIssue(String number) {
+				return store.getStoredAt(repositoryUrl, number) >= 0;
+			}
+
+			public GitHubIssue getIssue(String number) {
+				try {
+					return store.get(repositoryUrl, number);
+				} catch (IOException e) {
+					GitHub.logError("Cannot read issue store", e);
+					return null;
+				}
+			}
+		};
+	}
+
+	private GitHubIssue getStoredIssue(TaskRepository repository, String taskId, long maxAge) {
+		GitHubIssueStore store = getIssueStore();
+		if (store != null) {
+			long storedAt = store.getStoredAt(repository.getRepositoryUrl(), taskId);
+			if (storedAt >= 0 && System.currentTimeMillis() - storedAt <= maxAge) {
+				try {
+					return store.get(repository.getRepositoryUrl(), taskId);
+				} catch (IOException e) {
+					GitHub.logError("Cannot read issue store", e);
+				}
+			}
+		}
+		return null;
+	}
+
+	private long getMaxStoredAge(TaskRepository repository) {
+		String value = repository.getProperty(PROPERTY_STORE_MAX_AGE);
+		if (value != null) {
+			try {
+				return Long.parseLong(value.trim());
+			} catch (NumberFormatException e) {
+				// use the default
+			}
+		}
+		return DEFAULT_STORE_MAX_AGE;
+	}
+
+	/**
+	 * Writes streamed issues to the issue store in batches.
+	 */
+	private class IssueStoreWriter {
+		private final TaskRepository repository;
+		private final List<GitHubIssue> pending = new ArrayList<GitHubIssue>();
+
+		IssueStoreWriter(TaskRepository repository) {
+			this.repository = repository;
+		}
+
+		void add(GitHubIssue issue) {
+			pending.add(issue);
+			if (pending.size() >= CONVERSION_BATCH_SIZE) {
+				flush();
+			}
+		}
+
+		void flush() {
+			storeIssues(repository.getRepositoryUrl(), pending);
+			pending.clear();
+		}
+	}
+
+	private static void checkCanceled(IProgressMonitor monitor) {
+		if (monitor.isCanceled()) {
+			throw new OperationCanceledException();
+		}
+	}
+
+	/**
+	 * Serializes the delivery of task data created by concurrent query tasks.
+	 */
+	private static class SynchronizedTaskDataCollector extends TaskDataCollector {
+		private final TaskDataCollector delegate;
+
+		SynchronizedTaskDataCollector(TaskDataCollector delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public synchronized void accept(TaskData taskData) {
+			delegate.accept(taskData);
+		}
+	}
+
+
+	/**
+	 * Lists the issues of the repository once and marks only the tasks whose
+	 * issues were updated after the high-water mark of the previous
+	 * synchronization as stale. The listing is read as a stream into the
+	 * issue index, from which {@link #performQuery} answers in the same
+	 * session instead of requesting it again.
+	 */
+	@Override
+	public void preSynchronization(ISynchronizationSession session,
+			IProgressMonitor monitor) throws CoreException {
+		TaskRepository repository = session.getTaskRepository();
+		GitHubRepositoryId id = getRepositoryId(repository);
+		resumeOutgoing(repository, id);
+		if (!session.isFullSynchronization()) {
+			return;
+		}
+		String user = id.getUser();
+		String project = id.getProject();
+
+		monitor.beginTask("Checking for changed issues ...", STATES.length);
+		configure(repository);
+		try {
+			final GitHubSynchronizationState state = new GitHubSynchronizationState(
+					getSynchronizationMark(repository));
+			for (String status : STATES) {
+				final IssueStoreWriter storeWriter = new IssueStoreWriter(repository);
+				final IProgressMonitor listMonitor = monitor;
+				service.searchIssues(user, project, status, "", new GitHubIssueHandler() {
+					public void handleIssue(GitHubIssue issue) {
+						checkCanceled(listMonitor);
+						state.addIssue(issue);
+						storeWriter.add(issue);
+					}
+				}, getIssueSource(repository), monitor);
+				storeWriter.flush();
+				state.setListed(status);
+				setListingIndexed(repository, status);
+				monitor.worked(1);
+			}
+			session.setData(state);
+			synchronizations.put(repository.getRepositoryUrl(), state);
+
+			for (ITask task : session.getTasks()) {
+				if (state.hasChanged(task.getTaskId())) {
+					session.markStale(task);
+				}
+			}
+			if (!state.hasChanges()) {
+				session.setNeedsPerformQueries(false);
+			}
+		} catch (GitHubServiceException e) {
+			throw new CoreException(GitHub.createErrorStatus(e));
+		} finally {
+			monitor.done();
+		}
+	}
+
+	/**
+	 * Advances the high-water mark of the repository to the most recent
+	 * {@code updated_at} timestamp seen during the synchronization, unless a
+	 * query or task refresh of the synchronization failed. Tasks marked stale
+	 * are then marked again by the next synchronization.
+	 */
+	@Override
+	public void postSynchronization(ISynchronizationSession session,
+			IProgressMonitor monitor) throws CoreException {
+		GitHubSynchronizationState state = getSynchronizationState(session);
+		if (state != null) {
+			synchronizations.remove(session.getTaskRepository().getRepositoryUrl(), state);
+		}
+		IStatus status = session.getStatus();
+		if (state != null && session.isFullSynchronization()
+				&& !state.hasFailed() && (status == null || status.isOK())
+				&& state.getHighWaterMark() >= 0) {
+			session.getTaskRepository().setSynchronizationTimeStamp(
+					Long.toString(state.getHighWaterMark()));
+		}
+	}
+
+	private GitHubSynchronizationState getSynchronizationState(
+			ISynchronizationSession session) {
+		if (session != null
+				&& session.getData() instanceof GitHubSynchronizationState) {
+			return (GitHubSynchronizationState) session.getData();
+		}
+		return null;
+	}
+
+	private long getSynchronizationMark(TaskRepository repository) {
+		String timeStamp = repository.getSynchronizationTimeStamp();
+		if (timeStamp != null) {
+			try {
+				return Long.parseLong(timeStamp);
+			} catch (NumberFormatException e) {
+				// written by an earlier version, start over
+			}
+		}
+		return -1;
+	}
 
 	@Override
 	public TaskData getTaskData(TaskRepository repository, String taskId,
 			IProgressMonitor monitor) throws CoreException {
 
-		String user = GitHub.computeTaskRepositoryUser(repository.getUrl());
-		String project = GitHub.computeTaskRepositoryProject(repository.getUrl());
+		GitHubRepositoryId id = getRepositoryId(repository);
+		String user = id.getUser();
+		String project = id.getProject();
+		configure(repository);
 		
 		try {
-			GitHubIssue issue = service.showIssue(user, project, taskId);
+			// issues stored by a recent listing are current, no need to ask again
+			GitHubIssue issue = getStoredIssue(repository, taskId, getMaxStoredAge(repository));
+			if (issue != null) {
+				GitHubMetrics.getDefault().recordCacheHit(ISSUE_STORE_METRICS_NAME);
+			} else {
+				GitHubMetrics.getDefault().recordCacheMiss(ISSUE_STORE_METRICS_NAME);
+				try {
+					issue = service.showIssue(user, project, taskId, monitor);
+					storeIssues(repository.getRepositoryUrl(), Collections.singletonList(issue));
+				} catch (GitHubServiceException e) {
+					// offline: fall back to the last known state of the issue
+					issue = isNetworkFailure(e) ? getStoredIssue(repository, taskId, Long.MAX_VALUE) : null;
+					if (issue == null) {
+						throw e;
+					}
+				}
+			}
 			TaskData taskData = taskDataHandler.createTaskData(repository, monitor, user, project, issue);
 			
 			return taskData;
 		} catch (GitHubServiceException e) {
+			markSynchronizationFailed(repository, null);
 			throw new CoreException(GitHub.createErrorStatus(e));
+		} catch (OperationCanceledException e) {
+			markSynchronizationFailed(repository, null);
+			throw e;
 		}
 	}
 
 
+	/**
+	 * the id of the repository
+	 * 
+	 * @throws CoreException
+	 *             if the URL of the repository is no GitHub repository URL
+	 */
+	static GitHubRepositoryId getRepositoryId(TaskRepository repository) throws CoreException {
+		GitHubRepositoryId id = GitHubRepositoryId.get(repository);
+		if (id == null) {
+			throw new CoreException(GitHub.createErrorStatus("Not a GitHub repository: "
+					+ repository.getRepositoryUrl()));
+		}
+		return id;
+	}
+
 	@Override
 	public String getRepositoryUrlFromTaskUrl(String taskFullUrl) {
-		if (taskFullUrl != null) {
-			Matcher matcher = Pattern.compile("(http://.+?)/issues/issue/([^/]+)").matcher(taskFullUrl);
-			if (matcher.matches()) {
-				return matcher.group(1);
-			}
-		}
-		return null;
+		return GitHubRepositoryId.getRepositoryUrlFromTaskUrl(taskFullUrl);
 	}
 
 	@Override
 	public String getTaskIdFromTaskUrl(String taskFullUrl) {
-		if (taskFullUrl != null) {
-			Matcher matcher = Pattern.compile(".+?/issues/issue/([^/]+)").matcher(taskFullUrl);
-			if (matcher.matches()) {
-				return matcher.group(1);
-			}
-		}
-		return null;
+		return GitHubRepositoryId.getTaskIdFromTaskUrl(taskFullUrl);
 	}
 
 	@Override
@@ -205,6 +839,13 @@ public class GitHubRepositoryConnector extends AbstractRepositoryConnector {
 	@Override
 	public boolean hasTaskChanged(TaskRepository repository, ITask task,
 			TaskData taskData) {
+		// GitHub bumps updated_at with every change of an issue, comparing
+		// it is enough unless the task was last updated without it
+		String modified = getModificationDate(taskData);
+		String applied = task.getAttribute(TASK_MODIFICATION_DATE);
+		if (modified != null && applied != null) {
+			return !modified.equals(applied);
+		}
 		return new TaskMapper(taskData).hasChanges(task);
 	}
 
@@ -215,6 +856,20 @@ public class GitHubRepositoryConnector extends AbstractRepositoryConnector {
 			task.setUrl(getTaskUrl(taskRepository.getUrl(), taskData.getTaskId()));
 		}
 		new TaskMapper(taskData).applyTo(task);
+		task.setAttribute(TASK_MODIFICATION_DATE, getModificationDate(taskData));
+	}
+
+	/**
+	 * the modification date attribute of the task data as is, or null if it
+	 * has none
+	 */
+	private static String getModificationDate(TaskData taskData) {
+		TaskAttribute attribute = taskData.getRoot().getAttribute(
+				GitHubTaskAttributes.MODIFICATION_DATE.getId());
+		if (attribute == null || attribute.getValue().length() == 0) {
+			return null;
+		}
+		return attribute.getValue();
 	}
 
 	public GitHubService getService() {
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2009 Christian Trutz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.eclipse.mylyn.github.internal;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.eclipse.mylyn.tasks.core.TaskRepository;
+
+/**
+ * The coordinates of a GitHub repository, parsed from its URL once and then
+ * shared: there is a single instance per repository URL, so that the
+ * connector, which needs the user and project for every task of the task
+ * list, does not match the URL again and again.
+ */
+public final class GitHubRepositoryId {
+
+	private static final Pattern TASK_URL_PATTERN = Pattern.compile("(http://.+?)/issues/issue/([^/]+)");
+
+	private static final Pattern TASK_ID_PATTERN = Pattern.compile(".+?/issues/issue/([^/]+)");
+
+	private static final ConcurrentMap<String, GitHubRepositoryId> IDS = new ConcurrentHashMap<String, GitHubRepositoryId>();
+
+	private final String repositoryUrl;
+
+	private final String baseUrl;
+
+	private final String user;
+
+	private final String project;
+
+	private GitHubRepositoryId(String repositoryUrl, String baseUrl, String user, String project) {
+		this.repositoryUrl = repositoryUrl;
+		this.baseUrl = baseUrl;
+		this.user = user;
+		this.project = project;
+	}
+
+	/**
+	 * the id of the repository with the given URL, or null if it is no
+	 * GitHub repository URL
+	 */
+	public static GitHubRepositoryId get(String repositoryUrl) {
+		if (repositoryUrl == null) {
+			return null;
+		}
+		GitHubRepositoryId id = IDS.get(repositoryUrl);
+		if (id == null) {
+			Matcher matcher = GitHub.URL_PATTERN.matcher(repositoryUrl);
+			if (!matcher.matches()) {
+				return null;
+			}
+			GitHubRepositoryId created = new GitHubRepositoryId(repositoryUrl,
+					repositoryUrl.substring(0, matcher.start(1) - 1), matcher.group(1),
+					matcher.group(2));
+			id = IDS.putIfAbsent(repositoryUrl, created);
+			if (id == null) {
+				id = created;
+			}
+		}
+		return id;
+	}
+
+	/**
+	 * @see #get(String)
+	 */
+	public static GitHubRepositoryId get(TaskRepository repository) {
+		return get(repository.getRepositoryUrl());
+	}
+
+	/**
+	 * the URL of the repository of the task with the given URL, or null if
+	 * it is no task URL
+	 */
+	public static String getRepositoryUrlFromTaskUrl(String taskUrl) {
+		if (taskUrl != null) {
+			Matcher matcher = TASK_URL_PATTERN.matcher(taskUrl);
+			if (matcher.matches()) {
+				return matcher.group(1);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * the id of the task with the given URL, or null if it is no task URL
+	 */
+	public static String getTaskIdFromTaskUrl(String taskUrl) {
+		if (taskUrl != null) {
+			Matcher matcher = TASK_ID_PATTERN.matcher(taskUrl);
+			if (matcher.matches()) {
+				return matcher.group(1);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * the URL of the repository as configured
+	 */
+	public String getRepositoryUrl() {
+		return repositoryUrl;
+	}
+
+	/**
+	 * the server part of the URL, e.g. {@link GitHub#HTTP_GITHUB_COM}
+	 */
+	public String getBaseUrl() {
+		return baseUrl;
+	}
+
+	public String getUser() {
+		return user;
+	}
+
+	public String getProject() {
+		return project;
+	}
+
+	public String getTaskUrl(String taskId) {
+		return repositoryUrl + "/issues/issue/" + taskId;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof GitHubRepositoryId
+				&& repositoryUrl.equals(((GitHubRepositoryId) obj).repositoryUrl);
+	}
+
+	@Override
+	public int hashCode() {
+		return repositoryUrl.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return user + "/" + project;
+	}
+}
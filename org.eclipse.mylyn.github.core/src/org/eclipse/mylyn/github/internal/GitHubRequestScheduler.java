@@ -0,0 +1,263 @@
+/*
+ * Copyright 2009 Christian Trutz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.eclipse.mylyn.github.internal;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.httpclient.Header;
+import org.apache.commons.httpclient.HttpMethod;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+/**
+ * Tracks the GitHub API rate limit per credential and decides when requests
+ * may be sent.
+ * <p>
+ * Interactive requests are sent as long as any quota is left. Background
+ * requests leave a reserve of the quota to interactive ones and wait for the
+ * limit to be reset once the reserve is reached. A request that cannot be
+ * sent fails with a {@link RateLimitExceededException} naming the reset
+ * time, rather than looking like an authentication failure.
+ */
+public class GitHubRequestScheduler {
+
+	/**
+	 * How urgent a request is.
+	 */
+	public enum Priority {
+		/**
+		 * requested by the user, e.g. opening or submitting a task
+		 */
+		INTERACTIVE,
+		/**
+		 * background synchronization
+		 */
+		BACKGROUND
+	}
+
+	/**
+	 * the quota key of requests sent without credentials
+	 */
+	public static final String ANONYMOUS = "";
+
+	/**
+	 * the length of a rate limit window if the server does not tell when the
+	 * limit is reset
+	 */
+	public static final long DEFAULT_WINDOW = 60 * 1000L;
+
+	/**
+	 * the share of the quota kept for interactive requests
+	 */
+	public static final double DEFAULT_RESERVE = 0.2;
+
+	/**
+	 * background requests that would have to wait longer than this fail
+	 * instead
+	 */
+	public static final long DEFAULT_MAX_WAIT = 2 * 60 * 1000L;
+
+	private static final String HEADER_LIMIT = "X-RateLimit-Limit";
+	private static final String HEADER_REMAINING = "X-RateLimit-Remaining";
+	private static final String HEADER_RESET = "X-RateLimit-Reset";
+	private static final String HEADER_RETRY_AFTER = "Retry-After";
+
+	/**
+	 * how often a request waiting for the reset checks for cancellation
+	 */
+	private static final long CANCEL_POLL_MILLIS = 100;
+
+	private static GitHubRequestScheduler defaultScheduler;
+
+	private static class Quota {
+		int limit = -1;
+		/**
+		 * the last reported quota less the requests sent since
+		 */
+		int remaining = -1;
+		/**
+		 * the quota reported by the last response
+		 */
+		int reported = -1;
+		long resetTime = -1;
+	}
+
+	private final Map<String, Quota> quotas = new HashMap<String, Quota>();
+
+	private final double reserve;
+
+	private final long maxWait;
+
+	/**
+	 * the scheduler shared by all services
+	 */
+	public static synchronized GitHubRequestScheduler getDefault() {
+		if (defaultScheduler == null) {
+			defaultScheduler = new GitHubRequestScheduler(DEFAULT_RESERVE, DEFAULT_MAX_WAIT);
+		}
+		return defaultScheduler;
+	}
+
+	/**
+	 * @param reserve
+	 *            - The share of the quota (0..1) background requests leave to
+	 *            interactive ones
+	 * @param maxWait
+	 *            - The longest time in milliseconds a background request waits
+	 *            for the limit to be reset
+	 */
+	public GitHubRequestScheduler(double reserve, long maxWait) {
+		this.reserve = reserve;
+		this.maxWait = maxWait;
+	}
+
+	/**
+	 * Wait until a request with the given priority may be sent.
+	 *
+	 * @param key
+	 *            - The user name of the credentials, or {@link #ANONYMOUS}
+	 * @param monitor
+	 *            - Cancels waiting for the reset, may be null
+	 * @throws RateLimitExceededException
+	 *             if the quota is used up and the request would have to wait
+	 *             too long, or at all in case of an interactive request
+	 * @throws OperationCanceledException
+	 *             if the monitor was cancelled, the call aborted through its
+	 *             {@link GitHubAbortHandle} or the thread interrupted while
+	 *             waiting
+	 */
+	public void acquire(String key, Priority priority, IProgressMonitor monitor)
+			throws RateLimitExceededException {
+		while (true) {
+			long waitUntil;
+			synchronized (this) {
+				Quota quota = quotas.get(key);
+				if (quota == null || quota.remaining < 0) {
+					return;
+				}
+				long now = System.currentTimeMillis();
+				if (quota.resetTime > 0 && now >= quota.resetTime) {
+					quotas.remove(key);
+					return;
+				}
+				int threshold = priority == Priority.INTERACTIVE ? 0
+						: (int) Math.ceil(Math.max(quota.limit, 0) * reserve);
+				if (quota.remaining > threshold) {
+					// reserve the request until the response reports the quota
+					--quota.remaining;
+					return;
+				}
+				waitUntil = quota.resetTime > 0 ? quota.resetTime : now + DEFAULT_WINDOW;
+				if (priority == Priority.INTERACTIVE ? quota.remaining <= 0
+						: waitUntil - now > maxWait) {
+					throw new RateLimitExceededException(waitUntil);
+				}
+			}
+			if ((monitor != null && monitor.isCanceled())
+					|| GitHubAbortHandle.isCurrentAborted()) {
+				throw new OperationCanceledException();
+			}
+			try {
+				Thread.sleep(Math.max(1, Math.min(CANCEL_POLL_MILLIS,
+						waitUntil - System.currentTimeMillis())));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new OperationCanceledException();
+			}
+		}
+	}
+
+	/**
+	 * Record the quota reported by the response to a request.
+	 */
+	public synchronized void update(String key, HttpMethod method) {
+		int limit = (int) getLongHeader(method, HEADER_LIMIT);
+		int remaining = (int) getLongHeader(method, HEADER_REMAINING);
+		long reset = getLongHeader(method, HEADER_RESET);
+		long retryAfter = getLongHeader(method, HEADER_RETRY_AFTER);
+		if (limit < 0 && remaining < 0 && retryAfter < 0) {
+			return;
+		}
+		Quota quota = quotas.get(key);
+		if (quota == null) {
+			quota = new Quota();
+			quotas.put(key, quota);
+		}
+		long now = System.currentTimeMillis();
+		if (limit >= 0) {
+			quota.limit = limit;
+		}
+		if (remaining >= 0) {
+			// compare with what the server reported before, the local count
+			// is lower by the requests still in flight
+			boolean newWindow = quota.reported < 0 || remaining > quota.reported;
+			if (reset <= 0 && (newWindow || quota.resetTime < 0)) {
+				quota.resetTime = now + DEFAULT_WINDOW;
+			}
+			quota.remaining = newWindow || quota.remaining < 0 ? remaining : Math.min(
+					remaining, quota.remaining);
+			quota.reported = remaining;
+		}
+		if (reset > 0) {
+			quota.resetTime = reset * 1000L;
+		}
+		if (retryAfter >= 0) {
+			quota.remaining = 0;
+			quota.reported = 0;
+			quota.resetTime = now + retryAfter * 1000L;
+		}
+	}
+
+	/**
+	 * @return true if the response reports that the quota of the
+	 *         credentials is used up
+	 */
+	public boolean isRateLimited(HttpMethod method) {
+		return getLongHeader(method, HEADER_REMAINING) == 0
+				|| method.getResponseHeader(HEADER_RETRY_AFTER) != null;
+	}
+
+	/**
+	 * the time in milliseconds since the epoch when the quota of the
+	 * credentials is reset, or -1 if unknown
+	 */
+	public synchronized long getResetTime(String key) {
+		Quota quota = quotas.get(key);
+		return quota == null ? -1 : quota.resetTime;
+	}
+
+	/**
+	 * the remaining quota of the credentials, or -1 if unknown
+	 */
+	public synchronized int getRemaining(String key) {
+		Quota quota = quotas.get(key);
+		return quota == null ? -1 : quota.remaining;
+	}
+
+	private static long getLongHeader(HttpMethod method, String name) {
+		Header header = method.getResponseHeader(name);
+		if (header != null) {
+			try {
+				return Long.parseLong(header.getValue().trim());
+			} catch (NumberFormatException e) {
+				// ignore malformed values
+			}
+		}
+		return -1;
+	}
+}
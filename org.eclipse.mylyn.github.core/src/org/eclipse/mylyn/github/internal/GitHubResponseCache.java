@@ -0,0 +1,148 @@
+/*
+ * Copyright 2009 Christian Trutz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.eclipse.mylyn.github.internal;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of parsed GET responses keyed by request URL, together with the HTTP
+ * validators ({@code ETag}, {@code Last-Modified}) needed to revalidate them
+ * with a conditional request.
+ * <p>
+ * Cached values are handed out to every caller that receives a
+ * {@code 304 Not Modified} and must be treated as read-only.
+ */
+public class GitHubResponseCache {
+
+	public static final int DEFAULT_MAX_ENTRIES = 256;
+
+	/**
+	 * the name of the hit ratio in the {@link GitHubMetrics}
+	 */
+	public static final String METRICS_NAME = "responses";
+
+	/**
+	 * A cached response.
+	 */
+	public static class CachedResponse {
+		private final String etag;
+		private final String lastModified;
+		private final Object value;
+
+		CachedResponse(String etag, String lastModified, Object value) {
+			this.etag = etag;
+			this.lastModified = lastModified;
+			this.value = value;
+		}
+
+		/**
+		 * the entity tag sent by the server, or null
+		 */
+		public String getEtag() {
+			return etag;
+		}
+
+		/**
+		 * the Last-Modified date sent by the server, or null
+		 */
+		public String getLastModified() {
+			return lastModified;
+		}
+
+		public Object getValue() {
+			return value;
+		}
+	}
+
+	private final Map<String, CachedResponse> entries;
+
+	private long hits;
+
+	private long misses;
+
+	public GitHubResponseCache() {
+		this(DEFAULT_MAX_ENTRIES);
+	}
+
+	/**
+	 * @param maxEntries
+	 *            - The number of responses kept, the least recently used
+	 *            response is evicted first
+	 */
+	public GitHubResponseCache(final int maxEntries) {
+		entries = new LinkedHashMap<String, CachedResponse>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * the entry cached for the given URL, or null
+	 */
+	public synchronized CachedResponse get(String url) {
+		return entries.get(url);
+	}
+
+	/**
+	 * Cache a response. Responses without any validator cannot be revalidated
+	 * and are not cached.
+	 */
+	public synchronized void put(String url, String etag, String lastModified, Object value) {
+		if (etag == null && lastModified == null) {
+			entries.remove(url);
+		} else {
+			entries.put(url, new CachedResponse(etag, lastModified, value));
+		}
+	}
+
+	public synchronized void remove(String url) {
+		entries.remove(url);
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	synchronized void recordHit() {
+		++hits;
+		GitHubMetrics.getDefault().recordCacheHit(METRICS_NAME);
+	}
+
+	synchronized void recordMiss() {
+		++misses;
+		GitHubMetrics.getDefault().recordCacheMiss(METRICS_NAME);
+	}
+
+	/**
+	 * the number of requests answered with {@code 304 Not Modified}
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * the number of requests that had to download a response body
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2009 Christian Trutz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.eclipse.mylyn.github.internal;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.httpclient.HttpStatus;
+
+/**
+ * Decides whether and when an idempotent request that failed transiently is
+ * sent again.
+ * <p>
+ * Server errors (500, 502, 503, 504) and I/O failures are retried with capped
+ * exponential backoff and full jitter: the n-th retry waits a random time
+ * between zero and {@code min(maxDelay, baseDelay * 2^(n-1))}. A Retry-After
+ * header of the response is honored instead, unless it asks for more than
+ * the maximum delay. Retries are counted per endpoint.
+ */
+public class GitHubRetryPolicy {
+
+	public static final int DEFAULT_MAX_ATTEMPTS = 4;
+
+	public static final long DEFAULT_BASE_DELAY = 500;
+
+	public static final long DEFAULT_MAX_DELAY = 30 * 1000L;
+
+	/**
+	 * a policy that never retries
+	 */
+	public static final GitHubRetryPolicy NONE = new GitHubRetryPolicy(1, 0, 0);
+
+	private final int maxAttempts;
+
+	private final long baseDelay;
+
+	private final long maxDelay;
+
+	private final Random random = new Random();
+
+	private final ConcurrentMap<String, AtomicLong> retries = new ConcurrentHashMap<String, AtomicLong>();
+
+	public GitHubRetryPolicy() {
+		this(DEFAULT_MAX_ATTEMPTS, DEFAULT_BASE_DELAY, DEFAULT_MAX_DELAY);
+	}
+
+	/**
+	 * @param maxAttempts
+	 *            - The number of times a request is sent at most, including
+	 *            the first time
+	 * @param baseDelay
+	 *            - The longest delay in milliseconds before the first retry
+	 * @param maxDelay
+	 *            - The longest delay in milliseconds before any retry
+	 */
+	public GitHubRetryPolicy(int maxAttempts, long baseDelay, long maxDelay) {
+		this.maxAttempts = maxAttempts;
+		this.baseDelay = baseDelay;
+		this.maxDelay = maxDelay;
+	}
+
+	/**
+	 * @return true if the failure is transient and the request may succeed
+	 *         when sent again
+	 */
+	public boolean isRetryable(GitHubServiceException e) {
+		if (e instanceof RateLimitExceededException || e instanceof PermissionDeniedException) {
+			return false;
+		}
+		switch (e.getHttpStatusCode()) {
+		case HttpStatus.SC_INTERNAL_SERVER_ERROR:
+		case HttpStatus.SC_BAD_GATEWAY:
+		case HttpStatus.SC_SERVICE_UNAVAILABLE:
+		case HttpStatus.SC_GATEWAY_TIMEOUT:
+			return true;
+		case Integer.MIN_VALUE:
+			return e.getCause() instanceof IOException;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * The time to wait before the request is sent again.
+	 * 
+	 * @param attempt
+	 *            - The number of times the request was sent so far
+	 * @param e
+	 *            - The failure of the last attempt
+	 * @param retryAfter
+	 *            - The delay in milliseconds the server asked for, or -1
+	 * @return the delay in milliseconds, or -1 if the request must not be
+	 *         sent again
+	 */
+	public long getDelay(int attempt, GitHubServiceException e, long retryAfter) {
+		if (attempt >= maxAttempts || !isRetryable(e)) {
+			return -1;
+		}
+		if (retryAfter >= 0) {
+			return retryAfter <= maxDelay ? retryAfter : -1;
+		}
+		long ceiling = Math.min(maxDelay, baseDelay << Math.min(attempt - 1, 30));
+		synchronized (random) {
+			return (long) (random.nextDouble() * ceiling);
+		}
+	}
+
+	/**
+	 * Count a retry of a request to the endpoint.
+	 */
+	public void recordRetry(String endpoint) {
+		AtomicLong count = retries.get(endpoint);
+		if (count == null) {
+			AtomicLong newCount = new AtomicLong();
+			count = retries.putIfAbsent(endpoint, newCount);
+			if (count == null) {
+				count = newCount;
+			}
+		}
+		count.incrementAndGet();
+	}
+
+	/**
+	 * the number of retries per endpoint, e.g. {@code issues/show/}
+	 */
+	public Map<String, Long> getRetryCounts() {
+		Map<String, Long> counts = new HashMap<String, Long>();
+		for (Map.Entry<String, AtomicLong> entry : retries.entrySet()) {
+			counts.put(entry.getKey(), entry.getValue().get());
+		}
+		return counts;
+	}
+
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+}
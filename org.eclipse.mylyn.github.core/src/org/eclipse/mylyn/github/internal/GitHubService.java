@@ -16,19 +16,48 @@
  */
 package org.eclipse.mylyn.github.internal;
 
+import java.io.FilterReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
 
+import org.apache.commons.httpclient.Header;
 import org.apache.commons.httpclient.HttpClient;
 import org.apache.commons.httpclient.HttpException;
 import org.apache.commons.httpclient.HttpMethod;
+import org.apache.commons.httpclient.HttpMethodBase;
 import org.apache.commons.httpclient.HttpStatus;
 import org.apache.commons.httpclient.NameValuePair;
+import org.apache.commons.httpclient.methods.EntityEnclosingMethod;
 import org.apache.commons.httpclient.methods.GetMethod;
 import org.apache.commons.httpclient.methods.PostMethod;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.mylyn.github.internal.GitHubRequestScheduler.Priority;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
 
 /**
  * Facility to perform API operations on a GitHub issue tracker.
@@ -40,15 +69,49 @@ public class GitHubService {
 	/**
 	 * GitHub Issues API Documentation: http://develop.github.com/p/issues.html
 	 */
-	private final String gitURLBase = "https://github.com/api/v2/json/";
+	public static final String DEFAULT_API_URL = "https://github.com/api/v2/json/";
+
+	/**
+	 * the URL of the API the request paths are appended to, ending with a
+	 * slash
+	 */
+	private final String gitURLBase;
 
 	private final String gitIssueRoot = "issues/";
 	private final String gitUserRoot = "user/";
 
+	/**
+	 * the client to use, or null for the one of the current default
+	 * {@link GitHubConnectionPool}
+	 */
 	private final HttpClient httpClient;
 
 	private final Gson gson;
 
+	private final GitHubResponseCache responseCache = new GitHubResponseCache();
+
+	private final GitHubRequestScheduler scheduler = GitHubRequestScheduler.getDefault();
+
+	private final GitHubMetrics metrics = GitHubMetrics.getDefault();
+
+	private final AtomicLong compressedBytes = new AtomicLong();
+
+	private final AtomicLong uncompressedBytes = new AtomicLong();
+
+	/**
+	 * in-flight show requests by user/repo/number
+	 */
+	private final ConcurrentMap<String, FutureTask<GitHubIssue>> inFlightIssues = new ConcurrentHashMap<String, FutureTask<GitHubIssue>>();
+
+	private final AtomicLong coalescedRequests = new AtomicLong();
+
+	private volatile GitHubRetryPolicy retryPolicy = new GitHubRetryPolicy();
+
+	/**
+	 * how often a retry waiting for its delay checks the monitor
+	 */
+	private static final long CANCEL_POLL_MILLIS = 100;
+
 	/**
 	 * Helper class, describing all of the possible GitHub API actions.
 	 */
@@ -69,13 +132,45 @@ public class GitHubService {
 
 
 	/**
-	 * Constructor, create the client and JSON/Java interface object.
+	 * Constructor, create the JSON/Java interface object and use the client
+	 * of the shared {@link GitHubConnectionPool}. The pool is looked up per
+	 * request, so this service survives a {@link GitHubConnectionPool#shutdown()}.
 	 */
 	public GitHubService() {
-		httpClient = new HttpClient();
+		this(null, DEFAULT_API_URL);
+	}
+
+	/**
+	 * Constructor, create the JSON/Java interface object.
+	 * 
+	 * @param httpClient
+	 *            - The client used to execute requests, must be safe for
+	 *            concurrent use if this service is shared between threads
+	 */
+	public GitHubService(HttpClient httpClient) {
+		this(httpClient, DEFAULT_API_URL);
+	}
+
+	/**
+	 * Constructor, create the JSON/Java interface object for another server
+	 * implementing the GitHub API, e.g. a local stub in tests.
+	 * 
+	 * @param apiUrl
+	 *            - The URL of the API, e.g. {@link #DEFAULT_API_URL}
+	 */
+	public GitHubService(HttpClient httpClient, String apiUrl) {
+		this.httpClient = httpClient;
+		this.gitURLBase = apiUrl.endsWith("/") ? apiUrl : apiUrl + "/";
 		gson = new Gson();
 	}
 
+	/**
+	 * the URL of the API the requests are sent to
+	 */
+	public String getApiUrl() {
+		return gitURLBase;
+	}
+
 	/**
 	 * Verify that the provided credentials are correct
 	 * @param credentials
@@ -95,7 +190,9 @@ public class GitHubService {
 			final NameValuePair token = new NameValuePair("token", credentials.getApiToken());
 			method.setRequestBody(new NameValuePair[] { login, token });
 
-			executeMethod(method);
+			// only reads the emails, safe to retry
+			executeMethod(method, credentials.getUsername(), Priority.INTERACTIVE,
+					gitUserRoot + EMAILS, null);
 			
 			// if we reach here we know that credentials were good
 			success = true;
@@ -137,22 +234,28 @@ public class GitHubService {
 	public GitHubIssues searchIssues(final String user, final String repo,
 			final String state, final String searchTerm)
 			throws GitHubServiceException {
+		return searchIssues(user, repo, state, searchTerm, (IProgressMonitor) null);
+	}
+
+	/**
+	 * Search the GitHub Issues API for a given search term
+	 * 
+	 * @param monitor
+	 *            - Cancels waiting for a retry, may be null
+	 * 
+	 * @see #searchIssues(String, String, String, String)
+	 */
+	public GitHubIssues searchIssues(final String user, final String repo,
+			final String state, final String searchTerm, final IProgressMonitor monitor)
+			throws GitHubServiceException {
 		GitHubIssues issues = null;
 		GetMethod method = null;
 		try {
 			// build HTTP GET method
-			if (searchTerm.trim().length() == 0) { // no search term: list all
-				method = new GetMethod(gitURLBase + gitIssueRoot + LIST + user
-						+ "/" + repo + "/" + state);
-			} else {
-				method = new GetMethod(gitURLBase + gitIssueRoot + SEARCH
-						+ user + "/" + repo + "/" + state + "/" + searchTerm);
-			}
-			// execute HTTP GET method
-			executeMethod(method);
-			// transform JSON to Java object
-			issues = gson.fromJson(new String(method.getResponseBody()),
-					GitHubIssues.class);
+			method = createSearchMethod(user, repo, state, searchTerm);
+			// execute HTTP GET method, transform JSON to Java object
+			issues = executeGet(method, GitHubIssues.class, Priority.BACKGROUND,
+					getSearchEndpoint(searchTerm), monitor);
 		} catch (GitHubServiceException e) {
 			throw e;
 		} catch (final RuntimeException runtimeException) {
@@ -167,56 +270,137 @@ public class GitHubService {
 	}
 
 	/**
-	 * Add a label to an existing GitHub issue.
+	 * Search the GitHub Issues API for a given search term and hand each
+	 * issue to the handler while the response is being read. Unlike
+	 * {@link #searchIssues(String, String, String, String)} the result is
+	 * never held in memory as a whole.
 	 * 
 	 * @param user
 	 *            - The user the repository is owned by
 	 * @param repo
-	 *            - The git repository where the issue tracker is hosted
-	 * @param label
-	 *            - The text label to add to the existing issue
-	 * @param issueNumber
-	 *            - The issue number to add a label to
-	 * @param api
-	 *            - The users GitHub
+	 *            - The Git repository where the issue tracker is hosted
+	 * @param state
+	 *            - The issue state you want to filter your search by
+	 * @param searchTerm
+	 *            - The text search term to find in the issues.
+	 * @param handler
+	 *            - Receives the issues in the order of the search results
 	 * 
-	 * @return A boolean representing the success of the function call
+	 * @return the number of issues found
 	 * 
 	 * @throws GitHubServiceException
+	 */
+	public int searchIssues(final String user, final String repo,
+			final String state, final String searchTerm,
+			final GitHubIssueHandler handler) throws GitHubServiceException {
+		return searchIssues(user, repo, state, searchTerm, handler, null);
+	}
+
+	/**
+	 * Search the GitHub Issues API for a given search term and hand each
+	 * issue to the handler while the response is being read.
 	 * 
-	 * @note API Doc: issues/label/add/:user/:repo/:label/:number API POST
-	 *       Variables: login, api-token
+	 * @param monitor
+	 *            - Cancels waiting for a retry, may be null
+	 * 
+	 * @see #searchIssues(String, String, String, String, GitHubIssueHandler)
 	 */
-	public boolean addLabel(final String user, final String repo,
-			final String label, final int issueNumber,final GitHubCredentials credentials)
+	public int searchIssues(final String user, final String repo,
+			final String state, final String searchTerm,
+			final GitHubIssueHandler handler, final IProgressMonitor monitor)
 			throws GitHubServiceException {
-		PostMethod method = null;
-
-		boolean success = false;
+		return searchIssues(user, repo, state, searchTerm, handler, null, monitor);
+	}
 
+	/**
+	 * Search the GitHub Issues API for a given search term and hand each
+	 * issue to the handler while the response is being read. The numbers of
+	 * the issues are cached with the validators of the response, so that the
+	 * search is made conditional next time and replayed from the source if
+	 * GitHub answers {@code 304 Not Modified}.
+	 * 
+	 * @param source
+	 *            - The issues received before, or null to request the
+	 *            search unconditionally
+	 * @param monitor
+	 *            - Cancels waiting for a retry, may be null
+	 * 
+	 * @see #searchIssues(String, String, String, String, GitHubIssueHandler)
+	 */
+	public int searchIssues(final String user, final String repo,
+			final String state, final String searchTerm,
+			final GitHubIssueHandler handler, final GitHubIssueSource source,
+			final IProgressMonitor monitor) throws GitHubServiceException {
+		GetMethod method = null;
+		String url = null;
+		boolean completed = false;
 		try {
 			// build HTTP GET method
-			method = new PostMethod(gitURLBase + gitIssueRoot + ADD_LABEL
-					+ user + "/" + repo + "/" + label + "/"
-					+ Integer.toString(issueNumber));
-
-			// Set the users login and API token
-			final NameValuePair login = new NameValuePair("login", credentials.getUsername());
-			final NameValuePair token = new NameValuePair("token", credentials.getApiToken());
-			method.setRequestBody(new NameValuePair[] { login, token });
+			method = createSearchMethod(user, repo, state, searchTerm);
+			url = method.getURI().toString();
+			GitHubResponseCache.CachedResponse cached = responseCache.get(url);
+			if (cached != null && cached.getValue() instanceof IssueNumbers) {
+				// replayed from the source, if it still has every issue
+				cached = source != null && ((IssueNumbers) cached.getValue()).isAvailable(source)
+						? prepareConditionalGet(method, url, IssueNumbers.class) : null;
+			} else {
+				cached = prepareConditionalGet(method, url, GitHubIssues.class);
+			}
 
 			// execute HTTP GET method
-			executeMethod(method);
-			// Check the response, make sure the action was successful
-			final String response = method.getResponseBodyAsString();
-			if (response.contains(label.subSequence(0, label.length()))) {
-				success = true;
+			int status = executeMethod(method, GitHubRequestScheduler.ANONYMOUS,
+					Priority.BACKGROUND, getSearchEndpoint(searchTerm), monitor);
+			if (status == HttpStatus.SC_NOT_MODIFIED && cached != null) {
+				responseCache.recordHit();
+				int count;
+				if (cached.getValue() instanceof IssueNumbers) {
+					IssueNumbers listed = (IssueNumbers) cached.getValue();
+					count = listed.replay(source, handler);
+					if (count < listed.size()) {
+						// issues removed from the source meanwhile
+						responseCache.remove(url);
+					}
+				} else {
+					count = replay(((GitHubIssues) cached.getValue()).getIssues(), handler);
+				}
+				completed = true;
+				return count;
 			}
+			responseCache.recordMiss();
 
-			if (LOG.isDebugEnabled()) {
-				LOG.debug("Response: " + method.getResponseBodyAsString());
-				LOG.debug("URL: " + method.getURI());
+			// transform JSON to Java objects one issue at a time, keeping
+			// only the numbers of the issues to replay them
+			final List<String> numbers = source == null ? null : new ArrayList<String>();
+			GitHubIssueHandler recorder = numbers == null ? handler : new GitHubIssueHandler() {
+				public void handleIssue(GitHubIssue issue) {
+					numbers.add(issue.getNumber());
+					handler.handleIssue(issue);
+				}
+			};
+			int count;
+			Reader reader = getResponseReader(method);
+			try {
+				long start = System.nanoTime();
+				try {
+					count = new GitHubIssueStreamParser(gson).parse(reader, recorder);
+				} catch (JsonParseException e) {
+					throw new GitHubServiceException("Malformed response", e);
+				} finally {
+					// includes the time the handler takes
+					metrics.getTimer(GitHubMetrics.PARSE + "stream").recordSince(start);
+				}
+			} finally {
+				reader.close();
 			}
+			if (numbers != null) {
+				responseCache.put(url, getHeaderValue(method, "ETag"), getHeaderValue(method,
+						"Last-Modified"), new IssueNumbers(numbers));
+			} else {
+				// the streamed result is not kept, so the cached one is outdated
+				responseCache.remove(url);
+			}
+			completed = true;
+			return count;
 		} catch (GitHubServiceException e) {
 			throw e;
 		} catch (final RuntimeException runtimeException) {
@@ -224,10 +408,190 @@ public class GitHubService {
 		} catch (final Exception exception) {
 			throw new GitHubServiceException(exception);
 		} finally {
+			if (!completed && url != null) {
+				// the handler may have missed issues, list them again next time
+				responseCache.remove(url);
+			}
 			if (method != null)
 				method.releaseConnection();
 		}
-		return success;
+	}
+
+	private static int replay(GitHubIssue[] issues, GitHubIssueHandler handler) {
+		if (issues == null) {
+			return 0;
+		}
+		for (GitHubIssue issue : issues) {
+			handler.handleIssue(issue);
+		}
+		return issues.length;
+	}
+
+	/**
+	 * The numbers of the issues of a streamed listing, cached instead of the
+	 * issues themselves.
+	 */
+	private static class IssueNumbers {
+		private final String[] numbers;
+
+		IssueNumbers(List<String> numbers) {
+			this.numbers = numbers.toArray(new String[numbers.size()]);
+		}
+
+		int size() {
+			return numbers.length;
+		}
+
+		boolean isAvailable(GitHubIssueSource source) {
+			for (String number : numbers) {
+				if (!source.hasIssue(number)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		int replay(GitHubIssueSource source, GitHubIssueHandler handler) {
+			int count = 0;
+			for (String number : numbers) {
+				GitHubIssue issue = source.getIssue(number);
+				if (issue != null) {
+					handler.handleIssue(issue);
+					++count;
+				}
+			}
+			return count;
+		}
+	}
+
+	/**
+	 * List one page of the issues of a repository. Pages are not cached, so
+	 * that listing a large repository page by page needs memory for a page
+	 * only.
+	 * 
+	 * @param user
+	 *            - The user the repository is owned by
+	 * @param repo
+	 *            - The Git repository where the issue tracker is hosted
+	 * @param state
+	 *            - The state of the issues to list
+	 * @param page
+	 *            - The number of the page, starting at 1
+	 * @param monitor
+	 *            - Cancels waiting for a retry, may be null
+	 * 
+	 * @return the issues of the page, empty after the last page
+	 * 
+	 * @throws GitHubServiceException
+	 * 
+	 * @note API Doc: /issues/list/:user/:repo/:state?page=:page
+	 */
+	public GitHubIssue[] listIssues(final String user, final String repo,
+			final String state, final int page, final IProgressMonitor monitor)
+			throws GitHubServiceException {
+		return listIssuePage(user, repo, state, page, monitor).issues;
+	}
+
+	/**
+	 * List one page of the issues of a repository, noting whether the
+	 * response links to a next page.
+	 * 
+	 * @see #listIssues(String, String, String, int, IProgressMonitor)
+	 */
+	GitHubIssuePageIterator.Page listIssuePage(final String user, final String repo,
+			final String state, final int page, final IProgressMonitor monitor)
+			throws GitHubServiceException {
+		GetMethod method = null;
+		try {
+			method = new GetMethod(gitURLBase + gitIssueRoot + LIST + user
+					+ "/" + repo + "/" + state);
+			method.setQueryString(new NameValuePair[] { new NameValuePair(
+					"page", Integer.toString(page)) });
+			executeMethod(method, GitHubRequestScheduler.ANONYMOUS,
+					Priority.BACKGROUND, gitIssueRoot + LIST, monitor);
+			GitHubIssues issues;
+			Reader reader = getResponseReader(method);
+			try {
+				issues = parse(reader, GitHubIssues.class);
+			} finally {
+				reader.close();
+			}
+			boolean hasNext = hasNextPage(method);
+			if (issues == null || issues.getIssues() == null) {
+				return new GitHubIssuePageIterator.Page(new GitHubIssue[0], hasNext);
+			}
+			return new GitHubIssuePageIterator.Page(issues.getIssues(), hasNext);
+		} catch (GitHubServiceException e) {
+			throw e;
+		} catch (final RuntimeException runtimeException) {
+			throw runtimeException;
+		} catch (final Exception exception) {
+			throw new GitHubServiceException(exception);
+		} finally {
+			if (method != null)
+				method.releaseConnection();
+		}
+	}
+
+	/**
+	 * Walk the issues of a repository page by page. A next page announced by
+	 * the server is fetched in the background while the current one is
+	 * processed.
+	 * 
+	 * @param monitor
+	 *            - Stops fetching further pages when cancelled, may be null
+	 * 
+	 * @see #listIssues(String, String, String, int, IProgressMonitor)
+	 */
+	public GitHubIssuePageIterator listIssuePages(final String user,
+			final String repo, final String state, final IProgressMonitor monitor) {
+		return new GitHubIssuePageIterator(this, user, repo, state, monitor);
+	}
+
+	private GetMethod createSearchMethod(final String user, final String repo,
+			final String state, final String searchTerm) {
+		if (searchTerm == null || searchTerm.trim().length() == 0) { // no search term: list all
+			return new GetMethod(gitURLBase + gitIssueRoot + LIST + user
+					+ "/" + repo + "/" + state);
+		}
+		return new GetMethod(gitURLBase + gitIssueRoot + SEARCH
+				+ user + "/" + repo + "/" + state + "/" + searchTerm);
+	}
+
+	private String getSearchEndpoint(final String searchTerm) {
+		if (searchTerm == null || searchTerm.trim().length() == 0) {
+			return gitIssueRoot + LIST;
+		}
+		return gitIssueRoot + SEARCH;
+	}
+
+	/**
+	 * Add a label to an existing GitHub issue.
+	 * 
+	 * @param user
+	 *            - The user the repository is owned by
+	 * @param repo
+	 *            - The git repository where the issue tracker is hosted
+	 * @param label
+	 *            - The text label to add to the existing issue
+	 * @param issueNumber
+	 *            - The issue number to add a label to
+	 * @param api
+	 *            - The users GitHub
+	 * 
+	 * @return A boolean representing the success of the function call
+	 * 
+	 * @throws GitHubServiceException
+	 * 
+	 * @note API Doc: issues/label/add/:user/:repo/:label/:number API POST
+	 *       Variables: login, api-token
+	 */
+	public boolean addLabel(final String user, final String repo,
+			final String label, final int issueNumber,final GitHubCredentials credentials)
+			throws GitHubServiceException {
+		return changeLabel(user, repo, new GitHubLabelChange(issueNumber,
+				label, GitHubLabelChange.Kind.ADD), createCredentialParameters(credentials),
+				credentials.getUsername());
 	}
 
 	/**
@@ -251,30 +615,115 @@ public class GitHubService {
 	public boolean removeLabel(final String user, final String repo,
 			final String label, final int issueNumber, final GitHubCredentials credentials)
 			throws GitHubServiceException {
-		PostMethod method = null;
-		boolean success = false;
+		return changeLabel(user, repo, new GitHubLabelChange(issueNumber,
+				label, GitHubLabelChange.Kind.REMOVE), createCredentialParameters(credentials),
+				credentials.getUsername());
+	}
+
+	/**
+	 * Add and remove labels of many issues at once.
+	 * <p>
+	 * The changes are sent concurrently on the bounded
+	 * {@link GitHubQueryExecutor} over the pooled connections of this service,
+	 * while the changes of one issue are sent in the given order. A failed
+	 * change does not stop the others.
+	 * 
+	 * @param user
+	 *            - The user the repository is owned by
+	 * @param repo
+	 *            - The git repository where the issue tracker is hosted
+	 * @param changes
+	 *            - The label changes to send
+	 * @param monitor
+	 *            - Reports one unit of work per issue and cancels the
+	 *            remaining changes; started by this method, so callers in
+	 *            the middle of a task pass a
+	 *            {@link org.eclipse.core.runtime.SubProgressMonitor}; may be
+	 *            null
+	 * 
+	 * @return one result per change, in the order of the changes
+	 * 
+	 * @throws OperationCanceledException
+	 *             if the monitor was cancelled
+	 */
+	public List<GitHubLabelResult> changeLabels(final String user, final String repo,
+			final List<GitHubLabelChange> changes, final GitHubCredentials credentials,
+			IProgressMonitor monitor) throws GitHubServiceException {
+		monitor = monitor != null ? monitor : new NullProgressMonitor();
+		final NameValuePair[] parameters = createCredentialParameters(credentials);
+		final String quotaKey = credentials.getUsername();
+
+		// indices of the changes by issue, the same change may be listed twice
+		Map<Integer, List<Integer>> changesByIssue = new LinkedHashMap<Integer, List<Integer>>();
+		for (int i = 0; i < changes.size(); ++i) {
+			Integer issueNumber = Integer.valueOf(changes.get(i).getIssueNumber());
+			List<Integer> issueChanges = changesByIssue.get(issueNumber);
+			if (issueChanges == null) {
+				issueChanges = new ArrayList<Integer>();
+				changesByIssue.put(issueNumber, issueChanges);
+			}
+			issueChanges.add(Integer.valueOf(i));
+		}
+
+		// each index is written by one task, read after all tasks finished
+		final GitHubLabelResult[] results = new GitHubLabelResult[changes.size()];
+		List<Callable<Object>> tasks = new ArrayList<Callable<Object>>(changesByIssue.size());
+		for (final List<Integer> issueChanges : changesByIssue.values()) {
+			tasks.add(new Callable<Object>() {
+				public Object call() {
+					for (Integer index : issueChanges) {
+						GitHubLabelChange change = changes.get(index.intValue());
+						try {
+							results[index.intValue()] = new GitHubLabelResult(change,
+									changeLabel(user, repo, change, parameters, quotaKey), null);
+						} catch (GitHubServiceException e) {
+							results[index.intValue()] = new GitHubLabelResult(change, false, e);
+						}
+					}
+					return null;
+				}
+			});
+		}
+
+		monitor.beginTask("Changing labels", tasks.size());
 		try {
-			// build HTTP GET method
-			method = new PostMethod(gitURLBase + gitIssueRoot + REMOVE_LABEL
-					+ user + "/" + repo + "/" + label + "/"
-					+ Integer.toString(issueNumber));
+			GitHubQueryExecutor.getDefault().invokeAll(tasks, monitor);
+			return Arrays.asList(results);
+		} finally {
+			monitor.done();
+		}
+	}
 
-			// Set the users login and API token
-			final NameValuePair login = new NameValuePair("login", credentials.getUsername());
-			final NameValuePair token = new NameValuePair("token", credentials.getUsername());
-			method.setRequestBody(new NameValuePair[] { login, token });
+	/**
+	 * API Doc: issues/label/add/:user/:repo/:label/:number and
+	 * issues/label/remove/:user/:repo/:label/:number API POST Variables:
+	 * login, api-token
+	 * 
+	 * @return true if the response confirms the change
+	 */
+	private boolean changeLabel(final String user, final String repo,
+			final GitHubLabelChange change, final NameValuePair[] credentials,
+			final String quotaKey) throws GitHubServiceException {
+		final boolean add = change.getKind() == GitHubLabelChange.Kind.ADD;
+		final String label = change.getLabel();
+		PostMethod method = null;
+		try {
+			method = new PostMethod(gitURLBase + gitIssueRoot
+					+ (add ? ADD_LABEL : REMOVE_LABEL) + user + "/" + repo + "/"
+					+ label + "/" + Integer.toString(change.getIssueNumber()));
+			method.setRequestBody(credentials);
 
-			// execute HTTP GET method
-			executeMethod(method);
+			executeMethod(method, quotaKey, Priority.INTERACTIVE, gitIssueRoot
+					+ (add ? ADD_LABEL : REMOVE_LABEL));
 			// Check the response, make sure the action was successful
-			final String response = method.getResponseBodyAsString();
-			if (!response.contains(label.subSequence(0, label.length()))) {
-				success = true;
-			}
+			final String response = getResponseBodyAsString(method);
 			if (LOG.isDebugEnabled()) {
-				LOG.debug("Response: " + method.getResponseBodyAsString());
+				LOG.debug("Response: " + response);
 				LOG.debug("URL: " + method.getURI());
 			}
+			// the response lists the labels of the issue after the change
+			GitHubLabels labels = parse(new StringReader(response), GitHubLabels.class);
+			return labels != null && labels.contains(label) == add;
 		} catch (GitHubServiceException e) {
 			throw e;
 		} catch (final RuntimeException runtimeException) {
@@ -285,7 +734,27 @@ public class GitHubService {
 			if (method != null)
 				method.releaseConnection();
 		}
-		return success;
+	}
+
+	/**
+	 * The labels of an issue, as listed in the response of a label change.
+	 */
+	private static class GitHubLabels {
+		private List<String> labels;
+
+		boolean contains(String label) {
+			return labels != null && labels.contains(label);
+		}
+	}
+
+	/**
+	 * the login and API token parameters sent with every authenticated
+	 * request
+	 */
+	private static NameValuePair[] createCredentialParameters(final GitHubCredentials credentials) {
+		return new NameValuePair[] {
+				new NameValuePair("login", credentials.getUsername()),
+				new NameValuePair("token", credentials.getApiToken()) };
 	}
 
 	/**
@@ -327,19 +796,20 @@ public class GitHubService {
 			method.setRequestBody(new NameValuePair[] { login, token, body,
 					title });
 
-			executeMethod(method);
-			showIssue = gson.fromJson(new String(method.getResponseBody()),
-					GitHubShowIssue.class);
+			executeMethod(method, credentials.getUsername(), Priority.INTERACTIVE,
+					gitIssueRoot + OPEN);
+			final String response = getResponseBodyAsString(method);
+			showIssue = parse(new StringReader(response), GitHubShowIssue.class);
 
 			
 			if (showIssue == null || showIssue.getIssue() == null) {
 				if (LOG.isErrorEnabled()) {
-					LOG.error("Unexpected server response: "+method.getResponseBodyAsString());
+					LOG.error("Unexpected server response: "+response);
 				}
 				throw new GitHubServiceException("Unexpected server response");
 			}
 			if (LOG.isDebugEnabled()) {
-				LOG.debug("Response: " + method.getResponseBodyAsString());
+				LOG.debug("Response: " + response);
 				LOG.debug("URL: " + method.getURI());
 			}
 			return showIssue.getIssue();
@@ -393,23 +863,26 @@ public class GitHubService {
 			method.setRequestBody(new NameValuePair[] { login, token, body,
 					title });
 
-			executeMethod(method);
-			GitHubShowIssue showIssue = gson.fromJson(method.getResponseBodyAsString(),
-						GitHubShowIssue.class);
+			executeMethod(method, credentials.getUsername(), Priority.INTERACTIVE,
+					gitIssueRoot + EDIT);
+			final String response = getResponseBodyAsString(method);
+			GitHubShowIssue showIssue = parse(new StringReader(response), GitHubShowIssue.class);
 				
 			// Make sure the changes were made properly
 			if (showIssue == null || showIssue.getIssue() == null) {
 				if (LOG.isErrorEnabled()) {
-					LOG.error("Unexpected server response: "+method.getResponseBodyAsString());
+					LOG.error("Unexpected server response: "+response);
 				}
 				throw new GitHubServiceException("Unexpected server response");
 			}
 
 			if (LOG.isDebugEnabled()) {
-				LOG.debug("Response: " + method.getResponseBodyAsString());
+				LOG.debug("Response: " + response);
 				LOG.debug("URL: " + method.getURI());
 			}
 			return showIssue.getIssue();
+		} catch (GitHubServiceException e) {
+			throw e;
 		} catch (final RuntimeException runTimeException) {
 			throw runTimeException;
 		} catch (final Exception e) {
@@ -422,18 +895,107 @@ public class GitHubService {
 	}
 
 
+	/**
+	 * Show an issue. Concurrent calls for the same issue share one request
+	 * and receive the same {@link GitHubIssue}, which callers must therefore
+	 * not modify.
+	 * 
+	 * @param user
+	 *            - The user the repository is owned by
+	 * @param repo
+	 *            - The git repository where the issue tracker is hosted
+	 * @param issueNumber
+	 *            - The number of the issue
+	 * 
+	 * @throws GitHubServiceException
+	 * 
+	 *             API Doc: issues/show/:user/:repo/:number
+	 */
 	public GitHubIssue showIssue(final String user, final String repo,final String issueNumber) throws GitHubServiceException {
+		return showIssue(user, repo, issueNumber, null);
+	}
+
+	/**
+	 * Show an issue.
+	 * 
+	 * @param monitor
+	 *            - Cancels waiting for a retry or for the request of a
+	 *            concurrent call, may be null
+	 * 
+	 * @see #showIssue(String, String, String)
+	 */
+	public GitHubIssue showIssue(final String user, final String repo,
+			final String issueNumber, final IProgressMonitor monitor)
+			throws GitHubServiceException {
+		String key = user + "/" + repo + "/" + issueNumber;
+		while (true) {
+			FutureTask<GitHubIssue> request = new FutureTask<GitHubIssue>(new Callable<GitHubIssue>() {
+				public GitHubIssue call() throws GitHubServiceException {
+					return requestIssue(user, repo, issueNumber, monitor);
+				}
+			});
+			FutureTask<GitHubIssue> inFlight = inFlightIssues.putIfAbsent(key, request);
+			boolean shared = inFlight != null;
+			if (shared) {
+				coalescedRequests.incrementAndGet();
+			} else {
+				inFlight = request;
+				try {
+					request.run();
+				} finally {
+					inFlightIssues.remove(key, request);
+				}
+			}
+			try {
+				return awaitIssue(inFlight, monitor);
+			} catch (OperationCanceledException e) {
+				// the shared request was cancelled by its own caller, not by this one
+				if (!shared || (monitor != null && monitor.isCanceled())) {
+					throw e;
+				}
+			}
+		}
+	}
+
+	private GitHubIssue awaitIssue(Future<GitHubIssue> request, IProgressMonitor monitor)
+			throws GitHubServiceException {
+		while (true) {
+			if (monitor != null && monitor.isCanceled()) {
+				throw new OperationCanceledException();
+			}
+			try {
+				return request.get(CANCEL_POLL_MILLIS, TimeUnit.MILLISECONDS);
+			} catch (TimeoutException e) {
+				// check the monitor again
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new OperationCanceledException();
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof GitHubServiceException) {
+					throw (GitHubServiceException) cause;
+				} else if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				} else if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw new GitHubServiceException(cause.getMessage(), cause);
+			}
+		}
+	}
+
+	private GitHubIssue requestIssue(final String user, final String repo,
+			final String issueNumber, final IProgressMonitor monitor)
+			throws GitHubServiceException {
 		GetMethod method = null;
 		try {
 			// build HTTP GET method
 			method = new GetMethod(gitURLBase + gitIssueRoot + SHOW 
             + user + "/" + repo + "/" + issueNumber);
 			
-			// execute HTTP GET method
-			executeMethod(method);
-			// transform JSON to Java object
-			GitHubShowIssue issue = gson.fromJson(new String(method.getResponseBody()),
-					GitHubShowIssue.class);
+			// execute HTTP GET method, transform JSON to Java object
+			GitHubShowIssue issue = executeGet(method, GitHubShowIssue.class,
+					Priority.INTERACTIVE, gitIssueRoot + SHOW, monitor);
 			
 			return issue.getIssue();
 		} catch (GitHubServiceException e) {
@@ -449,28 +1011,465 @@ public class GitHubService {
 		}
 	}
 
-	private void executeMethod(HttpMethod method) throws GitHubServiceException {
+	/**
+	 * Execute a GET request and parse its JSON response. If a response for the
+	 * same URL was cached, the request is made conditional and the cached
+	 * object is returned when the server answers {@code 304 Not Modified}.
+	 */
+	private <T> T executeGet(GetMethod method, Class<T> type, Priority priority,
+			String endpoint, IProgressMonitor monitor)
+			throws GitHubServiceException, IOException {
+		final String url = method.getURI().toString();
+		GitHubResponseCache.CachedResponse cached = prepareConditionalGet(method, url, type);
+
+		int status = executeMethod(method, GitHubRequestScheduler.ANONYMOUS,
+				priority, endpoint, monitor);
+		if (status == HttpStatus.SC_NOT_MODIFIED && cached != null) {
+			responseCache.recordHit();
+			return type.cast(cached.getValue());
+		}
+		responseCache.recordMiss();
+		T result;
+		Reader reader = getResponseReader(method);
+		try {
+			result = parse(reader, type);
+		} finally {
+			reader.close();
+		}
+		responseCache.put(url, getHeaderValue(method, "ETag"),
+				getHeaderValue(method, "Last-Modified"), result);
+		return result;
+	}
+
+	/**
+	 * Parse a JSON response, timing it as {@link GitHubMetrics#PARSE} of the
+	 * type. A streamed response is read while being parsed.
+	 */
+	private <T> T parse(Reader reader, Class<T> type) throws GitHubServiceException {
+		long start = System.nanoTime();
+		try {
+			return gson.fromJson(reader, type);
+		} catch (JsonParseException e) {
+			// Gson reports a failing reader as the end of the JSON
+			if (reader instanceof ResponseReader && ((ResponseReader) reader).failure != null) {
+				throw new GitHubServiceException(((ResponseReader) reader).failure);
+			}
+			throw new GitHubServiceException("Malformed response", e);
+		} finally {
+			metrics.getTimer(GitHubMetrics.PARSE + type.getSimpleName()).recordSince(start);
+		}
+	}
+
+	/**
+	 * Add the validators of a cached response of the given type to the
+	 * method.
+	 * 
+	 * @return the cached response, or null if the request is unconditional
+	 */
+	private GitHubResponseCache.CachedResponse prepareConditionalGet(
+			GetMethod method, String url, Class<?> type) {
+		GitHubResponseCache.CachedResponse cached = responseCache.get(url);
+		if (cached == null || !type.isInstance(cached.getValue())) {
+			return null;
+		}
+		if (cached.getEtag() != null) {
+			method.setRequestHeader("If-None-Match", cached.getEtag());
+		}
+		if (cached.getLastModified() != null) {
+			method.setRequestHeader("If-Modified-Since", cached.getLastModified());
+		}
+		return cached;
+	}
+
+	/**
+	 * A reader on the response body, decoded with the charset declared by the
+	 * server or UTF-8, the encoding of JSON.
+	 */
+	private Reader getResponseReader(HttpMethodBase method) throws IOException {
+		String charset = "UTF-8";
+		Header contentType = method.getResponseHeader("Content-Type");
+		if (contentType != null && contentType.getValue().toLowerCase().contains("charset=")) {
+			charset = method.getResponseCharSet();
+		}
+		InputStream stream = getResponseStream(method);
+		if (stream == null) {
+			return new StringReader("");
+		}
+		return new ResponseReader(new InputStreamReader(stream, charset));
+	}
+
+	/**
+	 * Reader on a response body which keeps the failure of the body, e.g. a
+	 * truncated response, so that it is reported instead of the parse error
+	 * it causes. A failure caused by aborting the call is reported as
+	 * {@link OperationCanceledException}.
+	 */
+	private static class ResponseReader extends FilterReader {
+
+		IOException failure;
+
+		ResponseReader(Reader in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			try {
+				return super.read();
+			} catch (IOException e) {
+				throw failed(e);
+			}
+		}
+
+		@Override
+		public int read(char[] buffer, int offset, int length) throws IOException {
+			try {
+				return super.read(buffer, offset, length);
+			} catch (IOException e) {
+				throw failed(e);
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				super.close();
+			} catch (IOException e) {
+				throw failed(e);
+			}
+		}
+
+		private IOException failed(IOException e) {
+			if (GitHubAbortHandle.isCurrentAborted()) {
+				throw new OperationCanceledException();
+			}
+			failure = e;
+			return e;
+		}
+	}
+
+	/**
+	 * Read the whole, decoded response body.
+	 */
+	private String getResponseBodyAsString(HttpMethodBase method) throws IOException {
+		Reader reader = getResponseReader(method);
+		try {
+			StringBuilder body = new StringBuilder();
+			char[] buffer = new char[4096];
+			int read;
+			while ((read = reader.read(buffer)) != -1) {
+				body.append(buffer, 0, read);
+			}
+			return body.toString();
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * The response body, decompressed as it is read if the server applied a
+	 * content encoding. Closing the stream records the bytes received and
+	 * those saved by the compression.
+	 */
+	private InputStream getResponseStream(final HttpMethod method) throws IOException {
+		InputStream stream = method.getResponseBodyAsStream();
+		if (stream == null) {
+			return null;
+		}
+		// HttpClient ends a body cut short by the server silently
+		final CountingInputStream received = new CountingInputStream(stream,
+				getContentLength(method));
+		final boolean compressed;
+		InputStream decoded = received;
+		Header encoding = method.getResponseHeader("Content-Encoding");
+		String value = encoding == null ? "" : encoding.getValue().trim().toLowerCase();
+		if (value.equals("gzip") || value.equals("x-gzip")) {
+			decoded = new GZIPInputStream(received);
+			compressed = true;
+		} else if (value.equals("deflate")) {
+			decoded = new InflaterInputStream(received);
+			compressed = true;
+		} else {
+			compressed = false;
+		}
+		return new CountingInputStream(decoded) {
+			private boolean recorded = false;
+
+			@Override
+			public void close() throws IOException {
+				try {
+					super.close();
+				} finally {
+					GitHubAbortHandle.finished(method);
+					if (!recorded) {
+						recorded = true;
+						metrics.recordResponseBytes(received.getCount(), getCount());
+						if (compressed) {
+							compressedBytes.addAndGet(received.getCount());
+							uncompressedBytes.addAndGet(getCount());
+						}
+					}
+				}
+			}
+		};
+	}
+
+	/**
+	 * the number of bytes not transferred thanks to compressed responses
+	 */
+	public long getBytesSaved() {
+		return uncompressedBytes.get() - compressedBytes.get();
+	}
+
+	/**
+	 * the number of compressed response bytes received
+	 */
+	public long getCompressedBytes() {
+		return compressedBytes.get();
+	}
+
+	/**
+	 * the size of the compressed responses after decompression
+	 */
+	public long getUncompressedBytes() {
+		return uncompressedBytes.get();
+	}
+
+	public GitHubRetryPolicy getRetryPolicy() {
+		return retryPolicy;
+	}
+
+	/**
+	 * Set the policy for retrying idempotent requests, e.g.
+	 * {@link GitHubRetryPolicy#NONE}.
+	 */
+	public void setRetryPolicy(GitHubRetryPolicy retryPolicy) {
+		this.retryPolicy = retryPolicy;
+	}
+
+	/**
+	 * the number of {@link #showIssue} calls that shared the request of a
+	 * concurrent call instead of sending their own
+	 */
+	public long getCoalescedRequests() {
+		return coalescedRequests.get();
+	}
+
+	private static String getHeaderValue(HttpMethod method, String name) {
+		Header header = method.getResponseHeader(name);
+		return header == null ? null : header.getValue();
+	}
+
+	/**
+	 * @return true if a {@code Link} header of the response has the relation
+	 *         {@code next}
+	 */
+	private static boolean hasNextPage(HttpMethod method) {
+		for (Header header : method.getResponseHeaders("Link")) {
+			if (header.getValue().indexOf("rel=\"next\"") >= 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * the length of the response body declared by the server, or -1 if
+	 * unknown
+	 */
+	private static long getContentLength(HttpMethod method) {
+		String value = getHeaderValue(method, "Content-Length");
+		if (value != null) {
+			try {
+				return Long.parseLong(value.trim());
+			} catch (NumberFormatException e) {
+				// ignore malformed values
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * the cache of conditional GET responses used by this service
+	 */
+	public GitHubResponseCache getResponseCache() {
+		return responseCache;
+	}
+
+	/**
+	 * Execute the method once the rate limit of the credentials allows it
+	 * and check its status.
+	 * 
+	 * @param quotaKey
+	 *            - The user name of the credentials sent with the request, or
+	 *            {@link GitHubRequestScheduler#ANONYMOUS}
+	 * @param priority
+	 *            - Whether the request may use the quota reserved for the user
+	 * 
+	 * @return {@link HttpStatus#SC_OK}, or {@link HttpStatus#SC_NOT_MODIFIED}
+	 *         for a conditional request whose cached response is still valid
+	 */
+	private int executeMethod(HttpMethod method, String quotaKey,
+			Priority priority, String endpoint) throws GitHubServiceException {
+		return executeMethod(method, quotaKey, priority, endpoint,
+				GitHubRetryPolicy.NONE, null);
+	}
+
+	/**
+	 * Execute an idempotent request, sending it again after transient
+	 * failures as the retry policy allows.
+	 * 
+	 * @param monitor
+	 *            - Cancels waiting for a retry, may be null
+	 */
+	private int executeMethod(HttpMethod method, String quotaKey,
+			Priority priority, String endpoint, IProgressMonitor monitor)
+			throws GitHubServiceException {
+		return executeMethod(method, quotaKey, priority, endpoint, retryPolicy, monitor);
+	}
+
+	private int executeMethod(HttpMethod method, String quotaKey,
+			Priority priority, String endpoint, GitHubRetryPolicy policy,
+			IProgressMonitor monitor) throws GitHubServiceException {
+		for (int attempt = 1;; ++attempt) {
+			try {
+				return executeOnce(method, quotaKey, priority, endpoint, monitor);
+			} catch (GitHubServiceException e) {
+				long delay = policy.getDelay(attempt, e, getRetryAfter(method));
+				if (delay < 0) {
+					throw e;
+				}
+				method.releaseConnection();
+				policy.recordRetry(endpoint);
+				if (LOG.isDebugEnabled()) {
+					LOG.debug("Retrying " + endpoint + " in " + delay + "ms: " + e.getMessage());
+				}
+				sleep(delay, monitor);
+			}
+		}
+	}
+
+	/**
+	 * the delay in milliseconds the Retry-After header of the response asks
+	 * for, or -1
+	 */
+	private static long getRetryAfter(HttpMethod method) {
+		String value = getHeaderValue(method, "Retry-After");
+		if (value != null) {
+			try {
+				return Math.max(0, Long.parseLong(value.trim()) * 1000L);
+			} catch (NumberFormatException e) {
+				// HTTP dates are not used by GitHub
+			}
+		}
+		return -1;
+	}
+
+	private static void sleep(long millis, IProgressMonitor monitor) {
+		long end = System.currentTimeMillis() + millis;
+		while (true) {
+			if ((monitor != null && monitor.isCanceled())
+					|| GitHubAbortHandle.isCurrentAborted()) {
+				throw new OperationCanceledException();
+			}
+			long remaining = end - System.currentTimeMillis();
+			if (remaining <= 0) {
+				return;
+			}
+			try {
+				Thread.sleep(Math.min(remaining, CANCEL_POLL_MILLIS));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new OperationCanceledException();
+			}
+		}
+	}
+
+	/**
+	 * Send the request once, recording its latency under the endpoint.
+	 */
+	private int executeOnce(HttpMethod method, String quotaKey,
+			Priority priority, String endpoint, IProgressMonitor monitor)
+			throws GitHubServiceException {
+		scheduler.acquire(quotaKey, priority, monitor);
+		method.setRequestHeader("Accept-Encoding", "gzip, deflate");
 		int status;
+		GitHubAbortHandle handle = GitHubAbortHandle.started(method);
+		long start = System.nanoTime();
 		try {
-			status = httpClient.executeMethod(method);
+			status = getHttpClient().executeMethod(method);
 		} catch (HttpException e) { 
+			metrics.recordIOError();
 			throw new GitHubServiceException(e);
 		} catch (IOException e) {
+			if (handle != null && handle.isAborted()) {
+				throw new OperationCanceledException();
+			}
+			metrics.recordIOError();
 			throw new GitHubServiceException(e);
+		} catch (IllegalStateException e) {
+			// aborted before it was sent
+			if (handle != null && handle.isAborted()) {
+				throw new OperationCanceledException();
+			}
+			throw e;
+		} finally {
+			metrics.recordRequest(endpoint, System.nanoTime() - start,
+					getRequestBytes(method));
+		}
+		// the handle aborts the transfer of the body until its stream is closed
+		if (handle != null && status != HttpStatus.SC_OK) {
+			handle.finished();
+		}
+		scheduler.update(quotaKey, method);
+		if (status != HttpStatus.SC_OK && status != HttpStatus.SC_NOT_MODIFIED) {
+			metrics.recordError(status);
+		}
+		if (status == HttpStatus.SC_NOT_MODIFIED
+				&& (method.getRequestHeader("If-None-Match") != null
+						|| method.getRequestHeader("If-Modified-Since") != null)) {
+			return status;
 		}
 		if (status != HttpStatus.SC_OK) {
 			switch (status) {
-			case HttpStatus.SC_UNAUTHORIZED:
 			case HttpStatus.SC_FORBIDDEN:
+				if (scheduler.isRateLimited(method)) {
+					throw new RateLimitExceededException(method.getStatusLine(),
+							scheduler.getResetTime(quotaKey));
+				}
+				throw new PermissionDeniedException(method.getStatusLine());
+			case HttpStatus.SC_UNAUTHORIZED:
 				throw new PermissionDeniedException(method.getStatusLine());
 			default:
 				throw new GitHubServiceException(method.getStatusLine());
 			}
 		}
+		return status;
+	}
+
+	private HttpClient getHttpClient() {
+		if (httpClient != null) {
+			return httpClient;
+		}
+		return GitHubConnectionPool.getDefault().getHttpClient();
 	}
 
 	/**
-	 * Edit an existing issue using the GitHub Issues API and change its status to open.
+	 * the size of the request body, or -1 if unknown
+	 */
+	private static long getRequestBytes(HttpMethod method) {
+		if (method instanceof EntityEnclosingMethod) {
+			EntityEnclosingMethod post = (EntityEnclosingMethod) method;
+			if (post.getRequestEntity() != null) {
+				return post.getRequestEntity().getContentLength();
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Change the status of an existing issue to open. Title and body are not
+	 * changed, see {@link #editIssue}.
 	 * 
 	 * @param user
 	 *            - The user the repository is owned by
@@ -484,16 +1483,16 @@ public class GitHubService {
 	 * @throws GitHubServiceException
 	 * 
 	 *             API Doc: issues/reopen/:user/:repo/:number API POST Variables:
-	 *             login, api-token, title, body
+	 *             login, api-token
 	 */
 	public GitHubIssue reopenIssue(String user, String repo, GitHubIssue issue,
 			GitHubCredentials credentials) throws GitHubServiceException {
-		issue = editIssue(user, repo, issue, credentials);
 		return changeIssueStatus(user, repo, REOPEN, issue, credentials);
 	}
 
 	/**
-	 * Edit an existing issue using the GitHub Issues API and change its status to closed.
+	 * Change the status of an existing issue to closed. Title and body are not
+	 * changed, see {@link #editIssue}.
 	 * 
 	 * @param user
 	 *            - The user the repository is owned by
@@ -507,13 +1506,11 @@ public class GitHubService {
 	 * @throws GitHubServiceException
 	 * 
 	 *             API Doc: issues/close/:user/:repo/:number API POST Variables:
-	 *             login, api-token, title, body
+	 *             login, api-token
 	 */
 	public GitHubIssue closeIssue(String user, String repo, GitHubIssue issue,
 			GitHubCredentials credentials) throws GitHubServiceException {
-		issue = editIssue(user, repo, issue, credentials);
 		return changeIssueStatus(user, repo, CLOSE, issue, credentials);
-		
 	}
 	
 	private GitHubIssue changeIssueStatus(final String user, final String repo,
@@ -531,23 +1528,26 @@ public class GitHubService {
 			
 			method.setRequestBody(new NameValuePair[] { login, token });
 
-			executeMethod(method);
-			GitHubShowIssue showIssue = gson.fromJson(method.getResponseBodyAsString(),
-						GitHubShowIssue.class);
+			executeMethod(method, credentials.getUsername(), Priority.INTERACTIVE,
+					gitIssueRoot + githubOperation);
+			final String response = getResponseBodyAsString(method);
+			GitHubShowIssue showIssue = parse(new StringReader(response), GitHubShowIssue.class);
 				
 			// Make sure the changes were made properly
 			if (showIssue == null || showIssue.getIssue() == null) {
 				if (LOG.isErrorEnabled()) {
-					LOG.error("Unexpected server response: "+method.getResponseBodyAsString());
+					LOG.error("Unexpected server response: "+response);
 				}
 				throw new GitHubServiceException("Unexpected server response");
 			}
 
 			if (LOG.isDebugEnabled()) {
-				LOG.debug("Response: " + method.getResponseBodyAsString());
+				LOG.debug("Response: " + response);
 				LOG.debug("URL: " + method.getURI());
 			}
 			return showIssue.getIssue();
+		} catch (GitHubServiceException e) {
+			throw e;
 		} catch (final RuntimeException runTimeException) {
 			throw runTimeException;
 		} catch (final Exception e) {
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2009 Christian Trutz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.eclipse.mylyn.github.internal;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The {@code updated_at} timestamps of the issues listed during the
+ * pre-synchronization of one repository, together with their high-water
+ * mark.
+ * <p>
+ * Stored as the data of the synchronization session. The listed issues
+ * themselves are kept by the issue index only, so queries of the same
+ * session answer from the index instead of requesting the listing again.
+ */
+class GitHubSynchronizationState {
+
+	private final Set<String> listedStates = new HashSet<String>();
+
+	private final Map<String, Long> updatedByNumber = new HashMap<String, Long>();
+
+	private final long previousMark;
+
+	private long highWaterMark;
+
+	private boolean changes;
+
+	private volatile boolean failed;
+
+	/**
+	 * @param previousMark
+	 *            - the high-water mark of the last synchronization, or
+	 *            {@code -1} if the repository was never synchronized
+	 */
+	GitHubSynchronizationState(long previousMark) {
+		this.previousMark = previousMark;
+		this.highWaterMark = previousMark;
+	}
+
+	/**
+	 * Record an issue of the listing.
+	 */
+	void addIssue(GitHubIssue issue) {
+		long updated = parseTimestamp(issue.getUpdated_at());
+		updatedByNumber.put(issue.getNumber(), Long.valueOf(updated));
+		if (updated > highWaterMark) {
+			highWaterMark = updated;
+		}
+		if (updated >= previousMark) {
+			changes = true;
+		}
+	}
+
+	/**
+	 * Record that all issues in the given state were listed.
+	 */
+	void setListed(String state) {
+		listedStates.add(state);
+	}
+
+	/**
+	 * @return true if all issues in the given state were listed
+	 */
+	boolean isListed(String state) {
+		return listedStates.contains(state);
+	}
+
+	/**
+	 * @return true if the issue with the given number changed since the
+	 *         previous synchronization, or is unknown to the listing. The
+	 *         timestamps have a resolution of one second, so an issue
+	 *         updated in the second of the high-water mark counts as changed.
+	 */
+	boolean hasChanged(String number) {
+		if (previousMark < 0) {
+			return true;
+		}
+		Long updated = updatedByNumber.get(number);
+		if (updated == null) {
+			return true;
+		}
+		return updated.longValue() < 0 || updated.longValue() >= previousMark;
+	}
+
+	/**
+	 * @return true if any listed issue changed since the previous
+	 *         synchronization
+	 */
+	boolean hasChanges() {
+		return previousMark < 0 || changes;
+	}
+
+	long getHighWaterMark() {
+		return highWaterMark;
+	}
+
+	/**
+	 * Record that a query or task refresh of the synchronization failed, so
+	 * the tasks marked stale must be marked again next time.
+	 */
+	void markFailed() {
+		failed = true;
+	}
+
+	boolean hasFailed() {
+		return failed;
+	}
+
+	/**
+	 * Parse a GitHub timestamp such as {@code 2010/02/02 22:58:39 -0800}.
+	 *
+	 * @return milliseconds since the epoch, or {@code -1} if the value is
+	 *         missing or malformed
+	 */
+	static long parseTimestamp(String value) {
+		return GitHubDateCodec.getDefault().parseGitHubDate(value);
+	}
+}
@@ -1,8 +1,5 @@
 package org.eclipse.mylyn.github.internal;
 
-import java.text.DateFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.Date;
 
 import org.eclipse.mylyn.tasks.core.TaskRepository;
@@ -15,7 +12,7 @@ import org.eclipse.mylyn.tasks.core.data.TaskAttributeMapper;
  */
 public class GitHubTaskAttributeMapper extends TaskAttributeMapper {
 
-	private DateFormat dateFormat = SimpleDateFormat.getDateTimeInstance();
+	private final GitHubDateCodec dateCodec = GitHubDateCodec.getDefault();
 	
 	public GitHubTaskAttributeMapper(TaskRepository taskRepository) {
 		super(taskRepository);
@@ -30,11 +27,8 @@ public class GitHubTaskAttributeMapper extends TaskAttributeMapper {
 	public Date getDateValue(TaskAttribute attribute) {
 		String value = attribute.getValue();
 		if (value != null) {
-			try {
-				return dateFormat.parse(value);
-			} catch (ParseException e) {
-				return super.getDateValue(attribute);
-			}
+			Date date = dateCodec.parseLocalDate(value);
+			return date != null ? date : super.getDateValue(attribute);
 		}
 		return null;
 	}
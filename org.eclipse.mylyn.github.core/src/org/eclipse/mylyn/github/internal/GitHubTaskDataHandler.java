@@ -1,13 +1,16 @@
 package org.eclipse.mylyn.github.internal;
 
-import java.text.DateFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.mylyn.tasks.core.ITaskMapping;
 import org.eclipse.mylyn.tasks.core.RepositoryResponse;
 import org.eclipse.mylyn.tasks.core.TaskRepository;
@@ -15,7 +18,6 @@ import org.eclipse.mylyn.tasks.core.RepositoryResponse.ResponseKind;
 import org.eclipse.mylyn.tasks.core.data.AbstractTaskDataHandler;
 import org.eclipse.mylyn.tasks.core.data.TaskAttribute;
 import org.eclipse.mylyn.tasks.core.data.TaskAttributeMapper;
-import org.eclipse.mylyn.tasks.core.data.TaskAttributeMetaData;
 import org.eclipse.mylyn.tasks.core.data.TaskData;
 import org.eclipse.mylyn.tasks.core.data.TaskOperation;
 
@@ -27,13 +29,15 @@ public class GitHubTaskDataHandler extends AbstractTaskDataHandler {
 
 	private static final String DATA_VERSION = "1";
 	/**
-	 * 
+	 * mappers by repository URL
+	 */
+	private final ConcurrentMap<String, GitHubTaskAttributeMapper> taskAttributeMappers = new ConcurrentHashMap<String, GitHubTaskAttributeMapper>();
+	/**
+	 * attributes with their metadata set up, copied into new task data
 	 */
-	private GitHubTaskAttributeMapper taskAttributeMapper = null;
+	private volatile Map<GitHubTaskAttributes, TaskAttribute> attributeTemplates;
 	private final GitHubRepositoryConnector connector;
-	private DateFormat dateFormat = SimpleDateFormat.getDateTimeInstance();
-	
-	private DateFormat githubDateFormat = new SimpleDateFormat("yyyy/mm/dd HH:MM:ss Z");
+	private final GitHubDateCodec dateCodec = GitHubDateCodec.getDefault();
 
 	public GitHubTaskDataHandler(GitHubRepositoryConnector connector) {
 		this.connector = connector;
@@ -41,14 +45,43 @@ public class GitHubTaskDataHandler extends AbstractTaskDataHandler {
 	
 	@Override
 	public TaskAttributeMapper getAttributeMapper(TaskRepository taskRepository) {
-		if (this.taskAttributeMapper == null)
-			this.taskAttributeMapper = new GitHubTaskAttributeMapper(
-					taskRepository);
-		return this.taskAttributeMapper;
+		String url = taskRepository.getRepositoryUrl();
+		GitHubTaskAttributeMapper mapper = taskAttributeMappers.get(url);
+		// a repository whose settings were replaced gets a new mapper
+		if (mapper == null || mapper.getTaskRepository() != taskRepository) {
+			mapper = new GitHubTaskAttributeMapper(taskRepository);
+			taskAttributeMappers.put(url, mapper);
+		}
+		return mapper;
+	}
+
+	/**
+	 * the attribute templates, created with the first mapper since their
+	 * metadata does not depend on the repository
+	 */
+	private Map<GitHubTaskAttributes, TaskAttribute> getAttributeTemplates(TaskAttributeMapper mapper) {
+		Map<GitHubTaskAttributes, TaskAttribute> templates = attributeTemplates;
+		if (templates == null) {
+			TaskData templateData = new TaskData(mapper, GitHubRepositoryConnector.KIND,
+					mapper.getTaskRepository().getRepositoryUrl(), "");
+			templates = new EnumMap<GitHubTaskAttributes, TaskAttribute>(GitHubTaskAttributes.class);
+			for (GitHubTaskAttributes attribute : GitHubTaskAttributes.values()) {
+				TaskAttribute template = templateData.getRoot().createAttribute(attribute.getId());
+				template.getMetaData().defaults()
+					.setType(attribute.getType())
+					.setKind(attribute.getKind())
+					.setLabel(attribute.getLabel())
+					.setReadOnly(attribute.isReadOnly());
+				templates.put(attribute, template);
+			}
+			attributeTemplates = templates;
+		}
+		return templates;
 	}
 
 	public TaskData createPartialTaskData(TaskRepository repository,
 			IProgressMonitor monitor,String user, String project, GitHubIssue issue) {
+		long start = System.nanoTime();
 
 		TaskData data = new TaskData(getAttributeMapper(repository),
 				GitHubRepositoryConnector.KIND, repository.getRepositoryUrl(),
@@ -63,13 +96,15 @@ public class GitHubTaskDataHandler extends AbstractTaskDataHandler {
 		createAttribute(data, GitHubTaskAttributes.BODY, issue.getBody());
 		createAttribute(data, GitHubTaskAttributes.STATUS, issue.getState());
 		createAttribute(data, GitHubTaskAttributes.CREATION_DATE, toLocalDate(issue.getCreated_at()));
-		createAttribute(data, GitHubTaskAttributes.MODIFICATION_DATE, toLocalDate(issue.getCreated_at()));
+		createAttribute(data, GitHubTaskAttributes.MODIFICATION_DATE, toLocalDate(
+				issue.getUpdated_at() != null ? issue.getUpdated_at() : issue.getCreated_at()));
 		createAttribute(data, GitHubTaskAttributes.CLOSED_DATE, toLocalDate(issue.getClosed_at()));
 		
 		if (isPartial(data)) {
 			data.setPartial(true);
 		}
 
+		GitHubMetrics.getDefault().getTimer(GitHubMetrics.TASK_DATA_CONVERSION).recordSince(start);
 		return data;
 	}
 	
@@ -118,32 +153,28 @@ public class GitHubTaskDataHandler extends AbstractTaskDataHandler {
 		return operation==GitHubTaskOperation.LEAVE?operation.getLabel()+issue.getState():operation.getLabel();
 	}
 
-	private String toLocalDate(String date) {
-		if (date != null && date.trim().length() > 0) {
-			// expect "2010/02/02 22:58:39 -0800"
-			try {
-				Date d = githubDateFormat.parse(date);
-				date = dateFormat.format(d);
-			} catch (ParseException e) {
-				// ignore
-			}
-		}
-		return date;
+	/**
+	 * Convert a date as sent by GitHub to the format of the task attributes.
+	 * 
+	 * @return the converted date, or the given value if it cannot be parsed
+	 */
+	public String toLocalDate(String date) {
+		return dateCodec.toLocalDate(date);
 	}
 
 	private String toGitHubDate(TaskData taskData,
 			GitHubTaskAttributes attr) {
-		TaskAttribute attribute = taskData.getRoot().getAttribute(attr.name());
-		String value = attribute==null?null:attribute.getValue();
-		if (value != null) {
-			try {
-				Date d = dateFormat.parse(value);
-				value = githubDateFormat.format(d);
-			} catch (ParseException e) {
-				// ignore
-			}
-		}
-		return value;
+		TaskAttribute attribute = taskData.getRoot().getAttribute(attr.getId());
+		return toGitHubDate(attribute==null?null:attribute.getValue());
+	}
+
+	/**
+	 * Convert a date of the task attributes to the format sent by GitHub.
+	 * 
+	 * @return the converted date, or the given value if it cannot be parsed
+	 */
+	public String toGitHubDate(String value) {
+		return dateCodec.toGitHubDate(value);
 	}
 
 	public TaskData createTaskData(TaskRepository repository,
@@ -164,8 +195,8 @@ public class GitHubTaskDataHandler extends AbstractTaskDataHandler {
 		issue.setTitle(getAttributeValue(taskData,GitHubTaskAttributes.TITLE));
 		issue.setState(getAttributeValue(taskData,GitHubTaskAttributes.STATUS));
 		issue.setCreated_at(toGitHubDate(taskData,GitHubTaskAttributes.CREATION_DATE));
-		issue.setCreated_at(toGitHubDate(taskData,GitHubTaskAttributes.MODIFICATION_DATE));
-		issue.setCreated_at(toGitHubDate(taskData,GitHubTaskAttributes.CLOSED_DATE));
+		issue.setUpdated_at(toGitHubDate(taskData,GitHubTaskAttributes.MODIFICATION_DATE));
+		issue.setClosed_at(toGitHubDate(taskData,GitHubTaskAttributes.CLOSED_DATE));
 		return issue;
 	}
 	
@@ -176,13 +207,9 @@ public class GitHubTaskDataHandler extends AbstractTaskDataHandler {
 	}
 
 	private void createAttribute(TaskData data, GitHubTaskAttributes attribute, String value) {
-		TaskAttribute attr = data.getRoot().createAttribute(attribute.getId());
-		TaskAttributeMetaData metaData = attr.getMetaData();
-		metaData.defaults()
-			.setType(attribute.getType())
-			.setKind(attribute.getKind())
-			.setLabel(attribute.getLabel())
-			.setReadOnly(attribute.isReadOnly());
+		TaskAttribute root = data.getRoot();
+		root.deepAddCopy(getAttributeTemplates(data.getAttributeMapper()).get(attribute));
+		TaskAttribute attr = root.getAttribute(attribute.getId());
 
 		if (value != null) {
 			attr.addValue(value);
@@ -211,14 +238,16 @@ public class GitHubTaskDataHandler extends AbstractTaskDataHandler {
 			IProgressMonitor monitor) throws CoreException {
 		
 		GitHubIssue issue = createIssue(taskData);
-		String user = GitHub.computeTaskRepositoryUser(repository.getUrl());
-		String repo = GitHub.computeTaskRepositoryProject(repository.getUrl());
+		GitHubRepositoryId id = GitHubRepositoryConnector.getRepositoryId(repository);
+		String user = id.getUser();
+		String repo = id.getProject();
 		try {
 			
 			GitHubService service = connector.getService();
 			GitHubCredentials credentials = GitHubCredentials.create(repository);
 			if (taskData.isNew()) {
 				issue = service.openIssue(user , repo, issue, credentials);
+				connector.issueChanged(repository, issue);
 			} else {
 				TaskAttribute operationAttribute = taskData.getRoot().getAttribute(TaskAttribute.OPERATION);
 				
@@ -230,20 +259,36 @@ public class GitHubTaskDataHandler extends AbstractTaskDataHandler {
 					operation = GitHubTaskOperation.fromId(opId);
 					
 				}
+				// send only the requests for what the user changed, usually one
+				String repositoryUrl = id.getRepositoryUrl();
+				List<GitHubOutgoingOperation> operations = new ArrayList<GitHubOutgoingOperation>(2);
+				if (isContentChanged(oldAttributes)) {
+					operations.add(GitHubOutgoingOperation.edit(repositoryUrl, issue,
+							issue.getUpdated_at()));
+				}
 				if (operation != null && operation != GitHubTaskOperation.LEAVE) {
-					service.editIssue(user , repo, issue, credentials);
 					switch (operation) {
 					case REOPEN:
-						service.reopenIssue(user,repo,issue,credentials);
+						operations.add(GitHubOutgoingOperation.changeStatus(repositoryUrl,
+								issue.getNumber(), false));
 						break;
 					case CLOSE:
-						service.closeIssue(user,repo,issue,credentials);
+						operations.add(GitHubOutgoingOperation.changeStatus(repositoryUrl,
+								issue.getNumber(), true));
 						break;
 					default:
 						throw new IllegalStateException("not implemented: "+operation);
 					}
-				} else {
-					service.editIssue(user , repo, issue, credentials);
+				}
+				// stored again once GitHub returns the changed issue
+				connector.issueChanging(repository, issue.getNumber());
+				// queued and sent later if GitHub cannot be reached now
+				if (!connector.getOutgoingQueue().submit(repositoryUrl, operations,
+						credentials, monitor)) {
+					// accepted, a rejection restores the change as outgoing
+					GitHub.log(GitHub.createStatus(IStatus.INFO,
+							"GitHub cannot be reached, the change of issue "
+									+ issue.getNumber() + " is queued and sent later"));
 				}
 			}
 			return new RepositoryResponse(taskData.isNew()?ResponseKind.TASK_CREATED:ResponseKind.TASK_UPDATED,issue.getNumber());
@@ -253,5 +298,23 @@ public class GitHubTaskDataHandler extends AbstractTaskDataHandler {
 		
 	}
 
+	/**
+	 * Whether the title or the body were changed. Mylyn passes the old values
+	 * of the changed attributes; without them everything counts as changed.
+	 */
+	private boolean isContentChanged(Set<TaskAttribute> oldAttributes) {
+		if (oldAttributes == null) {
+			return true;
+		}
+		for (TaskAttribute attribute : oldAttributes) {
+			String id = attribute.getId();
+			if (GitHubTaskAttributes.TITLE.getId().equals(id)
+					|| GitHubTaskAttributes.BODY.getId().equals(id)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 
 }
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2009 Christian Trutz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.eclipse.mylyn.github.internal;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency histogram of one kind of operation, e.g. the requests to one
+ * endpoint. Durations are counted in buckets whose bounds double from one
+ * microsecond on, so that percentiles are accurate to a factor of two while
+ * recording needs neither locks nor memory.
+ */
+public class GitHubTimer implements GitHubTimerMBean {
+
+	/**
+	 * bucket i counts durations below 2^i microseconds, the last one the rest
+	 */
+	private static final int BUCKETS = 40;
+
+	private final String name;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+	private final AtomicLong count = new AtomicLong();
+
+	private final AtomicLong totalNanos = new AtomicLong();
+
+	private final AtomicLong maxNanos = new AtomicLong();
+
+	GitHubTimer(String name) {
+		this.name = name;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Record the duration of one operation.
+	 */
+	public void record(long nanos) {
+		if (nanos < 0) {
+			nanos = 0;
+		}
+		buckets.incrementAndGet(getBucket(nanos / 1000));
+		count.incrementAndGet();
+		totalNanos.addAndGet(nanos);
+		long max;
+		do {
+			max = maxNanos.get();
+		} while (nanos > max && !maxNanos.compareAndSet(max, nanos));
+	}
+
+	/**
+	 * Record the time elapsed since the given {@link System#nanoTime()}.
+	 */
+	public void recordSince(long startNanos) {
+		record(System.nanoTime() - startNanos);
+	}
+
+	private static int getBucket(long micros) {
+		int bucket = 64 - Long.numberOfLeadingZeros(micros);
+		return Math.min(bucket, BUCKETS - 1);
+	}
+
+	public long getCount() {
+		return count.get();
+	}
+
+	public double getMeanMillis() {
+		long n = count.get();
+		return n == 0 ? 0 : totalNanos.get() / 1e6 / n;
+	}
+
+	public double getMaxMillis() {
+		return maxNanos.get() / 1e6;
+	}
+
+	/**
+	 * the upper bound of the bucket holding the given percentile, in
+	 * milliseconds
+	 * 
+	 * @param percentile
+	 *            - between 0 and 100
+	 */
+	public double getPercentileMillis(double percentile) {
+		long n = count.get();
+		if (n == 0) {
+			return 0;
+		}
+		long rank = (long) Math.ceil(n * percentile / 100);
+		long seen = 0;
+		for (int bucket = 0; bucket < BUCKETS - 1; ++bucket) {
+			seen += buckets.get(bucket);
+			if (seen >= Math.max(rank, 1)) {
+				// never more than the slowest operation actually recorded
+				return Math.min((1L << bucket) / 1e3, getMaxMillis());
+			}
+		}
+		return getMaxMillis();
+	}
+
+	public double get50thPercentileMillis() {
+		return getPercentileMillis(50);
+	}
+
+	public double get95thPercentileMillis() {
+		return getPercentileMillis(95);
+	}
+
+	public double get99thPercentileMillis() {
+		return getPercentileMillis(99);
+	}
+
+	public void reset() {
+		for (int bucket = 0; bucket < BUCKETS; ++bucket) {
+			buckets.set(bucket, 0);
+		}
+		count.set(0);
+		totalNanos.set(0);
+		maxNanos.set(0);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s: count=%d mean=%.3fms p50=%.3fms p95=%.3fms p99=%.3fms max=%.3fms",
+				name, getCount(), getMeanMillis(), get50thPercentileMillis(),
+				get95thPercentileMillis(), get99thPercentileMillis(), getMaxMillis());
+	}
+}
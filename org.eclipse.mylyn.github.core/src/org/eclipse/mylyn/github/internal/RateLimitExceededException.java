@@ -0,0 +1,44 @@
+package org.eclipse.mylyn.github.internal;
+
+import java.util.Date;
+
+import org.apache.commons.httpclient.StatusLine;
+
+/**
+ * Thrown when GitHub refuses a request because the API rate limit of the
+ * credentials is used up, or when the request would have to wait too long
+ * for the limit to be reset.
+ */
+public class RateLimitExceededException extends GitHubServiceException {
+
+	private static final long serialVersionUID = 2745960893471850376L;
+
+	private final long resetTime;
+
+	protected RateLimitExceededException(StatusLine statusLine, long resetTime) {
+		super(statusLine);
+		this.resetTime = resetTime;
+	}
+
+	protected RateLimitExceededException(long resetTime) {
+		super(resetTime > 0 ? "Rate limited until " + new Date(resetTime)
+				: "Rate limit exceeded");
+		this.resetTime = resetTime;
+	}
+
+	/**
+	 * the time in milliseconds since the epoch when the rate limit is
+	 * reset, or -1 if unknown
+	 */
+	public long getResetTime() {
+		return resetTime;
+	}
+
+	@Override
+	public String getMessage() {
+		if (resetTime > 0 && getHttpStatusCode() != Integer.MIN_VALUE) {
+			return super.getMessage() + " (rate limited until " + new Date(resetTime) + ")";
+		}
+		return super.getMessage();
+	}
+}
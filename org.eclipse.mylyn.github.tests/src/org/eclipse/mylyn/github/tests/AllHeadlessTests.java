@@ -7,7 +7,18 @@ import org.junit.runners.Suite.SuiteClasses;
 @RunWith(Suite.class)
 @SuiteClasses( { // 
 	GitHubServiceTest.class,
-	MarshalingTest.class
+	MarshalingTest.class,
+	GitHubIssueStoreTest.class,
+	GitHubDateCodecTest.class,
+	GitHubIssueIndexTest.class,
+	GitHubRetryPolicyTest.class,
+	GitHubRequestSchedulerTest.class,
+	GitHubMetricsTest.class,
+	GitHubAsyncServiceTest.class,
+	GitHubRepositoryIdTest.class,
+	GitHubOutgoingQueueTest.class,
+	GitHubRepositoryConnectorTest.class,
+	GitHubStubServerTest.class
 	})
 public class AllHeadlessTests {
 
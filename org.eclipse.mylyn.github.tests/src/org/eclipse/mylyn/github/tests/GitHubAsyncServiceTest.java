@@ -0,0 +1,122 @@
+package org.eclipse.mylyn.github.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.mylyn.github.internal.GitHubAsyncService;
+import org.eclipse.mylyn.github.internal.GitHubCallback;
+import org.eclipse.mylyn.github.internal.GitHubService;
+import org.eclipse.mylyn.github.internal.GitHubServiceException;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@SuppressWarnings("restriction")
+@RunWith(JUnit4.class)
+public class GitHubAsyncServiceTest {
+
+	private final GitHubAsyncService service = new GitHubAsyncService(new GitHubService(), 1);
+
+	private final BlockingQueue<Object> outcomes = new LinkedBlockingQueue<Object>();
+
+	private final GitHubCallback<String> callback = new GitHubCallback<String>() {
+		public void completed(String result) {
+			outcomes.add(result);
+		}
+
+		public void failed(Throwable e) {
+			outcomes.add(e);
+		}
+	};
+
+	@After
+	public void after() {
+		service.shutdown();
+	}
+
+	@Test
+	public void completed() throws Exception {
+		Future<String> future = service.submit(new Callable<String>() {
+			public String call() {
+				return "done";
+			}
+		}, callback);
+		assertEquals("done", GitHubAsyncService.await(future, new NullProgressMonitor()));
+		assertEquals("done", outcomes.poll(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void failed() throws Exception {
+		Future<String> future = service.submit(new Callable<String>() {
+			public String call() throws GitHubServiceException {
+				throw new GitHubServiceException(new IOException("failed")) {
+					private static final long serialVersionUID = 1L;
+				};
+			}
+		}, callback);
+		try {
+			GitHubAsyncService.await(future, new NullProgressMonitor());
+			fail();
+		} catch (GitHubServiceException e) {
+			assertEquals("failed", e.getCause().getMessage());
+		}
+		assertTrue(outcomes.poll(5, TimeUnit.SECONDS) instanceof GitHubServiceException);
+	}
+
+	@Test
+	public void cancelQueued() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		Future<String> running = service.submit(new Callable<String>() {
+			public String call() throws InterruptedException {
+				release.await();
+				return "running";
+			}
+		}, null);
+		// waits behind the running call on the only thread
+		Future<String> queued = service.submit(new Callable<String>() {
+			public String call() {
+				return "queued";
+			}
+		}, callback);
+		assertTrue(queued.cancel(true));
+		assertTrue(outcomes.poll(5, TimeUnit.SECONDS) instanceof CancellationException);
+		release.countDown();
+		assertEquals("running", running.get(5, TimeUnit.SECONDS));
+		assertTrue(outcomes.isEmpty());
+	}
+
+	@Test
+	public void awaitCancelled() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		Future<String> future = service.submit(new Callable<String>() {
+			public String call() throws InterruptedException {
+				release.await();
+				return "late";
+			}
+		}, callback);
+		NullProgressMonitor monitor = new NullProgressMonitor();
+		monitor.setCanceled(true);
+		try {
+			GitHubAsyncService.await(future, monitor);
+			fail();
+		} catch (OperationCanceledException e) {
+			// expected
+		}
+		assertTrue(future.isCancelled());
+		assertTrue(outcomes.poll(5, TimeUnit.SECONDS) instanceof CancellationException);
+		release.countDown();
+	}
+}
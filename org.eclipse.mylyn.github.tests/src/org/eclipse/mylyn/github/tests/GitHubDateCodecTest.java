@@ -0,0 +1,111 @@
+package org.eclipse.mylyn.github.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.mylyn.github.internal.GitHubDateCodec;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@SuppressWarnings("restriction")
+@RunWith(JUnit4.class)
+public class GitHubDateCodecTest {
+
+	private final GitHubDateCodec codec = GitHubDateCodec.getDefault();
+
+	@Test
+	public void parseGitHubDate() throws Exception {
+		SimpleDateFormat format = new SimpleDateFormat(GitHubDateCodec.GITHUB_PATTERN, Locale.US);
+		String[] values = { "2010/02/02 22:58:39 -0800", "2010/02/02 22:58:39 +0000",
+				"2012/02/29 00:00:00 +0530", "2000/12/31 23:59:59 -1200",
+				"1970/01/01 00:00:00 +0000", "1969/12/31 23:59:59 +0100",
+				"2100/03/01 12:30:00 +1400" };
+		for (String value : values) {
+			assertEquals(value, format.parse(value).getTime(), codec.parseGitHubDate(value));
+		}
+	}
+
+	@Test
+	public void parseRandomGitHubDates() throws Exception {
+		SimpleDateFormat format = new SimpleDateFormat(GitHubDateCodec.GITHUB_PATTERN, Locale.US);
+		Random random = new Random(42);
+		for (int x = 0; x < 10000; ++x) {
+			format.setTimeZone(TimeZone.getTimeZone(TimeZone.getAvailableIDs()[random
+					.nextInt(TimeZone.getAvailableIDs().length)]));
+			String value = format.format(new Date((long) (random.nextDouble() * 4102444800000L)));
+			assertEquals(value, format.parse(value).getTime(), codec.parseGitHubDate(value));
+		}
+	}
+
+	@Test
+	public void parseMalformedGitHubDate() throws Exception {
+		assertEquals(-1, codec.parseGitHubDate(null));
+		assertEquals(-1, codec.parseGitHubDate(""));
+		assertEquals(-1, codec.parseGitHubDate("yesterday"));
+		assertEquals(-1, codec.parseGitHubDate("2010/0x/02 22:58:39 -0800"));
+		// out of range fields are left to the lenient format
+		SimpleDateFormat format = new SimpleDateFormat(GitHubDateCodec.GITHUB_PATTERN, Locale.US);
+		assertEquals(format.parse("2010/02/30 22:58:39 -0800").getTime(),
+				codec.parseGitHubDate("2010/02/30 22:58:39 -0800"));
+	}
+
+	@Test
+	public void roundTrip() throws Exception {
+		String local = codec.toLocalDate("2010/02/02 22:58:39 -0800");
+		assertEquals(codec.parseGitHubDate("2010/02/02 22:58:39 -0800"), codec
+				.parseLocalDate(local).getTime());
+		assertEquals(codec.parseGitHubDate("2010/02/02 22:58:39 -0800"), codec
+				.parseGitHubDate(codec.toGitHubDate(local)));
+		assertEquals("not a date", codec.toLocalDate("not a date"));
+		assertEquals("not a date", codec.toGitHubDate("not a date"));
+		assertNull(codec.toLocalDate(null));
+		assertNull(codec.parseLocalDate("not a date"));
+	}
+
+	@Test
+	public void concurrentConversion() throws Exception {
+		final SimpleDateFormat format = new SimpleDateFormat(GitHubDateCodec.GITHUB_PATTERN, Locale.US);
+		final List<String> values = new ArrayList<String>();
+		for (int x = 0; x < 2000; ++x) {
+			values.add(format.format(new Date(1265000000000L + x * 3599000L)));
+		}
+		final List<String> expected = new ArrayList<String>();
+		for (String value : values) {
+			expected.add(codec.toLocalDate(value));
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<Void>> futures = new ArrayList<Future<Void>>();
+			for (int thread = 0; thread < 8; ++thread) {
+				futures.add(executor.submit(new Callable<Void>() {
+					public Void call() throws Exception {
+						for (int round = 0; round < 20; ++round) {
+							for (int x = 0; x < values.size(); ++x) {
+								assertEquals(expected.get(x), codec.toLocalDate(values.get(x)));
+							}
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
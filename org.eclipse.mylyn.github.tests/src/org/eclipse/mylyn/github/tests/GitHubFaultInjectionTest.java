@@ -0,0 +1,257 @@
+/*
+ * Copyright 2009 Christian Trutz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.eclipse.mylyn.github.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.mylyn.github.internal.GitHub;
+import org.eclipse.mylyn.github.internal.GitHubConnectionPool;
+import org.eclipse.mylyn.github.internal.GitHubMetrics;
+import org.eclipse.mylyn.github.internal.GitHubRepositoryConnector;
+import org.eclipse.mylyn.github.internal.GitHubRetryPolicy;
+import org.eclipse.mylyn.github.internal.GitHubService;
+import org.eclipse.mylyn.github.internal.GitHubTimer;
+import org.eclipse.mylyn.github.tests.GitHubFaultProfile.Fault;
+import org.eclipse.mylyn.internal.tasks.core.RepositoryQuery;
+import org.eclipse.mylyn.tasks.core.TaskRepository;
+import org.eclipse.mylyn.tasks.core.data.TaskData;
+import org.eclipse.mylyn.tasks.core.data.TaskDataCollector;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Measures how synchronization degrades when the {@link GitHubStubServer}
+ * is slow or unreliable, to tune timeouts and retries with. Like
+ * {@link GitHubLoadTest} it runs for a while and is not part of
+ * {@link AllHeadlessTests}.
+ * <p>
+ * Every test synchronizes a repository repeatedly under one
+ * {@link GitHubFaultProfile} and prints how many synchronizations succeeded,
+ * their throughput and completion times, and the retries they needed,
+ * compared with a run without faults. The retries are set with the system
+ * properties {@code github.faulttest.attempts}, {@code .baseDelay} and
+ * {@code .maxDelay}.
+ */
+@SuppressWarnings("restriction")
+@RunWith(JUnit4.class)
+public class GitHubFaultInjectionTest {
+
+	private static final int ISSUES = Integer.getInteger("github.faulttest.issues", 500)
+			.intValue();
+
+	private static final int THREADS = Integer.getInteger("github.faulttest.threads", 4)
+			.intValue();
+
+	private static final int SYNCHRONIZATIONS = Integer.getInteger(
+			"github.faulttest.synchronizations", 40).intValue();
+
+	private static final int ATTEMPTS = Integer.getInteger("github.faulttest.attempts",
+			GitHubRetryPolicy.DEFAULT_MAX_ATTEMPTS).intValue();
+
+	private static final long BASE_DELAY = Long.getLong("github.faulttest.baseDelay", 100)
+			.longValue();
+
+	private static final long MAX_DELAY = Long.getLong("github.faulttest.maxDelay", 2000)
+			.longValue();
+
+	private static final long SEED = 42;
+
+	private static final String USER = "octocat";
+
+	private static final String PROJECT = "faults";
+
+	/**
+	 * The outcome of synchronizing under one profile.
+	 */
+	private static class Result {
+		final GitHubFaultProfile profile;
+		final GitHubTimer timer;
+		int succeeded;
+		long elapsedMillis;
+		long retries;
+
+		Result(GitHubFaultProfile profile) {
+			this.profile = profile;
+			timer = new GitHubMetrics().getTimer(profile.getName());
+		}
+
+		double getThroughput() {
+			return succeeded * 1000.0 / Math.max(1, elapsedMillis);
+		}
+	}
+
+	private static GitHubStubServer server;
+
+	private static Result baseline;
+
+	@BeforeClass
+	public static void startServer() throws Exception {
+		server = new GitHubStubServer();
+		server.addRepository(USER, PROJECT, ISSUES);
+		// compiles the code paths, so that the baseline is not slowed down by it
+		synchronize(new GitHubFaultProfile("warm-up", SEED));
+		baseline = synchronize(new GitHubFaultProfile("no faults", SEED));
+	}
+
+	@AfterClass
+	public static void stopServer() throws Exception {
+		server.stop();
+	}
+
+	@Test
+	public void noFaults() {
+		assertEquals(SYNCHRONIZATIONS, baseline.succeeded);
+	}
+
+	@Test
+	public void latency() throws Exception {
+		Result result = synchronize(new GitHubFaultProfile("latency 20 ms, spread 1", SEED)
+				.setLatency(20, 1.0));
+		assertEquals(SYNCHRONIZATIONS, result.succeeded);
+	}
+
+	@Test
+	public void serverErrors() throws Exception {
+		Result result = synchronize(new GitHubFaultProfile("5% server errors", SEED).setRate(
+				Fault.SERVER_ERROR, 0.05));
+		// retried
+		assertTrue(result.retries > 0);
+	}
+
+	@Test
+	public void connectionResets() throws Exception {
+		Result result = synchronize(new GitHubFaultProfile("5% connection resets", SEED)
+				.setRate(Fault.CONNECTION_RESET, 0.05));
+		assertTrue(result.succeeded > 0);
+	}
+
+	@Test
+	public void truncatedBodies() throws Exception {
+		Result result = synchronize(new GitHubFaultProfile("5% truncated bodies", SEED)
+				.setRate(Fault.TRUNCATED_BODY, 0.05));
+		assertTrue(result.succeeded > 0);
+	}
+
+	@Test
+	public void rateLimits() throws Exception {
+		Result result = synchronize(new GitHubFaultProfile("2% rate limits", SEED).setRate(
+				Fault.RATE_LIMIT, 0.02));
+		assertTrue(result.succeeded > 0);
+	}
+
+	@Test
+	public void flakyNetwork() throws Exception {
+		Result result = synchronize(new GitHubFaultProfile("flaky network", SEED)
+				.setLatency(20, 1.0).setRate(Fault.SERVER_ERROR, 0.02).setRate(
+						Fault.CONNECTION_RESET, 0.02).setRate(Fault.TRUNCATED_BODY, 0.01));
+		assertTrue(result.succeeded > 0);
+	}
+
+	/**
+	 * Synchronize the repository {@link #SYNCHRONIZATIONS} times on
+	 * {@link #THREADS} threads under the profile and print the result.
+	 */
+	private static Result synchronize(GitHubFaultProfile profile) throws Exception {
+		final Result result = new Result(profile);
+		GitHubService service = new GitHubService(GitHubConnectionPool.getDefault()
+				.getHttpClient(), server.getApiUrl());
+		GitHubRetryPolicy retryPolicy = new GitHubRetryPolicy(ATTEMPTS, BASE_DELAY, MAX_DELAY);
+		service.setRetryPolicy(retryPolicy);
+		final GitHubRepositoryConnector connector = new GitHubRepositoryConnector(service);
+		final TaskRepository repository = new TaskRepository(GitHub.CONNECTOR_KIND,
+				GitHub.HTTP_GITHUB_COM + "/" + USER + "/" + PROJECT);
+		final RepositoryQuery query = new RepositoryQuery(GitHub.CONNECTOR_KIND, "query");
+		query.setRepositoryUrl(repository.getRepositoryUrl());
+		query.setAttribute("status", "all");
+		final AtomicInteger remaining = new AtomicInteger(SYNCHRONIZATIONS);
+		final AtomicInteger succeeded = new AtomicInteger();
+
+		server.setFaultProfile(profile);
+		ExecutorService threads = Executors.newFixedThreadPool(THREADS);
+		List<Future<Object>> futures = new ArrayList<Future<Object>>(THREADS);
+		long start = System.nanoTime();
+		try {
+			for (int i = 0; i < THREADS; ++i) {
+				futures.add(threads.submit(new Callable<Object>() {
+					public Object call() throws Exception {
+						while (remaining.getAndDecrement() > 0) {
+							long synchronizationStart = System.nanoTime();
+							final AtomicInteger collected = new AtomicInteger();
+							IStatus status = connector.performQuery(repository, query,
+									new TaskDataCollector() {
+										@Override
+										public void accept(TaskData taskData) {
+											collected.incrementAndGet();
+										}
+									}, null, new NullProgressMonitor());
+							result.timer.recordSince(synchronizationStart);
+							if (status.isOK() && collected.get() == ISSUES) {
+								succeeded.incrementAndGet();
+							}
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<Object> future : futures) {
+				future.get();
+			}
+		} finally {
+			threads.shutdownNow();
+			server.setFaultProfile(null);
+		}
+		result.elapsedMillis = (System.nanoTime() - start) / 1000000L;
+		result.succeeded = succeeded.get();
+		for (Long retries : retryPolicy.getRetryCounts().values()) {
+			result.retries += retries.longValue();
+		}
+		print(result);
+		return result;
+	}
+
+	private static void print(Result result) {
+		StringBuilder line = new StringBuilder(String.format(
+				"%s: %d of %d synchronizations in %d ms, %.2f/s, p50 %.0f ms,"
+						+ " p99 %.0f ms, %d retries", result.profile, Integer
+						.valueOf(result.succeeded), Integer.valueOf(SYNCHRONIZATIONS), Long
+						.valueOf(result.elapsedMillis), Double.valueOf(result
+						.getThroughput()), Double.valueOf(result.timer
+						.get50thPercentileMillis()), Double.valueOf(result.timer
+						.get99thPercentileMillis()), Long.valueOf(result.retries)));
+		if (baseline != null && baseline.succeeded > 0) {
+			line.append(String.format(", throughput %.0f%%, p99 %.1fx of no faults", Double
+					.valueOf(100 * result.getThroughput() / baseline.getThroughput()),
+					Double.valueOf(result.timer.get99thPercentileMillis()
+							/ baseline.timer.get99thPercentileMillis())));
+		}
+		System.out.println(line);
+	}
+}
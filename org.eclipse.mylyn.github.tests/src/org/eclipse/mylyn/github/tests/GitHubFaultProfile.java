@@ -0,0 +1,170 @@
+/*
+ * Copyright 2009 Christian Trutz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.eclipse.mylyn.github.tests;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Faults and latency the {@link GitHubStubServer} injects into its
+ * responses, so that tests can observe how the connector copes with slow and
+ * flaky networks.
+ * <p>
+ * Each request suffers at most one fault, drawn with the configured rates.
+ * Latencies follow a log-normal distribution around the median, which gives
+ * the long tail seen on real networks. The faults are drawn from a seeded
+ * random generator, so a profile injects the same sequence on every run.
+ */
+public class GitHubFaultProfile {
+
+	public enum Fault {
+		/**
+		 * the request is answered normally
+		 */
+		NONE,
+		/**
+		 * {@code 503 Service Unavailable}
+		 */
+		SERVER_ERROR,
+		/**
+		 * {@code 403 Forbidden} with a used up quota and {@code Retry-After}
+		 */
+		RATE_LIMIT,
+		/**
+		 * the connection is closed after half of the response body
+		 */
+		TRUNCATED_BODY,
+		/**
+		 * the connection is reset before the request is answered
+		 */
+		CONNECTION_RESET
+	}
+
+	private final String name;
+
+	private final Random random;
+
+	private final double[] rates = new double[Fault.values().length];
+
+	private final AtomicLongArray counts = new AtomicLongArray(Fault.values().length);
+
+	private long medianLatency;
+
+	private double latencySpread;
+
+	private int retryAfterSeconds = 1;
+
+	/**
+	 * Create a profile injecting nothing.
+	 */
+	public GitHubFaultProfile(String name, long seed) {
+		this.name = name;
+		random = new Random(seed);
+	}
+
+	/**
+	 * Delay every response.
+	 * 
+	 * @param medianMillis
+	 *            - The median latency
+	 * @param spread
+	 *            - The standard deviation of the logarithm of the latency, 0
+	 *            for a constant latency; 1 makes one response in a hundred
+	 *            about ten times slower than the median
+	 */
+	public GitHubFaultProfile setLatency(long medianMillis, double spread) {
+		medianLatency = medianMillis;
+		latencySpread = spread;
+		return this;
+	}
+
+	/**
+	 * Inject the fault into the given fraction of the requests.
+	 */
+	public GitHubFaultProfile setRate(Fault fault, double rate) {
+		rates[fault.ordinal()] = rate;
+		return this;
+	}
+
+	/**
+	 * Set the delay rate limited responses ask for.
+	 */
+	public GitHubFaultProfile setRetryAfter(int seconds) {
+		retryAfterSeconds = seconds;
+		return this;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getRetryAfter() {
+		return retryAfterSeconds;
+	}
+
+	/**
+	 * Draw the fault for the next request.
+	 */
+	public Fault nextFault() {
+		double value;
+		synchronized (random) {
+			value = random.nextDouble();
+		}
+		Fault fault = Fault.NONE;
+		for (Fault candidate : Fault.values()) {
+			value -= rates[candidate.ordinal()];
+			if (candidate != Fault.NONE && value < 0) {
+				fault = candidate;
+				break;
+			}
+		}
+		counts.incrementAndGet(fault.ordinal());
+		return fault;
+	}
+
+	/**
+	 * Draw the latency of the next response in milliseconds.
+	 */
+	public long nextLatency() {
+		if (medianLatency <= 0) {
+			return 0;
+		}
+		double gaussian;
+		synchronized (random) {
+			gaussian = random.nextGaussian();
+		}
+		return Math.round(medianLatency * Math.exp(latencySpread * gaussian));
+	}
+
+	/**
+	 * the number of requests the fault was injected into so far
+	 */
+	public long getCount(Fault fault) {
+		return counts.get(fault.ordinal());
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder description = new StringBuilder(name);
+		for (Fault fault : Fault.values()) {
+			if (fault != Fault.NONE && getCount(fault) > 0) {
+				description.append(", ").append(fault).append(' ').append(getCount(fault));
+			}
+		}
+		return description.toString();
+	}
+}
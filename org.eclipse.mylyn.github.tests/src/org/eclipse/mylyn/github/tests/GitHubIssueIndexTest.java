@@ -0,0 +1,92 @@
+package org.eclipse.mylyn.github.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.mylyn.github.internal.GitHubIssue;
+import org.eclipse.mylyn.github.internal.GitHubIssueIndex;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@SuppressWarnings("restriction")
+@RunWith(JUnit4.class)
+public class GitHubIssueIndexTest {
+
+	private static final String REPOSITORY = "http://github.com/foo/bar";
+
+	private GitHubIssueIndex index;
+
+	@Before
+	public void before() {
+		index = new GitHubIssueIndex();
+		index.addAll(REPOSITORY, Arrays.asList(
+				createIssue("1", "open", "NullPointerException in editor", "Opening a task fails."),
+				createIssue("2", "closed", "Query page layout", "The status combo is too narrow."),
+				createIssue("10", "open", "Synchronization is slow", "Listing 10k issues takes minutes; see the editor too.")));
+		index.addAll("http://github.com/foo/other", Arrays.asList(
+				createIssue("1", "open", "Editor in other repository", "")));
+	}
+
+	@Test
+	public void prefixSearch() {
+		assertEquals(Arrays.asList("1", "10"), index.search(REPOSITORY, "edit", null));
+		assertEquals(Arrays.asList("1"), index.search(REPOSITORY, "nullpointer", null));
+		assertEquals(Arrays.asList("10"), index.search(REPOSITORY, "10K", null));
+		assertTrue(index.search(REPOSITORY, "editors", null).isEmpty());
+	}
+
+	@Test
+	public void allWordsMatch() {
+		assertEquals(Arrays.asList("10"), index.search(REPOSITORY, "slow editor", null));
+		assertTrue(index.search(REPOSITORY, "slow combo", null).isEmpty());
+	}
+
+	@Test
+	public void stateFilter() {
+		assertEquals(Arrays.asList("2"), index.search(REPOSITORY, "the", "closed"));
+		assertEquals(Arrays.asList("1", "10"), index.search(REPOSITORY, "", "open"));
+		assertEquals(Arrays.asList("1", "2", "10"), index.search(REPOSITORY, null, null));
+	}
+
+	@Test
+	public void updateReplacesWords() {
+		index.addAll(REPOSITORY, Arrays.asList(createIssue("2", "open", "Query page fixed", "")));
+		assertTrue(index.search(REPOSITORY, "combo", null).isEmpty());
+		assertEquals(Arrays.asList("2"), index.search(REPOSITORY, "fixed", "open"));
+		assertEquals(3, index.size(REPOSITORY));
+	}
+
+	@Test
+	public void repositories() {
+		assertTrue(index.contains(REPOSITORY));
+		assertFalse(index.contains("http://github.com/foo/unknown"));
+		assertEquals(1, index.search("http://github.com/foo/other", "editor", null).size());
+		assertTrue(index.search("http://github.com/foo/unknown", "editor", null).isEmpty());
+	}
+
+	@Test
+	public void manyIssues() {
+		List<GitHubIssue> issues = new ArrayList<GitHubIssue>();
+		for (int x = 0; x < 20000; ++x) {
+			issues.add(createIssue(Integer.toString(x), x % 2 == 0 ? "open" : "closed",
+					"issue " + x, "word" + (x % 100) + " common"));
+		}
+		index.addAll("http://github.com/foo/large", issues);
+		assertEquals(200, index.search("http://github.com/foo/large", "word42 common", null).size());
+		assertEquals(10000, index.search("http://github.com/foo/large", "comm", "open").size());
+		assertEquals(1, index.search("http://github.com/foo/large", "19999", null).size());
+	}
+
+	private static GitHubIssue createIssue(String number, String state, String title, String body) {
+		GitHubIssue issue = new GitHubIssue(number, "dgreen99", title, body);
+		issue.setState(state);
+		return issue;
+	}
+}
@@ -0,0 +1,224 @@
+package org.eclipse.mylyn.github.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.mylyn.github.internal.GitHubIssue;
+import org.eclipse.mylyn.github.internal.GitHubIssueStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@SuppressWarnings("restriction")
+@RunWith(JUnit4.class)
+public class GitHubIssueStoreTest {
+
+	private static final String REPOSITORY = "http://github.com/foo/bar";
+
+	private File file;
+
+	@Before
+	public void before() throws Exception {
+		file = File.createTempFile("issues", ".log");
+		file.delete();
+	}
+
+	@After
+	public void after() {
+		file.delete();
+	}
+
+	@Test
+	public void reopen() throws Exception {
+		GitHubIssueStore store = new GitHubIssueStore(file);
+		store.put(REPOSITORY, createIssue("1", "first"));
+		store.put(REPOSITORY, createIssue("2", "second"));
+		store.put(REPOSITORY, createIssue("1", "first, edited", "2010/02/05 10:00:00 -0800"));
+		store.put("http://github.com/foo/other", createIssue("1", "other"));
+		store.close();
+
+		store = new GitHubIssueStore(file);
+		assertEquals(3, store.size());
+		assertEquals("first, edited", store.get(REPOSITORY, "1").getTitle());
+		assertEquals("second", store.get(REPOSITORY, "2").getTitle());
+		assertEquals("2010/02/04 21:09:37 -0800", store.get(REPOSITORY, "2").getUpdated_at());
+		assertNull(store.get(REPOSITORY, "2").getClosed_at());
+		assertEquals("other", store.get("http://github.com/foo/other", "1").getTitle());
+		assertNull(store.get(REPOSITORY, "3"));
+		assertEquals(2, store.getAll(REPOSITORY).size());
+		assertTrue(store.getStoredAt(REPOSITORY, "1") > 0);
+		store.close();
+	}
+
+	@Test
+	public void compact() throws Exception {
+		GitHubIssueStore store = new GitHubIssueStore(file);
+		List<GitHubIssue> issues = new ArrayList<GitHubIssue>();
+		for (int x = 0; x < 100; ++x) {
+			issues.add(createIssue(Integer.toString(x), "title " + x));
+		}
+		store.putAll(REPOSITORY, issues);
+		for (GitHubIssue issue : issues) {
+			issue.setUpdated_at("2010/02/05 10:00:00 -0800");
+		}
+		store.putAll(REPOSITORY, issues);
+		long length = file.length();
+		store.compact();
+		assertTrue(file.length() < length);
+		assertEquals(100, store.size());
+		assertEquals("title 42", store.get(REPOSITORY, "42").getTitle());
+		store.put(REPOSITORY, createIssue("100", "title 100"));
+		store.close();
+
+		store = new GitHubIssueStore(file);
+		assertEquals(101, store.size());
+		assertEquals("title 100", store.get(REPOSITORY, "100").getTitle());
+		store.close();
+	}
+
+	@Test
+	public void truncatedRecord() throws Exception {
+		GitHubIssueStore store = new GitHubIssueStore(file);
+		store.put(REPOSITORY, createIssue("1", "first"));
+		store.put(REPOSITORY, createIssue("2", "second"));
+		store.close();
+
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		raf.setLength(raf.length() - 3);
+		raf.close();
+
+		store = new GitHubIssueStore(file);
+		assertEquals(1, store.size());
+		assertEquals("first", store.get(REPOSITORY, "1").getTitle());
+		store.put(REPOSITORY, createIssue("2", "second again"));
+		assertEquals("second again", store.get(REPOSITORY, "2").getTitle());
+		store.close();
+	}
+
+	@Test
+	public void truncatedLength() throws Exception {
+		GitHubIssueStore store = new GitHubIssueStore(file);
+		store.put(REPOSITORY, createIssue("1", "first"));
+		store.close();
+
+		// half of the length prefix of the next record
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		raf.seek(raf.length());
+		raf.writeShort(0);
+		raf.close();
+
+		store = new GitHubIssueStore(file);
+		assertEquals(1, store.size());
+		store.put(REPOSITORY, createIssue("2", "second"));
+		assertEquals("second", store.get(REPOSITORY, "2").getTitle());
+		store.close();
+
+		store = new GitHubIssueStore(file);
+		assertEquals(2, store.size());
+		assertEquals("second", store.get(REPOSITORY, "2").getTitle());
+		store.close();
+	}
+
+	@Test
+	public void corruptLength() throws Exception {
+		GitHubIssueStore store = new GitHubIssueStore(file);
+		store.put(REPOSITORY, createIssue("1", "first"));
+		store.close();
+
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		raf.seek(raf.length());
+		raf.writeInt(Integer.MAX_VALUE);
+		raf.writeInt(0);
+		raf.close();
+
+		store = new GitHubIssueStore(file);
+		assertEquals(1, store.size());
+		store.put(REPOSITORY, createIssue("2", "second"));
+		store.close();
+
+		store = new GitHubIssueStore(file);
+		assertEquals(2, store.size());
+		store.close();
+	}
+
+	@Test
+	public void unchangedIssuesNotWrittenAgain() throws Exception {
+		GitHubIssueStore store = new GitHubIssueStore(file);
+		List<GitHubIssue> issues = new ArrayList<GitHubIssue>();
+		for (int x = 0; x < 100; ++x) {
+			issues.add(createIssue(Integer.toString(x), "title " + x));
+		}
+		store.putAll(REPOSITORY, issues);
+		long length = file.length();
+		long storedAt = store.getStoredAt(REPOSITORY, "42");
+		Thread.sleep(10);
+		store.putAll(REPOSITORY, issues);
+		assertEquals(length, file.length());
+		assertTrue(store.getStoredAt(REPOSITORY, "42") > storedAt);
+		store.close();
+
+		store = new GitHubIssueStore(file);
+		store.putAll(REPOSITORY, issues);
+		assertEquals(length, file.length());
+		store.close();
+	}
+
+	@Test
+	public void compactWhileWriting() throws Exception {
+		GitHubIssueStore store = new GitHubIssueStore(file);
+		StringBuilder body = new StringBuilder();
+		for (int x = 0; x < 50; ++x) {
+			body.append("a longer issue body ");
+		}
+		List<GitHubIssue> issues = new ArrayList<GitHubIssue>();
+		for (int x = 0; x < 1000; ++x) {
+			GitHubIssue issue = createIssue(Integer.toString(x), "title " + x);
+			issue.setBody(body.toString());
+			issues.add(issue);
+		}
+		store.putAll(REPOSITORY, issues);
+		long length = file.length();
+		for (int sync = 1; sync <= 5; ++sync) {
+			for (GitHubIssue issue : issues) {
+				issue.setUpdated_at("2010/02/0" + (4 + sync) + " 10:00:00 -0800");
+			}
+			store.putAll(REPOSITORY, issues);
+		}
+		assertTrue(file.length() < 3 * length);
+		assertEquals(1000, store.size());
+		assertEquals("2010/02/09 10:00:00 -0800", store.get(REPOSITORY, "42").getUpdated_at());
+		store.close();
+	}
+
+	@Test
+	public void remove() throws Exception {
+		GitHubIssueStore store = new GitHubIssueStore(file);
+		store.put(REPOSITORY, createIssue("1", "first"));
+		store.remove(REPOSITORY, "1");
+		assertNull(store.get(REPOSITORY, "1"));
+		assertEquals(-1, store.getStoredAt(REPOSITORY, "1"));
+		store.put(REPOSITORY, createIssue("1", "first"));
+		assertEquals("first", store.get(REPOSITORY, "1").getTitle());
+		store.close();
+	}
+
+	private GitHubIssue createIssue(String number, String title) {
+		return createIssue(number, title, "2010/02/04 21:09:37 -0800");
+	}
+
+	private GitHubIssue createIssue(String number, String title, String updatedAt) {
+		GitHubIssue issue = new GitHubIssue(number, "dgreen99", title, "body of " + title);
+		issue.setState("open");
+		issue.setCreated_at("2010/02/04 21:03:54 -0800");
+		issue.setUpdated_at(updatedAt);
+		return issue;
+	}
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2009 Christian Trutz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.eclipse.mylyn.github.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.mylyn.commons.net.AuthenticationCredentials;
+import org.eclipse.mylyn.commons.net.AuthenticationType;
+import org.eclipse.mylyn.github.internal.GitHub;
+import org.eclipse.mylyn.github.internal.GitHubConnectionPool;
+import org.eclipse.mylyn.github.internal.GitHubMetrics;
+import org.eclipse.mylyn.github.internal.GitHubRepositoryConnector;
+import org.eclipse.mylyn.github.internal.GitHubService;
+import org.eclipse.mylyn.github.internal.GitHubTimer;
+import org.eclipse.mylyn.internal.tasks.core.RepositoryQuery;
+import org.eclipse.mylyn.tasks.core.IRepositoryQuery;
+import org.eclipse.mylyn.tasks.core.TaskRepository;
+import org.eclipse.mylyn.tasks.core.data.TaskAttribute;
+import org.eclipse.mylyn.tasks.core.data.TaskData;
+import org.eclipse.mylyn.tasks.core.data.TaskDataCollector;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Load tests of the connector against the {@link GitHubStubServer}. They run
+ * for a while and are therefore not part of {@link AllHeadlessTests}.
+ * <p>
+ * Every test runs an operation concurrently and prints its throughput,
+ * median and 99th percentile latency and the heap used. The size of the load
+ * is set with the system properties {@code github.loadtest.issues},
+ * {@code github.loadtest.threads} and {@code github.loadtest.iterations}
+ * (per thread).
+ */
+@SuppressWarnings("restriction")
+@RunWith(JUnit4.class)
+public class GitHubLoadTest {
+
+	private static final int ISSUES = Integer.getInteger("github.loadtest.issues", 2000)
+			.intValue();
+
+	private static final int THREADS = Integer.getInteger("github.loadtest.threads", 8)
+			.intValue();
+
+	private static final int ITERATIONS = Integer.getInteger("github.loadtest.iterations", 10)
+			.intValue();
+
+	private static final String USER = "octocat";
+
+	private static final String PROJECT = "load";
+
+	/**
+	 * An operation run many times by each thread.
+	 */
+	private interface Operation {
+		void run(int iteration) throws Exception;
+	}
+
+	private static GitHubStubServer server;
+
+	private static GitHubRepositoryConnector connector;
+
+	private static TaskRepository repository;
+
+	@BeforeClass
+	public static void startServer() throws Exception {
+		server = new GitHubStubServer();
+		server.addRepository(USER, PROJECT, ISSUES);
+		connector = new GitHubRepositoryConnector(new GitHubService(GitHubConnectionPool
+				.getDefault().getHttpClient(), server.getApiUrl()));
+		repository = new TaskRepository(GitHub.CONNECTOR_KIND, GitHub.HTTP_GITHUB_COM + "/"
+				+ USER + "/" + PROJECT);
+		repository.setCredentials(AuthenticationType.REPOSITORY,
+				new AuthenticationCredentials(USER, "token"), false);
+	}
+
+	@AfterClass
+	public static void stopServer() throws Exception {
+		server.stop();
+	}
+
+	@Test
+	public void performQuery() throws Exception {
+		final IRepositoryQuery query = createQuery("all", null);
+		run("performQuery", new Operation() {
+			public void run(int iteration) throws Exception {
+				assertEquals(ISSUES, collect(query));
+			}
+		});
+	}
+
+	@Test
+	public void performQueryText() throws Exception {
+		final IRepositoryQuery query = createQuery("open", "crash");
+		query.setAttribute("searchServer", Boolean.TRUE.toString());
+		run("performQuery with text", new Operation() {
+			public void run(int iteration) throws Exception {
+				assertTrue(collect(query) > 0);
+			}
+		});
+	}
+
+	@Test
+	public void postTaskData() throws Exception {
+		final AtomicInteger next = new AtomicInteger();
+		run("postTaskData", new Operation() {
+			public void run(int iteration) throws Exception {
+				String taskId = Integer.toString(next.getAndIncrement() % ISSUES + 1);
+				TaskData taskData = connector.getTaskData(repository, taskId,
+						new NullProgressMonitor());
+				taskData.getRoot().getAttribute(TaskAttribute.SUMMARY).setValue(
+						"Changed " + iteration);
+				connector.getTaskDataHandler().postTaskData(repository, taskData, null,
+						new NullProgressMonitor());
+			}
+		});
+	}
+
+	private IRepositoryQuery createQuery(String status, String queryText) {
+		RepositoryQuery query = new RepositoryQuery(GitHub.CONNECTOR_KIND, "query");
+		query.setRepositoryUrl(repository.getRepositoryUrl());
+		query.setAttribute("status", status);
+		if (queryText != null) {
+			query.setAttribute("queryText", queryText);
+		}
+		return query;
+	}
+
+	/**
+	 * the number of task data collected by the query
+	 */
+	private int collect(IRepositoryQuery query) {
+		final AtomicInteger collected = new AtomicInteger();
+		IStatus status = connector.performQuery(repository, query, new TaskDataCollector() {
+			@Override
+			public void accept(TaskData taskData) {
+				collected.incrementAndGet();
+			}
+		}, null, new NullProgressMonitor());
+		assertTrue(status.toString(), status.isOK());
+		return collected.get();
+	}
+
+	/**
+	 * Run the operation {@link #ITERATIONS} times on each of {@link #THREADS}
+	 * threads and print the results.
+	 */
+	private void run(String name, final Operation operation) throws Exception {
+		final GitHubTimer timer = new GitHubMetrics().getTimer(name);
+		final AtomicLong maxHeap = new AtomicLong();
+		final Runtime runtime = Runtime.getRuntime();
+		System.gc();
+		long requests = server.getRequestCount();
+		ExecutorService threads = Executors.newFixedThreadPool(THREADS);
+		List<Future<Object>> results = new ArrayList<Future<Object>>(THREADS);
+		long start = System.nanoTime();
+		try {
+			for (int i = 0; i < THREADS; ++i) {
+				results.add(threads.submit(new Callable<Object>() {
+					public Object call() throws Exception {
+						for (int iteration = 0; iteration < ITERATIONS; ++iteration) {
+							long operationStart = System.nanoTime();
+							operation.run(iteration);
+							timer.recordSince(operationStart);
+							long heap = runtime.totalMemory() - runtime.freeMemory();
+							long max;
+							while (heap > (max = maxHeap.get())
+									&& !maxHeap.compareAndSet(max, heap)) {
+								// retry
+							}
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<Object> result : results) {
+				// rethrows the first failure
+				result.get();
+			}
+		} finally {
+			threads.shutdownNow();
+		}
+		long elapsedMillis = Math.max(1, (System.nanoTime() - start) / 1000000L);
+		long count = timer.getCount();
+		System.out.println(String.format("%s: %d operations, %d requests in %d ms,"
+				+ " %.1f operations/s, p50 %.2f ms, p99 %.2f ms, max heap %d MB", name,
+				Long.valueOf(count), Long.valueOf(server.getRequestCount() - requests),
+				Long.valueOf(elapsedMillis), Double.valueOf(count * 1000.0 / elapsedMillis),
+				Double.valueOf(timer.get50thPercentileMillis()),
+				Double.valueOf(timer.get99thPercentileMillis()),
+				Long.valueOf(maxHeap.get() / (1024 * 1024))));
+		assertEquals(THREADS * ITERATIONS, timer.getCount());
+	}
+}
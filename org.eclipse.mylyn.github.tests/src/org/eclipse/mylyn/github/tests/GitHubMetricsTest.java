@@ -0,0 +1,96 @@
+package org.eclipse.mylyn.github.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.eclipse.mylyn.github.internal.GitHubMetrics;
+import org.eclipse.mylyn.github.internal.GitHubTimer;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@SuppressWarnings("restriction")
+@RunWith(JUnit4.class)
+public class GitHubMetricsTest {
+
+	private final GitHubMetrics metrics = new GitHubMetrics();
+
+	@After
+	public void after() {
+		metrics.unregisterMBeans();
+	}
+
+	@Test
+	public void percentiles() {
+		GitHubTimer timer = metrics.getTimer("test");
+		for (int x = 1; x <= 100; ++x) {
+			timer.record(x * 1000000L);
+		}
+		assertEquals(100, timer.getCount());
+		assertEquals(50.5, timer.getMeanMillis(), 0.001);
+		assertEquals(100, timer.getMaxMillis(), 0.001);
+		// buckets are accurate to a factor of two
+		assertTrue(timer.get50thPercentileMillis() >= 50);
+		assertTrue(timer.get50thPercentileMillis() <= 100);
+		assertTrue(timer.get99thPercentileMillis() >= 99);
+		assertTrue(timer.get99thPercentileMillis() <= 100);
+	}
+
+	@Test
+	public void counters() {
+		metrics.recordRequest("issues/show/", 1000, -1);
+		metrics.recordRequest("issues/edit/", 1000, 42);
+		metrics.recordResponseBytes(100, 400);
+		metrics.recordError(404);
+		metrics.recordError(404);
+		metrics.recordError(502);
+		metrics.recordCacheHit("responses");
+		metrics.recordCacheHit("responses");
+		metrics.recordCacheHit("responses");
+		metrics.recordCacheMiss("responses");
+
+		assertEquals(2, metrics.getRequestCount());
+		assertEquals(42, metrics.getRequestBytes());
+		assertEquals(100, metrics.getCompressedResponseBytes());
+		assertEquals(400, metrics.getResponseBytes());
+		assertEquals(Long.valueOf(2), metrics.getErrorCounts().get(404));
+		assertEquals(Long.valueOf(1), metrics.getErrorCounts().get(502));
+		assertEquals(0.75, metrics.getCacheHitRatio("responses"), 0.001);
+		assertEquals(1, metrics.getTimer(GitHubMetrics.REQUEST + "issues/show/").getCount());
+
+		metrics.reset();
+		assertEquals(0, metrics.getRequestCount());
+		assertTrue(metrics.getErrorCounts().isEmpty());
+		assertEquals(0, metrics.getTimer(GitHubMetrics.REQUEST + "issues/show/").getCount());
+	}
+
+	@Test
+	public void mbeans() throws Exception {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		GitHubMetrics.getDefault().registerMBeans();
+		metrics.getTimer("before");
+		metrics.registerMBeans();
+		metrics.getTimer("after").record(2000000L);
+		metrics.recordRequest("issues/show/", 1000, -1);
+
+		String prefix = GitHubMetrics.DOMAIN + ":type=Timer,instance=" + metrics.getInstance()
+				+ ",name=";
+		assertEquals(Long.valueOf(1), server.getAttribute(new ObjectName(GitHubMetrics.DOMAIN
+				+ ":type=Metrics,instance=" + metrics.getInstance()), "RequestCount"));
+		ObjectName after = new ObjectName(prefix + ObjectName.quote("after"));
+		assertEquals(Long.valueOf(1), server.getAttribute(after, "Count"));
+		assertTrue(server.isRegistered(new ObjectName(prefix + ObjectName.quote("before"))));
+
+		metrics.unregisterMBeans();
+		assertTrue(!server.isRegistered(after));
+		// the metrics of the connector stay registered
+		assertTrue(server.isRegistered(new ObjectName(GitHubMetrics.DOMAIN
+				+ ":type=Metrics,instance=default")));
+	}
+}
@@ -0,0 +1,114 @@
+package org.eclipse.mylyn.github.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.List;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.mylyn.github.internal.GitHubIssue;
+import org.eclipse.mylyn.github.internal.GitHubLabelChange;
+import org.eclipse.mylyn.github.internal.GitHubOutgoingOperation;
+import org.eclipse.mylyn.github.internal.GitHubOutgoingQueue;
+import org.eclipse.mylyn.github.internal.GitHubService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@SuppressWarnings("restriction")
+@RunWith(JUnit4.class)
+public class GitHubOutgoingQueueTest {
+
+	private static final String REPOSITORY = "http://github.com/foo/bar";
+
+	private File file;
+
+	@Before
+	public void before() throws Exception {
+		file = File.createTempFile("outgoing", ".dat");
+		file.delete();
+	}
+
+	@After
+	public void after() {
+		file.delete();
+		new File(file.getPath() + ".tmp").delete();
+	}
+
+	@Test
+	public void reopen() throws Exception {
+		GitHubOutgoingQueue queue = new GitHubOutgoingQueue(file, new GitHubService());
+		queue.add(GitHubOutgoingOperation.edit(REPOSITORY, createIssue("1", "first"),
+				"2010/02/04 21:09:37 -0800"));
+		queue.add(GitHubOutgoingOperation.changeStatus(REPOSITORY, "1", true));
+		queue.add(GitHubOutgoingOperation.changeLabel(REPOSITORY, new GitHubLabelChange(2,
+				"bug", GitHubLabelChange.Kind.ADD)));
+		queue.close();
+
+		queue = new GitHubOutgoingQueue(file, new GitHubService());
+		List<GitHubOutgoingOperation> operations = queue.getOperations();
+		assertEquals(3, operations.size());
+		assertEquals(GitHubOutgoingOperation.Kind.EDIT, operations.get(0).getKind());
+		assertEquals("first", operations.get(0).getTitle());
+		assertEquals("body of first", operations.get(0).getBody());
+		assertEquals("2010/02/04 21:09:37 -0800", operations.get(0).getBaseUpdatedAt());
+		assertEquals(GitHubOutgoingOperation.Kind.CLOSE, operations.get(1).getKind());
+		assertEquals(GitHubOutgoingOperation.Kind.ADD_LABEL, operations.get(2).getKind());
+		assertEquals("2", operations.get(2).getIssueNumber());
+		assertEquals("bug", operations.get(2).getLabel());
+		assertTrue(queue.hasPending(REPOSITORY));
+		assertFalse(queue.hasPending("http://github.com/foo/other"));
+		queue.close();
+	}
+
+	@Test
+	public void crashWhileReplaced() throws Exception {
+		GitHubOutgoingQueue queue = new GitHubOutgoingQueue(file, new GitHubService());
+		queue.add(GitHubOutgoingOperation.changeStatus(REPOSITORY, "1", true));
+		queue.close();
+
+		// the old file was deleted, the new one not renamed yet
+		assertTrue(file.renameTo(new File(file.getPath() + ".tmp")));
+		queue = new GitHubOutgoingQueue(file, new GitHubService());
+		assertEquals(1, queue.size());
+		queue.add(GitHubOutgoingOperation.changeStatus(REPOSITORY, "2", true));
+		queue.close();
+
+		queue = new GitHubOutgoingQueue(file, new GitHubService());
+		assertEquals(2, queue.size());
+		queue.close();
+	}
+
+	@Test
+	public void coalesceEdits() throws Exception {
+		GitHubOutgoingQueue queue = new GitHubOutgoingQueue(file, new GitHubService());
+		queue.add(GitHubOutgoingOperation.edit(REPOSITORY, createIssue("1", "first"),
+				"2010/02/04 21:09:37 -0800"));
+		queue.add(GitHubOutgoingOperation.changeStatus(REPOSITORY, "1", true));
+		queue.add(GitHubOutgoingOperation.edit(REPOSITORY, createIssue("1", "first, edited"),
+				"2010/02/05 10:00:00 -0800"));
+		queue.add(GitHubOutgoingOperation.edit(REPOSITORY, createIssue("2", "second"), null));
+
+		// without credentials nothing is sent
+		assertEquals(-1, queue.drain(new NullProgressMonitor()));
+		List<GitHubOutgoingOperation> operations = queue.getOperations();
+		assertEquals(3, operations.size());
+		assertEquals(GitHubOutgoingOperation.Kind.CLOSE, operations.get(0).getKind());
+		assertEquals("first, edited", operations.get(1).getTitle());
+		assertEquals("2010/02/04 21:09:37 -0800", operations.get(1).getBaseUpdatedAt());
+		assertEquals("second", operations.get(2).getTitle());
+		queue.close();
+
+		queue = new GitHubOutgoingQueue(file, new GitHubService());
+		assertEquals(3, queue.size());
+		queue.close();
+	}
+
+	private GitHubIssue createIssue(String number, String title) {
+		return new GitHubIssue(number, "dgreen99", title, "body of " + title);
+	}
+}
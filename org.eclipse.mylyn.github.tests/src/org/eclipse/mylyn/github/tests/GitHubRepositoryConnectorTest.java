@@ -0,0 +1,93 @@
+package org.eclipse.mylyn.github.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.mylyn.github.internal.GitHub;
+import org.eclipse.mylyn.github.internal.GitHubIssue;
+import org.eclipse.mylyn.github.internal.GitHubRepositoryConnector;
+import org.eclipse.mylyn.github.internal.GitHubTaskDataHandler;
+import org.eclipse.mylyn.internal.tasks.core.TaskTask;
+import org.eclipse.mylyn.tasks.core.ITask;
+import org.eclipse.mylyn.tasks.core.TaskRepository;
+import org.eclipse.mylyn.tasks.core.data.TaskData;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@SuppressWarnings("restriction")
+@RunWith(JUnit4.class)
+public class GitHubRepositoryConnectorTest {
+
+	private static final String UPDATED = "2010/02/02 22:58:39 -0800";
+
+	private GitHubRepositoryConnector connector;
+
+	private TaskRepository repository;
+
+	private ITask task;
+
+	@Before
+	public void before() {
+		connector = new GitHubRepositoryConnector();
+		repository = new TaskRepository(GitHub.CONNECTOR_KIND, GitHub.HTTP_GITHUB_COM
+				+ "/dgreen99/test");
+		task = new TaskTask(GitHub.CONNECTOR_KIND, repository.getRepositoryUrl(), "1");
+	}
+
+	@Test
+	public void unchangedModificationDate() {
+		connector.updateTaskFromTaskData(repository, task, createTaskData("Title", UPDATED));
+		assertEquals("Title", task.getSummary());
+		assertFalse(connector.hasTaskChanged(repository, task, createTaskData("Title", UPDATED)));
+	}
+
+	@Test
+	public void changedModificationDate() {
+		connector.updateTaskFromTaskData(repository, task, createTaskData("Title", UPDATED));
+		assertTrue(connector.hasTaskChanged(repository, task, createTaskData("Title",
+				"2010/02/03 08:00:00 -0800")));
+	}
+
+	@Test
+	public void withoutModificationDate() {
+		// the attributes of the task are compared instead
+		connector.updateTaskFromTaskData(repository, task, createTaskData("Title", null));
+		assertFalse(connector.hasTaskChanged(repository, task, createTaskData("Title", null)));
+		assertTrue(connector.hasTaskChanged(repository, task, createTaskData("Changed", null)));
+
+		// a task last updated without a modification date
+		assertTrue(connector.hasTaskChanged(repository, task, createTaskData("Changed", UPDATED)));
+		assertFalse(connector.hasTaskChanged(repository, task, createTaskData("Title", UPDATED)));
+	}
+
+	@Test
+	public void createdWithoutThreads() {
+		int threads = countOutgoingThreads();
+		for (int x = 0; x < 10; ++x) {
+			new GitHubRepositoryConnector();
+		}
+		assertEquals(threads, countOutgoingThreads());
+	}
+
+	private static int countOutgoingThreads() {
+		int count = 0;
+		for (Thread thread : Thread.getAllStackTraces().keySet()) {
+			if (thread.getName().equals("GitHub outgoing")) {
+				++count;
+			}
+		}
+		return count;
+	}
+
+	private TaskData createTaskData(String title, String updated) {
+		GitHubIssue issue = new GitHubIssue("1", "dgreen99", title, "Body");
+		issue.setState("open");
+		issue.setUpdated_at(updated);
+		return ((GitHubTaskDataHandler) connector.getTaskDataHandler()).createPartialTaskData(
+				repository, new NullProgressMonitor(), "dgreen99", "test", issue);
+	}
+}
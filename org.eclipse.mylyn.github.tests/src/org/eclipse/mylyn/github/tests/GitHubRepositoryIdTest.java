@@ -0,0 +1,47 @@
+package org.eclipse.mylyn.github.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.eclipse.mylyn.github.internal.GitHub;
+import org.eclipse.mylyn.github.internal.GitHubRepositoryId;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@SuppressWarnings("restriction")
+@RunWith(JUnit4.class)
+public class GitHubRepositoryIdTest {
+
+	@Test
+	public void parse() {
+		GitHubRepositoryId id = GitHubRepositoryId.get("http://github.com/smilebase/org.eclipse.mylyn.github");
+		assertEquals(GitHub.HTTP_GITHUB_COM, id.getBaseUrl());
+		assertEquals("smilebase", id.getUser());
+		assertEquals("org.eclipse.mylyn.github", id.getProject());
+
+		id = GitHubRepositoryId.get("http://www.github.org/dgreen99/project");
+		assertEquals(GitHub.HTTP_WWW_GITHUB_ORG, id.getBaseUrl());
+		assertEquals("dgreen99", id.getUser());
+
+		assertNull(GitHubRepositoryId.get("http://example.com/foo/bar"));
+		assertNull(GitHubRepositoryId.get((String) null));
+	}
+
+	@Test
+	public void interned() {
+		assertSame(GitHubRepositoryId.get("http://github.com/foo/bar"),
+				GitHubRepositoryId.get(new String("http://github.com/foo/bar")));
+	}
+
+	@Test
+	public void taskUrl() {
+		GitHubRepositoryId id = GitHubRepositoryId.get("http://github.com/foo/bar");
+		String taskUrl = id.getTaskUrl("42");
+		assertEquals("http://github.com/foo/bar/issues/issue/42", taskUrl);
+		assertEquals(id.getRepositoryUrl(), GitHubRepositoryId.getRepositoryUrlFromTaskUrl(taskUrl));
+		assertEquals("42", GitHubRepositoryId.getTaskIdFromTaskUrl(taskUrl));
+		assertNull(GitHubRepositoryId.getTaskIdFromTaskUrl("http://github.com/foo/bar"));
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2009 Christian Trutz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.eclipse.mylyn.github.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.apache.commons.httpclient.Header;
+import org.apache.commons.httpclient.methods.GetMethod;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.mylyn.github.internal.GitHubRequestScheduler;
+import org.eclipse.mylyn.github.internal.GitHubRequestScheduler.Priority;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@SuppressWarnings("restriction")
+@RunWith(JUnit4.class)
+public class GitHubRequestSchedulerTest {
+
+	private static final String KEY = "octocat";
+
+	private final GitHubRequestScheduler scheduler = new GitHubRequestScheduler(0.2, 60 * 1000L);
+
+	@Test
+	public void concurrentRequestsKeepWindow() throws Exception {
+		scheduler.update(KEY, createResponse(60, 50, -1));
+		long resetTime = scheduler.getResetTime(KEY);
+		// two requests in flight, answered one after the other
+		scheduler.acquire(KEY, Priority.BACKGROUND, null);
+		scheduler.acquire(KEY, Priority.BACKGROUND, null);
+		assertEquals(48, scheduler.getRemaining(KEY));
+		Thread.sleep(20);
+		scheduler.update(KEY, createResponse(60, 49, -1));
+		assertEquals(48, scheduler.getRemaining(KEY));
+		scheduler.update(KEY, createResponse(60, 48, -1));
+		assertEquals(48, scheduler.getRemaining(KEY));
+		assertEquals(resetTime, scheduler.getResetTime(KEY));
+
+		// the server reporting more than before starts a new window
+		Thread.sleep(20);
+		scheduler.update(KEY, createResponse(60, 59, -1));
+		assertEquals(59, scheduler.getRemaining(KEY));
+		assertTrue(scheduler.getResetTime(KEY) > resetTime);
+	}
+
+	@Test
+	public void resetHeader() throws Exception {
+		long reset = System.currentTimeMillis() / 1000 + 3600;
+		scheduler.update(KEY, createResponse(5000, 4000, reset));
+		scheduler.acquire(KEY, Priority.BACKGROUND, null);
+		scheduler.update(KEY, createResponse(5000, 4001, reset));
+		assertEquals(reset * 1000L, scheduler.getResetTime(KEY));
+	}
+
+	@Test
+	public void cancelWait() throws Exception {
+		scheduler.update(KEY, createResponse(60, 5, -1));
+		final NullProgressMonitor monitor = new NullProgressMonitor();
+		new Thread() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(200);
+				} catch (InterruptedException e) {
+					// cancel right away
+				}
+				monitor.setCanceled(true);
+			}
+		}.start();
+		long start = System.currentTimeMillis();
+		try {
+			// background requests leave the last 12 requests to the user
+			scheduler.acquire(KEY, Priority.BACKGROUND, monitor);
+			fail("waited for the reset");
+		} catch (OperationCanceledException e) {
+			assertTrue(System.currentTimeMillis() - start < 5000);
+		}
+	}
+
+	@Test
+	public void interruptWait() throws Exception {
+		scheduler.update(KEY, createResponse(60, 5, -1));
+		Thread.currentThread().interrupt();
+		try {
+			scheduler.acquire(KEY, Priority.BACKGROUND, null);
+			fail("waited for the reset");
+		} catch (OperationCanceledException e) {
+			// the interrupt is kept for the caller
+			assertTrue(Thread.interrupted());
+		}
+	}
+
+	private static GetMethod createResponse(final int limit, final int remaining,
+			final long reset) {
+		return new GetMethod() {
+			{
+				getResponseHeaderGroup().addHeader(
+						new Header("X-RateLimit-Limit", Integer.toString(limit)));
+				getResponseHeaderGroup().addHeader(
+						new Header("X-RateLimit-Remaining", Integer.toString(remaining)));
+				if (reset > 0) {
+					getResponseHeaderGroup().addHeader(
+							new Header("X-RateLimit-Reset", Long.toString(reset)));
+				}
+			}
+		};
+	}
+}
@@ -0,0 +1,81 @@
+package org.eclipse.mylyn.github.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.apache.commons.httpclient.StatusLine;
+import org.eclipse.mylyn.github.internal.GitHubRetryPolicy;
+import org.eclipse.mylyn.github.internal.GitHubServiceException;
+import org.eclipse.mylyn.github.internal.RateLimitExceededException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@SuppressWarnings("restriction")
+@RunWith(JUnit4.class)
+public class GitHubRetryPolicyTest {
+
+	private final GitHubRetryPolicy policy = new GitHubRetryPolicy(4, 100, 1000);
+
+	@Test
+	public void retryable() throws Exception {
+		assertTrue(policy.isRetryable(createException("HTTP/1.1 502 Bad Gateway")));
+		assertTrue(policy.isRetryable(createException("HTTP/1.1 503 Service Unavailable")));
+		assertTrue(policy.isRetryable(new GitHubServiceException(new IOException("Connection reset")) {
+			private static final long serialVersionUID = 1L;
+		}));
+		assertFalse(policy.isRetryable(createException("HTTP/1.1 404 Not Found")));
+		assertFalse(policy.isRetryable(createException("HTTP/1.1 422 Unprocessable Entity")));
+		assertFalse(policy.isRetryable(new RateLimitExceededException(System.currentTimeMillis()) {
+			private static final long serialVersionUID = 1L;
+		}));
+	}
+
+	@Test
+	public void cappedExponentialBackoff() throws Exception {
+		GitHubServiceException e = createException("HTTP/1.1 502 Bad Gateway");
+		for (int x = 0; x < 1000; ++x) {
+			long first = policy.getDelay(1, e, -1);
+			assertTrue(first >= 0 && first <= 100);
+			long second = policy.getDelay(2, e, -1);
+			assertTrue(second >= 0 && second <= 200);
+			long third = policy.getDelay(3, e, -1);
+			assertTrue(third >= 0 && third <= 400);
+		}
+		assertEquals(-1, policy.getDelay(4, e, -1));
+		long capped = new GitHubRetryPolicy(40, 100, 1000).getDelay(39, e, -1);
+		assertTrue(capped >= 0 && capped <= 1000);
+	}
+
+	@Test
+	public void retryAfter() throws Exception {
+		GitHubServiceException e = createException("HTTP/1.1 503 Service Unavailable");
+		assertEquals(700, policy.getDelay(1, e, 700));
+		assertEquals(-1, policy.getDelay(1, e, 5000));
+		assertEquals(-1, policy.getDelay(1, createException("HTTP/1.1 404 Not Found"), 700));
+	}
+
+	@Test
+	public void retryCounts() {
+		policy.recordRetry("issues/show/");
+		policy.recordRetry("issues/show/");
+		policy.recordRetry("issues/list/");
+		assertEquals(Long.valueOf(2), policy.getRetryCounts().get("issues/show/"));
+		assertEquals(Long.valueOf(1), policy.getRetryCounts().get("issues/list/"));
+		assertEquals(-1, GitHubRetryPolicy.NONE.getDelay(1,
+				createException("HTTP/1.1 502 Bad Gateway"), -1));
+	}
+
+	private static GitHubServiceException createException(String statusLine) {
+		try {
+			return new GitHubServiceException(new StatusLine(statusLine)) {
+				private static final long serialVersionUID = 1L;
+			};
+		} catch (Exception e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+}
@@ -0,0 +1,668 @@
+/*
+ * Copyright 2009 Christian Trutz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.eclipse.mylyn.github.tests;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.URLDecoder;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.eclipse.mylyn.github.internal.GitHubDateCodec;
+import org.eclipse.mylyn.github.internal.GitHubIssue;
+import org.eclipse.mylyn.github.tests.GitHubFaultProfile.Fault;
+
+import com.google.gson.Gson;
+
+/**
+ * In-process HTTP server answering the issue requests of the GitHub API v2
+ * from synthetic repositories, so that {@code GitHubService} can be tested
+ * and loaded without github.com.
+ * <p>
+ * Supports list, search, show, open, edit, close, reopen, label add and
+ * remove, and the credential check. Requests changing issues need
+ * {@code login} and {@code token} parameters, any values are accepted.
+ * Connections are kept alive like github.com does. Like the API v2, listings
+ * ignore the {@code page} parameter unless {@link #setPageSize(int)} enables
+ * paging. Validators for conditional requests and compressed bodies are sent
+ * once enabled with {@link #setValidators(boolean, boolean)} and
+ * {@link #setContentEncoding(String)}.
+ * <p>
+ * A {@link GitHubFaultProfile} makes the server slow and unreliable.
+ */
+@SuppressWarnings("restriction")
+public class GitHubStubServer {
+
+	public static final String API_PATH = "/api/v2/json/";
+
+	private static final String[] WORDS = { "connector", "query", "repository",
+			"label", "editor", "synchronize", "offline", "crash", "slow", "proxy" };
+
+	/**
+	 * Issues and labels of one repository.
+	 */
+	private static class Repository {
+		final List<GitHubIssue> issues = new ArrayList<GitHubIssue>();
+		final Map<String, List<String>> labels = new HashMap<String, List<String>>();
+		long modified = System.currentTimeMillis();
+	}
+
+	private static class Response {
+		final int status;
+		final String body;
+		String headers = "";
+		long lastModified = -1;
+
+		Response(int status, String body) {
+			this.status = status;
+			this.body = body;
+		}
+	}
+
+	private final ServerSocket serverSocket;
+
+	private final ExecutorService workers;
+
+	private final Map<String, Repository> repositories = new ConcurrentHashMap<String, Repository>();
+
+	private final GitHubDateCodec dateCodec = GitHubDateCodec.getDefault();
+
+	private final Gson gson = new Gson();
+
+	private final AtomicLong requests = new AtomicLong();
+
+	private volatile int pageSize;
+
+	private volatile GitHubFaultProfile faultProfile;
+
+	private volatile long bodyDelay;
+
+	private volatile boolean sendEtag;
+
+	private volatile boolean sendLastModified;
+
+	private volatile String contentEncoding;
+
+	/**
+	 * Start a server on a free port of the loopback interface.
+	 */
+	public GitHubStubServer() throws IOException {
+		serverSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+		workers = Executors.newCachedThreadPool(new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "GitHub stub server");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		workers.execute(new Runnable() {
+			public void run() {
+				accept();
+			}
+		});
+	}
+
+	/**
+	 * the API URL to create a {@code GitHubService} with
+	 */
+	public String getApiUrl() {
+		return "http://127.0.0.1:" + serverSocket.getLocalPort() + API_PATH;
+	}
+
+	/**
+	 * Create a repository of synthetic issues: every third is closed, titles
+	 * and bodies are made of a few {@link #WORDS}, e.g. "query".
+	 */
+	public void addRepository(String user, String project, int issueCount) {
+		Repository repository = new Repository();
+		long created = dateCodec.parseGitHubDate("2010/01/01 12:00:00 -0800");
+		for (int i = 1; i <= issueCount; ++i) {
+			String title = "Issue " + i + " " + WORDS[i % WORDS.length];
+			StringBuilder body = new StringBuilder();
+			for (int word = 0; word < 20; ++word) {
+				body.append(WORDS[(i * 7 + word * 3) % WORDS.length]).append(' ');
+			}
+			GitHubIssue issue = new GitHubIssue(Integer.toString(i), user, title,
+					body.toString().trim());
+			String date = dateCodec.formatGitHubDate(created + i * 60 * 1000L);
+			issue.setCreated_at(date);
+			issue.setUpdated_at(date);
+			if (i % 3 == 0) {
+				issue.setState("closed");
+				issue.setClosed_at(date);
+			} else {
+				issue.setState("open");
+			}
+			repository.issues.add(issue);
+		}
+		repositories.put(user + "/" + project, repository);
+	}
+
+	/**
+	 * the issue as stored by the server, or null
+	 */
+	public GitHubIssue getIssue(String user, String project, String number) {
+		Repository repository = repositories.get(user + "/" + project);
+		if (repository == null) {
+			return null;
+		}
+		synchronized (repository) {
+			return find(repository, number);
+		}
+	}
+
+	/**
+	 * the labels of the issue, in the order they were added
+	 */
+	public List<String> getLabels(String user, String project, String number) {
+		Repository repository = repositories.get(user + "/" + project);
+		synchronized (repository) {
+			return new ArrayList<String>(getLabels(repository, number));
+		}
+	}
+
+	/**
+	 * @param pageSize
+	 *            - The number of issues per page of a listing, the next page
+	 *            is announced with a {@code Link} header. With 0, the
+	 *            default, the page parameter is ignored and all issues are
+	 *            listed, like the API v2 of github.com does.
+	 */
+	public void setPageSize(int pageSize) {
+		this.pageSize = pageSize;
+	}
+
+	/**
+	 * Inject the faults and latencies of the profile into the following
+	 * responses.
+	 * 
+	 * @param faultProfile
+	 *            - The profile, or null to answer promptly and correctly
+	 */
+	public void setFaultProfile(GitHubFaultProfile faultProfile) {
+		this.faultProfile = faultProfile;
+	}
+
+	/**
+	 * Stall the following responses in the middle of their body: the first
+	 * half is sent, the rest after the delay.
+	 * 
+	 * @param bodyDelay
+	 *            - The delay in milliseconds, or 0 to send bodies at once
+	 */
+	public void setBodyDelay(long bodyDelay) {
+		this.bodyDelay = bodyDelay;
+	}
+
+	/**
+	 * Send validators with the responses to GET requests, and answer
+	 * {@code 304 Not Modified} to requests whose validators still match.
+	 * 
+	 * @param etag
+	 *            - Send an {@code ETag} computed from the body
+	 * @param lastModified
+	 *            - Send the time the repository was last changed as
+	 *            {@code Last-Modified}
+	 */
+	public void setValidators(boolean etag, boolean lastModified) {
+		this.sendEtag = etag;
+		this.sendLastModified = lastModified;
+	}
+
+	/**
+	 * Compress the following response bodies, if the request accepts it.
+	 * 
+	 * @param contentEncoding
+	 *            - {@code gzip}, {@code deflate}, or null to send bodies as
+	 *            they are
+	 */
+	public void setContentEncoding(String contentEncoding) {
+		this.contentEncoding = contentEncoding;
+	}
+
+	/**
+	 * the number of requests answered so far
+	 */
+	public long getRequestCount() {
+		return requests.get();
+	}
+
+	public void stop() throws IOException {
+		serverSocket.close();
+		workers.shutdownNow();
+	}
+
+	private void accept() {
+		while (!serverSocket.isClosed()) {
+			try {
+				final Socket socket = serverSocket.accept();
+				workers.execute(new Runnable() {
+					public void run() {
+						serve(socket);
+					}
+				});
+			} catch (IOException e) {
+				// closed by stop()
+			}
+		}
+	}
+
+	/**
+	 * Answer the requests of one connection until the client closes it.
+	 */
+	private void serve(Socket socket) {
+		try {
+			InputStream input = new BufferedInputStream(socket.getInputStream());
+			OutputStream output = socket.getOutputStream();
+			String requestLine;
+			while ((requestLine = readLine(input)) != null) {
+				if (requestLine.length() == 0) {
+					continue;
+				}
+				Map<String, String> headers = new HashMap<String, String>();
+				String header;
+				while ((header = readLine(input)) != null && header.length() > 0) {
+					int colon = header.indexOf(':');
+					headers.put(header.substring(0, colon).trim().toLowerCase(), header
+							.substring(colon + 1).trim());
+				}
+				String contentLength = headers.get("content-length");
+				byte[] content = new byte[contentLength == null ? 0 : Integer
+						.parseInt(contentLength)];
+				for (int read = 0; read < content.length;) {
+					int n = input.read(content, read, content.length - read);
+					if (n < 0) {
+						throw new IOException("Incomplete request");
+					}
+					read += n;
+				}
+				requests.incrementAndGet();
+				GitHubFaultProfile profile = faultProfile;
+				Fault fault = Fault.NONE;
+				if (profile != null) {
+					fault = profile.nextFault();
+					Thread.sleep(profile.nextLatency());
+				}
+				if (fault == Fault.CONNECTION_RESET) {
+					// closing with a zero linger time sends a reset
+					socket.setSoLinger(true, 0);
+					break;
+				}
+				String[] request = requestLine.split(" ");
+				Response response;
+				if (fault == Fault.SERVER_ERROR) {
+					response = error(503, "Service unavailable");
+				} else if (fault == Fault.RATE_LIMIT) {
+					response = error(403, "API rate limit exceeded");
+					response.headers = "\r\nX-RateLimit-Limit: 60\r\nX-RateLimit-Remaining: 0"
+							+ "\r\nRetry-After: " + profile.getRetryAfter();
+				} else {
+					try {
+						response = handle(request[0], request[1], new String(content, "UTF-8"));
+					} catch (RuntimeException e) {
+						response = error(500, e.toString());
+					}
+				}
+				if ("GET".equals(request[0]) && response.status == 200) {
+					response = validate(response, headers);
+				}
+				boolean close = "close".equalsIgnoreCase(headers.get("connection"));
+				byte[] body = response.body.getBytes("UTF-8");
+				String encoding = contentEncoding;
+				String accepted = headers.get("accept-encoding");
+				if (encoding != null && body.length > 0 && accepted != null
+						&& accepted.contains(encoding)) {
+					body = compress(body, encoding);
+					response.headers += "\r\nContent-Encoding: " + encoding;
+				}
+				String head = "HTTP/1.1 " + response.status + " " + getReason(response.status)
+						+ "\r\nContent-Type: application/json; charset=utf-8"
+						+ "\r\nContent-Length: " + body.length + response.headers
+						+ (close ? "\r\nConnection: close" : "") + "\r\n\r\n";
+				output.write(head.getBytes("US-ASCII"));
+				if (fault == Fault.TRUNCATED_BODY) {
+					output.write(body, 0, body.length / 2);
+					output.flush();
+					break;
+				}
+				long delay = bodyDelay;
+				if (delay > 0) {
+					output.write(body, 0, body.length / 2);
+					output.flush();
+					Thread.sleep(delay);
+					output.write(body, body.length / 2, body.length - body.length / 2);
+				} else {
+					output.write(body);
+				}
+				output.flush();
+				if (close) {
+					break;
+				}
+			}
+		} catch (SocketException e) {
+			// connection reset by the client
+		} catch (IOException e) {
+			// connection is unusable, the client will open another one
+		} catch (InterruptedException e) {
+			// stopped
+		} finally {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// ignore
+			}
+		}
+	}
+
+	/**
+	 * Add the enabled validators to a response, or replace it with
+	 * {@code 304 Not Modified} if the validators of the request match.
+	 */
+	private Response validate(Response response, Map<String, String> headers) {
+		String validators = "";
+		boolean notModified = false;
+		if (sendEtag) {
+			String etag = "\"" + Integer.toHexString(response.body.hashCode()) + "\"";
+			validators += "\r\nETag: " + etag;
+			notModified = etag.equals(headers.get("if-none-match"));
+		}
+		if (sendLastModified && response.lastModified >= 0) {
+			validators += "\r\nLast-Modified: " + formatHttpDate(response.lastModified);
+			String since = headers.get("if-modified-since");
+			if (!headers.containsKey("if-none-match") && since != null) {
+				try {
+					notModified = response.lastModified / 1000 <= createHttpDateFormat()
+							.parse(since).getTime() / 1000;
+				} catch (ParseException e) {
+					// answer in full
+				}
+			}
+		}
+		if (notModified) {
+			response = new Response(304, "");
+		}
+		response.headers += validators;
+		return response;
+	}
+
+	private static String formatHttpDate(long time) {
+		return createHttpDateFormat().format(new Date(time));
+	}
+
+	private static DateFormat createHttpDateFormat() {
+		DateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+		format.setTimeZone(TimeZone.getTimeZone("GMT"));
+		return format;
+	}
+
+	private static byte[] compress(byte[] body, String encoding) throws IOException {
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4);
+		OutputStream output = encoding.equals("deflate") ? new DeflaterOutputStream(compressed)
+				: new GZIPOutputStream(compressed);
+		output.write(body);
+		output.close();
+		return compressed.toByteArray();
+	}
+
+	private Response handle(String method, String target, String content)
+			throws UnsupportedEncodingException {
+		int query = target.indexOf('?');
+		Map<String, String> parameters = new HashMap<String, String>();
+		if (query >= 0) {
+			parseParameters(target.substring(query + 1), parameters);
+			target = target.substring(0, query);
+		}
+		parseParameters(content, parameters);
+		if (!target.startsWith(API_PATH)) {
+			return error(404, "Not found");
+		}
+		String[] path = target.substring(API_PATH.length()).split("/");
+		for (int i = 0; i < path.length; ++i) {
+			path[i] = URLDecoder.decode(path[i], "UTF-8");
+		}
+		boolean post = "POST".equals(method);
+		if (post && (parameters.get("login") == null || parameters.get("token") == null)) {
+			return error(401, "not authorized");
+		}
+		if (path.length == 2 && path[0].equals("user") && path[1].equals("emails") && post) {
+			return new Response(200, "{\"emails\":[\"" + parameters.get("login")
+					+ "@example.com\"]}");
+		}
+		if (path.length < 4 || !path[0].equals("issues")) {
+			return error(404, "Not found");
+		}
+		String action = path[1];
+		int offset = 2;
+		if (action.equals("label") && path.length > 2) {
+			action = "label/" + path[2];
+			offset = 3;
+		}
+		if (path.length < offset + 2) {
+			return error(404, "Not found");
+		}
+		Repository repository = repositories.get(path[offset] + "/" + path[offset + 1]);
+		if (repository == null) {
+			return error(404, "Repository not found");
+		}
+		String[] arguments = new String[path.length - offset - 2];
+		System.arraycopy(path, offset + 2, arguments, 0, arguments.length);
+		synchronized (repository) {
+			Response response = null;
+			if (action.equals("list") && arguments.length == 1) {
+				response = list(repository, arguments[0], null, parameters.get("page"));
+			} else if (action.equals("search") && arguments.length == 2) {
+				response = list(repository, arguments[0], arguments[1].toLowerCase(), null);
+			} else if (action.equals("show") && arguments.length == 1) {
+				response = show(find(repository, arguments[0]));
+			}
+			if (response != null) {
+				response.lastModified = repository.modified;
+				return response;
+			}
+			if (post) {
+				repository.modified = System.currentTimeMillis();
+			}
+			if (action.equals("open") && arguments.length == 0 && post) {
+				GitHubIssue issue = new GitHubIssue(Integer.toString(repository.issues
+						.size() + 1), parameters.get("login"), parameters.get("title"),
+						parameters.get("body"));
+				issue.setState("open");
+				issue.setCreated_at(now());
+				issue.setUpdated_at(issue.getCreated_at());
+				repository.issues.add(issue);
+				return show(issue);
+			}
+			GitHubIssue issue = find(repository, arguments[arguments.length - 1]);
+			if (issue == null) {
+				return error(404, "Issue not found");
+			} else if (!post) {
+				return error(405, "Method not allowed");
+			} else if (action.equals("edit") && arguments.length == 1) {
+				if (parameters.containsKey("title")) {
+					issue.setTitle(parameters.get("title"));
+				}
+				if (parameters.containsKey("body")) {
+					issue.setBody(parameters.get("body"));
+				}
+			} else if (action.equals("close") && arguments.length == 1) {
+				issue.setState("closed");
+				issue.setClosed_at(now());
+			} else if (action.equals("reopen") && arguments.length == 1) {
+				issue.setState("open");
+				issue.setClosed_at(null);
+			} else if (action.startsWith("label/") && arguments.length == 2) {
+				List<String> labels = getLabels(repository, issue.getNumber());
+				labels.remove(arguments[0]);
+				if (action.equals("label/add")) {
+					labels.add(arguments[0]);
+				}
+				return new Response(200, "{\"labels\":" + gson.toJson(labels) + "}");
+			} else {
+				return error(404, "Not found");
+			}
+			issue.setUpdated_at(now());
+			return show(issue);
+		}
+	}
+
+	/**
+	 * List the issues in the state, all or one page of them, which contain
+	 * the term in title or body.
+	 */
+	private Response list(Repository repository, String state, String term, String page) {
+		List<GitHubIssue> matches = new ArrayList<GitHubIssue>();
+		for (GitHubIssue issue : repository.issues) {
+			if (state.equals(issue.getState())
+					&& (term == null || issue.getTitle().toLowerCase().contains(term) || issue
+							.getBody().toLowerCase().contains(term))) {
+				matches.add(issue);
+			}
+		}
+		String link = null;
+		if (page != null && pageSize > 0) {
+			int number = Integer.parseInt(page);
+			int start = (number - 1) * pageSize;
+			if (start + pageSize < matches.size()) {
+				link = "\r\nLink: <?page=" + (number + 1) + ">; rel=\"next\"";
+			}
+			matches = matches.subList(Math.min(start, matches.size()), Math.min(start
+					+ pageSize, matches.size()));
+		}
+		StringBuilder json = new StringBuilder("{\"issues\":[");
+		for (int i = 0; i < matches.size(); ++i) {
+			if (i > 0) {
+				json.append(',');
+			}
+			json.append(gson.toJson(matches.get(i)));
+		}
+		Response response = new Response(200, json.append("]}").toString());
+		if (link != null) {
+			response.headers = link;
+		}
+		return response;
+	}
+
+	private Response show(GitHubIssue issue) {
+		if (issue == null) {
+			return error(404, "Issue not found");
+		}
+		return new Response(200, "{\"issue\":" + gson.toJson(issue) + "}");
+	}
+
+	private Response error(int status, String message) {
+		return new Response(status, "{\"error\":" + gson.toJson(message) + "}");
+	}
+
+	private static GitHubIssue find(Repository repository, String number) {
+		try {
+			int index = Integer.parseInt(number) - 1;
+			return index >= 0 && index < repository.issues.size() ? repository.issues
+					.get(index) : null;
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	private static List<String> getLabels(Repository repository, String number) {
+		List<String> labels = repository.labels.get(number);
+		if (labels == null) {
+			labels = new ArrayList<String>();
+			repository.labels.put(number, labels);
+		}
+		return labels;
+	}
+
+	private String now() {
+		return dateCodec.formatGitHubDate(System.currentTimeMillis());
+	}
+
+	private static void parseParameters(String encoded, Map<String, String> parameters)
+			throws UnsupportedEncodingException {
+		if (encoded.length() == 0) {
+			return;
+		}
+		for (String parameter : encoded.split("&")) {
+			int equals = parameter.indexOf('=');
+			if (equals > 0) {
+				parameters.put(URLDecoder.decode(parameter.substring(0, equals), "UTF-8"),
+						URLDecoder.decode(parameter.substring(equals + 1), "UTF-8"));
+			}
+		}
+	}
+
+	/**
+	 * a line of the request head without its line break, or null at the end
+	 * of the stream
+	 */
+	private static String readLine(InputStream input) throws IOException {
+		ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+		int b;
+		while ((b = input.read()) != '\n') {
+			if (b < 0) {
+				return line.size() == 0 ? null : line.toString("US-ASCII");
+			}
+			if (b != '\r') {
+				line.write(b);
+			}
+		}
+		return line.toString("US-ASCII");
+	}
+
+	private static String getReason(int status) {
+		switch (status) {
+		case 200:
+			return "OK";
+		case 304:
+			return "Not Modified";
+		case 401:
+			return "Unauthorized";
+		case 403:
+			return "Forbidden";
+		case 404:
+			return "Not Found";
+		case 405:
+			return "Method Not Allowed";
+		case 503:
+			return "Service Unavailable";
+		default:
+			return "Internal Server Error";
+		}
+	}
+}
@@ -0,0 +1,716 @@
+/*
+ * Copyright 2009 Christian Trutz
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.eclipse.mylyn.github.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.mylyn.commons.net.AuthenticationCredentials;
+import org.eclipse.mylyn.commons.net.AuthenticationType;
+import org.eclipse.mylyn.github.internal.GitHub;
+import org.eclipse.mylyn.github.internal.GitHubAbortHandle;
+import org.eclipse.mylyn.github.internal.GitHubConnectionPool;
+import org.eclipse.mylyn.github.internal.GitHubCredentials;
+import org.eclipse.mylyn.github.internal.GitHubDateCodec;
+import org.eclipse.mylyn.github.internal.GitHubIssue;
+import org.eclipse.mylyn.github.internal.GitHubIssueHandler;
+import org.eclipse.mylyn.github.internal.GitHubIssuePageIterator;
+import org.eclipse.mylyn.github.internal.GitHubIssueSource;
+import org.eclipse.mylyn.github.internal.GitHubIssues;
+import org.eclipse.mylyn.github.internal.GitHubLabelChange;
+import org.eclipse.mylyn.github.internal.GitHubLabelResult;
+import org.eclipse.mylyn.github.internal.GitHubRepositoryConnector;
+import org.eclipse.mylyn.github.internal.GitHubService;
+import org.eclipse.mylyn.github.internal.GitHubServiceException;
+import org.eclipse.mylyn.github.internal.GitHubTaskOperation;
+import org.eclipse.mylyn.internal.tasks.core.RepositoryQuery;
+import org.eclipse.mylyn.internal.tasks.core.TaskTask;
+import org.eclipse.mylyn.internal.tasks.core.sync.SynchronizationSession;
+import org.eclipse.mylyn.tasks.core.IRepositoryQuery;
+import org.eclipse.mylyn.tasks.core.ITask;
+import org.eclipse.mylyn.tasks.core.RepositoryResponse;
+import org.eclipse.mylyn.tasks.core.RepositoryResponse.ResponseKind;
+import org.eclipse.mylyn.tasks.core.TaskRepository;
+import org.eclipse.mylyn.tasks.core.data.TaskAttribute;
+import org.eclipse.mylyn.tasks.core.data.TaskData;
+import org.eclipse.mylyn.tasks.core.data.TaskDataCollector;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Run the {@link GitHubService} and the connector against the
+ * {@link GitHubStubServer}.
+ */
+@SuppressWarnings("restriction")
+@RunWith(JUnit4.class)
+public class GitHubStubServerTest {
+
+	private static final String USER = "octocat";
+
+	private static final String PROJECT = "stub";
+
+	private static final GitHubCredentials CREDENTIALS = new GitHubCredentials(USER, "token");
+
+	private GitHubStubServer server;
+
+	private GitHubService service;
+
+	/**
+	 * the directory of the issue store of connectors that keep one
+	 */
+	private File stateLocation;
+
+	@Before
+	public void before() throws Exception {
+		stateLocation = File.createTempFile("github", "");
+		stateLocation.delete();
+		server = new GitHubStubServer();
+		server.addRepository(USER, PROJECT, 95);
+		service = new GitHubService(GitHubConnectionPool.getDefault().getHttpClient(), server
+				.getApiUrl());
+	}
+
+	@After
+	public void after() throws Exception {
+		server.stop();
+		File[] files = stateLocation.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		stateLocation.delete();
+	}
+
+	@Test
+	public void listPages() throws Exception {
+		server.setPageSize(10);
+		long requests = server.getRequestCount();
+		GitHubIssuePageIterator pages = service.listIssuePages(USER, PROJECT, "open", null);
+		int pageCount = 0;
+		int issueCount = 0;
+		try {
+			while (pages.hasNext()) {
+				issueCount += pages.next().size();
+				++pageCount;
+			}
+		} finally {
+			pages.close();
+		}
+		// every third of the 95 issues is closed
+		assertEquals(64, issueCount);
+		assertEquals(7, pageCount);
+		// the last page links to no next page
+		assertEquals(7, server.getRequestCount() - requests);
+	}
+
+	@Test
+	public void listWithoutPaging() throws Exception {
+		// like the API v2, which returns all issues for every page
+		long requests = server.getRequestCount();
+		GitHubIssuePageIterator pages = service.listIssuePages(USER, PROJECT, "open", null);
+		int pageCount = 0;
+		int issueCount = 0;
+		try {
+			while (pages.hasNext()) {
+				issueCount += pages.next().size();
+				++pageCount;
+			}
+		} finally {
+			pages.close();
+		}
+		assertEquals(64, issueCount);
+		assertEquals(1, pageCount);
+		assertEquals(1, server.getRequestCount() - requests);
+	}
+
+	@Test
+	public void search() throws Exception {
+		GitHubIssue[] issues = service.searchIssues(USER, PROJECT, "closed", "crash")
+				.getIssues();
+		assertTrue(issues.length > 0);
+		for (GitHubIssue issue : issues) {
+			assertEquals("closed", issue.getState());
+			assertTrue((issue.getTitle() + issue.getBody()).contains("crash"));
+		}
+	}
+
+	@Test
+	public void changeIssue() throws Exception {
+		GitHubIssue issue = service.openIssue(USER, PROJECT, new GitHubIssue(null, USER,
+				"New issue", "Body"), CREDENTIALS);
+		assertEquals("96", issue.getNumber());
+
+		issue.setTitle("Edited issue");
+		assertEquals("Edited issue", service.editIssue(USER, PROJECT, issue, CREDENTIALS)
+				.getTitle());
+		assertEquals("closed", service.closeIssue(USER, PROJECT, issue, CREDENTIALS)
+				.getState());
+		assertEquals("open", service.reopenIssue(USER, PROJECT, issue, CREDENTIALS)
+				.getState());
+		assertEquals("Edited issue", service.showIssue(USER, PROJECT, "96").getTitle());
+	}
+
+	@Test
+	public void changeLabels() throws Exception {
+		List<GitHubLabelChange> changes = new ArrayList<GitHubLabelChange>();
+		changes.add(new GitHubLabelChange(1, "bug", GitHubLabelChange.Kind.ADD));
+		changes.add(new GitHubLabelChange(2, "bug", GitHubLabelChange.Kind.ADD));
+		changes.add(new GitHubLabelChange(1, "ui", GitHubLabelChange.Kind.ADD));
+		changes.add(new GitHubLabelChange(1, "bug", GitHubLabelChange.Kind.REMOVE));
+		for (GitHubLabelResult result : service.changeLabels(USER, PROJECT, changes,
+				CREDENTIALS, new NullProgressMonitor())) {
+			assertTrue(result.toString(), result.isSuccess());
+		}
+		assertEquals("[ui]", server.getLabels(USER, PROJECT, "1").toString());
+		assertEquals("[bug]", server.getLabels(USER, PROJECT, "2").toString());
+	}
+
+	@Test
+	public void changeLabelTwice() throws Exception {
+		GitHubLabelChange add = new GitHubLabelChange(3, "bug", GitHubLabelChange.Kind.ADD);
+		List<GitHubLabelChange> changes = new ArrayList<GitHubLabelChange>();
+		changes.add(add);
+		changes.add(new GitHubLabelChange(3, "bug", GitHubLabelChange.Kind.REMOVE));
+		changes.add(add);
+		List<GitHubLabelResult> results = service.changeLabels(USER, PROJECT, changes,
+				CREDENTIALS, new NullProgressMonitor());
+		assertEquals(3, results.size());
+		for (int i = 0; i < results.size(); ++i) {
+			assertTrue(results.get(i) != results.get((i + 1) % results.size()));
+			assertTrue(results.get(i).toString(), results.get(i).isSuccess());
+		}
+		assertEquals(GitHubLabelChange.Kind.REMOVE, results.get(1).getChange().getKind());
+		assertEquals("[bug]", server.getLabels(USER, PROJECT, "3").toString());
+	}
+
+	@Test
+	public void changeLabelsWithoutMonitor() throws Exception {
+		List<GitHubLabelChange> changes = new ArrayList<GitHubLabelChange>();
+		changes.add(new GitHubLabelChange(4, "bug", GitHubLabelChange.Kind.ADD));
+		List<GitHubLabelResult> results = service.changeLabels(USER, PROJECT, changes,
+				CREDENTIALS, null);
+		assertTrue(results.get(0).toString(), results.get(0).isSuccess());
+		assertEquals("[bug]", server.getLabels(USER, PROJECT, "4").toString());
+	}
+
+	@Test
+	public void changeLabelAmongSimilarLabels() throws Exception {
+		List<GitHubLabelChange> changes = new ArrayList<GitHubLabelChange>();
+		changes.add(new GitHubLabelChange(5, "debug", GitHubLabelChange.Kind.ADD));
+		changes.add(new GitHubLabelChange(5, "bug", GitHubLabelChange.Kind.REMOVE));
+		changes.add(new GitHubLabelChange(6, "debug", GitHubLabelChange.Kind.ADD));
+		changes.add(new GitHubLabelChange(6, "bug", GitHubLabelChange.Kind.ADD));
+		changes.add(new GitHubLabelChange(6, "debug", GitHubLabelChange.Kind.REMOVE));
+		for (GitHubLabelResult result : service.changeLabels(USER, PROJECT, changes,
+				CREDENTIALS, new NullProgressMonitor())) {
+			assertTrue(result.toString(), result.isSuccess());
+		}
+		assertEquals("[debug]", server.getLabels(USER, PROJECT, "5").toString());
+		assertEquals("[bug]", server.getLabels(USER, PROJECT, "6").toString());
+	}
+
+	@Test
+	public void coalesceShowIssue() throws Exception {
+		server.setFaultProfile(new GitHubFaultProfile("slow", 1).setLatency(500, 0));
+		int callers = 8;
+		final CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(callers);
+		try {
+			List<Future<GitHubIssue>> results = new ArrayList<Future<GitHubIssue>>();
+			for (int i = 0; i < callers; ++i) {
+				results.add(executor.submit(new Callable<GitHubIssue>() {
+					public GitHubIssue call() throws Exception {
+						start.await();
+						return service.showIssue(USER, PROJECT, "7");
+					}
+				}));
+			}
+			start.countDown();
+			for (Future<GitHubIssue> result : results) {
+				assertEquals("7", result.get().getNumber());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		assertEquals(1, server.getRequestCount());
+		assertEquals(callers - 1, service.getCoalescedRequests());
+	}
+
+	@Test
+	public void retryAfterSharedRequestCancelled() throws Exception {
+		server.setFaultProfile(new GitHubFaultProfile("slow", 1).setLatency(1000, 0));
+		final GitHubAbortHandle handle = new GitHubAbortHandle();
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<GitHubIssue> first = executor.submit(new Callable<GitHubIssue>() {
+				public GitHubIssue call() throws Exception {
+					handle.install();
+					try {
+						return service.showIssue(USER, PROJECT, "7");
+					} finally {
+						handle.uninstall();
+					}
+				}
+			});
+			waitFor(new Callable<Boolean>() {
+				public Boolean call() {
+					return server.getRequestCount() == 1;
+				}
+			});
+			Future<GitHubIssue> second = executor.submit(new Callable<GitHubIssue>() {
+				public GitHubIssue call() throws Exception {
+					return service.showIssue(USER, PROJECT, "7");
+				}
+			});
+			waitFor(new Callable<Boolean>() {
+				public Boolean call() {
+					return service.getCoalescedRequests() == 1;
+				}
+			});
+			handle.abort();
+			try {
+				first.get();
+				fail("aborted request returned");
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof OperationCanceledException);
+			}
+			// the waiting caller sends its own request
+			assertEquals("7", second.get().getNumber());
+			assertEquals(2, server.getRequestCount());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static void waitFor(Callable<Boolean> condition) throws Exception {
+		long end = System.currentTimeMillis() + 5000;
+		while (!condition.call().booleanValue()) {
+			assertTrue("timed out", System.currentTimeMillis() < end);
+			Thread.sleep(10);
+		}
+	}
+
+	@Test
+	public void abortWhileReadingBody() throws Exception {
+		server.setBodyDelay(10000);
+		final GitHubAbortHandle handle = new GitHubAbortHandle();
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<GitHubIssue[]> list = executor.submit(new Callable<GitHubIssue[]>() {
+				public GitHubIssue[] call() throws Exception {
+					handle.install();
+					try {
+						return service.listIssues(USER, PROJECT, "open", 1, null);
+					} finally {
+						handle.uninstall();
+					}
+				}
+			});
+			waitFor(new Callable<Boolean>() {
+				public Boolean call() {
+					return server.getRequestCount() == 1;
+				}
+			});
+			// let the client receive the headers and half of the body
+			Thread.sleep(500);
+			long start = System.currentTimeMillis();
+			handle.abort();
+			try {
+				list.get();
+				fail("aborted request returned");
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause().toString(),
+						e.getCause() instanceof OperationCanceledException);
+			}
+			assertTrue(System.currentTimeMillis() - start < 5000);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void truncatedResponse() throws Exception {
+		server.setFaultProfile(new GitHubFaultProfile("truncated", 1).setRate(
+				GitHubFaultProfile.Fault.TRUNCATED_BODY, 1));
+		try {
+			service.listIssues(USER, PROJECT, "open", 1, null);
+			fail("truncated response parsed");
+		} catch (GitHubServiceException e) {
+			// reported like a network failure, not as malformed JSON
+			assertTrue(e.getCause() instanceof IOException);
+		}
+	}
+
+	@Test
+	public void notModifiedByEtag() throws Exception {
+		server.setValidators(true, false);
+		GitHubIssue issue = service.showIssue(USER, PROJECT, "5");
+		long requests = server.getRequestCount();
+		assertSame(issue, service.showIssue(USER, PROJECT, "5"));
+		assertEquals(1, server.getRequestCount() - requests);
+		assertEquals(1, service.getResponseCache().getHits());
+
+		// changed on the server
+		issue = new GitHubIssue("5", USER, "Changed", "Body");
+		service.editIssue(USER, PROJECT, issue, CREDENTIALS);
+		assertEquals("Changed", service.showIssue(USER, PROJECT, "5").getTitle());
+		assertEquals(1, service.getResponseCache().getHits());
+	}
+
+	@Test
+	public void notModifiedSince() throws Exception {
+		server.setValidators(false, true);
+		GitHubIssues issues = service.searchIssues(USER, PROJECT, "open", "crash");
+		assertSame(issues, service.searchIssues(USER, PROJECT, "open", "crash"));
+		assertEquals(1, service.getResponseCache().getHits());
+	}
+
+	@Test
+	public void streamNotModified() throws Exception {
+		server.setValidators(true, true);
+		final Map<String, GitHubIssue> received = new HashMap<String, GitHubIssue>();
+		GitHubIssueHandler handler = new GitHubIssueHandler() {
+			public void handleIssue(GitHubIssue issue) {
+				received.put(issue.getNumber(), issue);
+			}
+		};
+		GitHubIssueSource source = new GitHubIssueSource() {
+			public boolean hasIssue(String number) {
+				return received.containsKey(number);
+			}
+
+			public GitHubIssue getIssue(String number) {
+				return received.get(number);
+			}
+		};
+		assertEquals(64, service.searchIssues(USER, PROJECT, "open", "", handler, source, null));
+		// replayed from the source
+		assertEquals(64, service.searchIssues(USER, PROJECT, "open", "", handler, source, null));
+		assertEquals(1, service.getResponseCache().getHits());
+
+		// without the issues the listing is requested in full
+		received.remove("1");
+		assertEquals(64, service.searchIssues(USER, PROJECT, "open", "", handler, source, null));
+		assertEquals(1, service.getResponseCache().getHits());
+	}
+
+	@Test
+	public void performQueryNotModified() throws Exception {
+		server.setValidators(true, true);
+		GitHubRepositoryConnector connector = new GitHubRepositoryConnector(service,
+				stateLocation);
+		TaskRepository repository = new TaskRepository(GitHub.CONNECTOR_KIND,
+				GitHub.HTTP_GITHUB_COM + "/" + USER + "/" + PROJECT);
+		IRepositoryQuery query = createQuery(repository);
+		query.setAttribute("status", "all");
+		assertEquals(95, collect(connector, repository, query));
+		assertEquals(0, service.getResponseCache().getHits());
+		// the listings are replayed from the issue store
+		assertEquals(95, collect(connector, repository, query));
+		assertEquals(2, service.getResponseCache().getHits());
+	}
+
+	@Test
+	public void gzipResponse() throws Exception {
+		server.setContentEncoding("gzip");
+		assertEquals(64, service.searchIssues(USER, PROJECT, "open", "").getIssues().length);
+		assertTrue(service.getCompressedBytes() > 0);
+		assertTrue(service.getBytesSaved() > 0);
+	}
+
+	@Test
+	public void deflateResponse() throws Exception {
+		server.setContentEncoding("deflate");
+		assertEquals(64, service.searchIssues(USER, PROJECT, "open", "").getIssues().length);
+		assertTrue(service.getCompressedBytes() > 0);
+		assertTrue(service.getBytesSaved() > 0);
+	}
+
+	@Test
+	public void truncatedGzipResponse() throws Exception {
+		server.setContentEncoding("gzip");
+		server.setFaultProfile(new GitHubFaultProfile("truncated", 1).setRate(
+				GitHubFaultProfile.Fault.TRUNCATED_BODY, 1));
+		try {
+			service.searchIssues(USER, PROJECT, "open", "");
+			fail("truncated response parsed");
+		} catch (GitHubServiceException e) {
+			assertTrue(String.valueOf(e.getCause()), e.getCause() instanceof IOException);
+		}
+	}
+
+	@Test
+	public void performQuery() throws Exception {
+		GitHubRepositoryConnector connector = new GitHubRepositoryConnector(service);
+		TaskRepository repository = new TaskRepository(GitHub.CONNECTOR_KIND,
+				GitHub.HTTP_GITHUB_COM + "/" + USER + "/" + PROJECT);
+		IRepositoryQuery query = createQuery(repository);
+		query.setAttribute("status", "all");
+		final List<TaskData> collected = new ArrayList<TaskData>();
+		IStatus status = connector.performQuery(repository, query, new TaskDataCollector() {
+			@Override
+			public void accept(TaskData taskData) {
+				collected.add(taskData);
+			}
+		}, null, new NullProgressMonitor());
+		assertTrue(status.toString(), status.isOK());
+		assertEquals(95, collected.size());
+	}
+
+	@Test
+	public void preSynchronizationInSecondOfMark() throws Exception {
+		GitHubRepositoryConnector connector = new GitHubRepositoryConnector(service,
+				stateLocation);
+		TaskRepository repository = new TaskRepository(GitHub.CONNECTOR_KIND,
+				GitHub.HTTP_GITHUB_COM + "/" + USER + "/" + PROJECT);
+		// the newest issue was updated in the second of the mark
+		long mark = GitHubDateCodec.getDefault().parseGitHubDate(
+				server.getIssue(USER, PROJECT, "95").getUpdated_at());
+		repository.setSynchronizationTimeStamp(Long.toString(mark));
+		ITask newest = new TaskTask(GitHub.CONNECTOR_KIND, repository.getRepositoryUrl(), "95");
+		ITask older = new TaskTask(GitHub.CONNECTOR_KIND, repository.getRepositoryUrl(), "94");
+		SynchronizationSession session = new SynchronizationSession();
+		session.setTaskRepository(repository);
+		session.setTasks(new HashSet<ITask>(Arrays.asList(newest, older)));
+		session.setFullSynchronization(true);
+		connector.preSynchronization(session, new NullProgressMonitor());
+		assertEquals(Collections.singleton(newest), session.getStaleTasks());
+		assertTrue(session.needsPerformQueries());
+	}
+
+	@Test
+	public void performQueryAfterPreSynchronization() throws Exception {
+		GitHubRepositoryConnector connector = new GitHubRepositoryConnector(service,
+				stateLocation);
+		TaskRepository repository = new TaskRepository(GitHub.CONNECTOR_KIND,
+				GitHub.HTTP_GITHUB_COM + "/" + USER + "/" + PROJECT);
+		SynchronizationSession session = new SynchronizationSession();
+		session.setTaskRepository(repository);
+		session.setTasks(Collections.<ITask> emptySet());
+		session.setFullSynchronization(true);
+		long requests = server.getRequestCount();
+		connector.preSynchronization(session, new NullProgressMonitor());
+		// one listing per state
+		assertEquals(2, server.getRequestCount() - requests);
+
+		IRepositoryQuery query = createQuery(repository);
+		query.setAttribute("status", "all");
+		final List<TaskData> collected = new ArrayList<TaskData>();
+		IStatus status = connector.performQuery(repository, query, new TaskDataCollector() {
+			@Override
+			public void accept(TaskData taskData) {
+				collected.add(taskData);
+			}
+		}, session, new NullProgressMonitor());
+		assertTrue(status.toString(), status.isOK());
+		assertEquals(95, collected.size());
+		// answered from the listing of the pre-synchronization
+		assertEquals(2, server.getRequestCount() - requests);
+
+		connector.postSynchronization(session, new NullProgressMonitor());
+		assertTrue(repository.getSynchronizationTimeStamp() != null);
+	}
+
+	@Test
+	public void searchAfterOpeningOneIssue() throws Exception {
+		GitHubRepositoryConnector connector = new GitHubRepositoryConnector(service);
+		TaskRepository repository = new TaskRepository(GitHub.CONNECTOR_KIND,
+				GitHub.HTTP_GITHUB_COM + "/" + USER + "/" + PROJECT);
+		int expected = service.searchIssues(USER, PROJECT, "closed", "crash").getIssues().length;
+		assertTrue(expected > 1);
+		connector.getTaskData(repository, "3", new NullProgressMonitor());
+
+		// the index knows one issue only, so the server is asked
+		IRepositoryQuery query = createQuery(repository);
+		query.setAttribute("status", "closed");
+		query.setAttribute("queryText", "crash");
+		final List<TaskData> collected = new ArrayList<TaskData>();
+		IStatus status = connector.performQuery(repository, query, new TaskDataCollector() {
+			@Override
+			public void accept(TaskData taskData) {
+				collected.add(taskData);
+			}
+		}, null, new NullProgressMonitor());
+		assertTrue(status.toString(), status.isOK());
+		assertEquals(expected, collected.size());
+	}
+
+	@Test
+	public void searchIndexedListing() throws Exception {
+		GitHubRepositoryConnector connector = new GitHubRepositoryConnector(service,
+				stateLocation);
+		TaskRepository repository = new TaskRepository(GitHub.CONNECTOR_KIND,
+				GitHub.HTTP_GITHUB_COM + "/" + USER + "/" + PROJECT);
+		int expected = service.searchIssues(USER, PROJECT, "closed", "crash").getIssues().length;
+		IRepositoryQuery query = createQuery(repository);
+		query.setAttribute("status", "all");
+		collect(connector, repository, query);
+
+		// answered from the index and the issue store
+		long requests = server.getRequestCount();
+		query = createQuery(repository);
+		query.setAttribute("status", "closed");
+		query.setAttribute("queryText", "crash");
+		assertEquals(expected, collect(connector, repository, query));
+		assertEquals(0, server.getRequestCount() - requests);
+	}
+
+	@Test
+	public void postTaskData() throws Exception {
+		GitHubRepositoryConnector connector = new GitHubRepositoryConnector(service);
+		TaskRepository repository = new TaskRepository(GitHub.CONNECTOR_KIND,
+				GitHub.HTTP_GITHUB_COM + "/" + USER + "/" + PROJECT);
+		repository.setCredentials(AuthenticationType.REPOSITORY,
+				new AuthenticationCredentials(USER, "token"), false);
+		TaskData taskData = connector.getTaskData(repository, "5", new NullProgressMonitor());
+		taskData.getRoot().getAttribute("task.common.summary").setValue("Changed");
+		connector.getTaskDataHandler().postTaskData(repository, taskData, null,
+				new NullProgressMonitor());
+		assertEquals("Changed", server.getIssue(USER, PROJECT, "5").getTitle());
+		// the refresh after the submit does not see the stored issue as before
+		assertEquals("Changed", connector.getTaskData(repository, "5", new NullProgressMonitor())
+				.getRoot().getAttribute("task.common.summary").getValue());
+	}
+
+	@Test
+	public void postStatusChange() throws Exception {
+		GitHubRepositoryConnector connector = new GitHubRepositoryConnector(service);
+		TaskRepository repository = createRepositoryWithCredentials();
+		TaskData taskData = connector.getTaskData(repository, "5", new NullProgressMonitor());
+		TaskAttribute operation = taskData.getRoot().getAttribute(TaskAttribute.OPERATION);
+		Set<TaskAttribute> oldAttributes = new HashSet<TaskAttribute>();
+		oldAttributes.add(operation);
+		operation.setValue(GitHubTaskOperation.CLOSE.getId());
+		long requests = server.getRequestCount();
+		connector.getTaskDataHandler().postTaskData(repository, taskData, oldAttributes,
+				new NullProgressMonitor());
+		// the title and body are not sent again
+		assertEquals(1, server.getRequestCount() - requests);
+		assertEquals("closed", server.getIssue(USER, PROJECT, "5").getState());
+	}
+
+	@Test
+	public void postTitleChange() throws Exception {
+		GitHubRepositoryConnector connector = new GitHubRepositoryConnector(service);
+		TaskRepository repository = createRepositoryWithCredentials();
+		TaskData taskData = connector.getTaskData(repository, "5", new NullProgressMonitor());
+		TaskAttribute summary = taskData.getRoot().getAttribute(TaskAttribute.SUMMARY);
+		Set<TaskAttribute> oldAttributes = new HashSet<TaskAttribute>();
+		oldAttributes.add(summary);
+		summary.setValue("Changed");
+		long requests = server.getRequestCount();
+		connector.getTaskDataHandler().postTaskData(repository, taskData, oldAttributes,
+				new NullProgressMonitor());
+		assertEquals(1, server.getRequestCount() - requests);
+		assertEquals("Changed", server.getIssue(USER, PROJECT, "5").getTitle());
+	}
+
+	@Test
+	public void postWithoutChanges() throws Exception {
+		GitHubRepositoryConnector connector = new GitHubRepositoryConnector(service);
+		TaskRepository repository = createRepositoryWithCredentials();
+		TaskData taskData = connector.getTaskData(repository, "5", new NullProgressMonitor());
+		long requests = server.getRequestCount();
+		connector.getTaskDataHandler().postTaskData(repository, taskData,
+				new HashSet<TaskAttribute>(), new NullProgressMonitor());
+		assertEquals(0, server.getRequestCount() - requests);
+	}
+
+	@Test
+	public void queuedChangeSentAfterSynchronization() throws Exception {
+		final GitHubRepositoryConnector connector = new GitHubRepositoryConnector(service);
+		TaskRepository repository = createRepositoryWithCredentials();
+		TaskData taskData = connector.getTaskData(repository, "5", new NullProgressMonitor());
+		TaskAttribute summary = taskData.getRoot().getAttribute(TaskAttribute.SUMMARY);
+		Set<TaskAttribute> oldAttributes = new HashSet<TaskAttribute>();
+		oldAttributes.add(summary);
+		summary.setValue("Queued");
+		server.setFaultProfile(new GitHubFaultProfile("unreachable", 1).setRate(
+				GitHubFaultProfile.Fault.CONNECTION_RESET, 1));
+		// accepted, although it is only queued
+		RepositoryResponse response = connector.getTaskDataHandler().postTaskData(repository,
+				taskData, oldAttributes, new NullProgressMonitor());
+		assertEquals(ResponseKind.TASK_UPDATED, response.getReposonseKind());
+		assertEquals(1, connector.getOutgoingQueue().size());
+
+		// any synchronization gives the queue the credentials to send it
+		server.setFaultProfile(null);
+		SynchronizationSession session = new SynchronizationSession();
+		session.setTaskRepository(repository);
+		session.setTasks(Collections.<ITask> emptySet());
+		connector.preSynchronization(session, new NullProgressMonitor());
+		waitFor(new Callable<Boolean>() {
+			public Boolean call() {
+				return connector.getOutgoingQueue().size() == 0;
+			}
+		});
+		assertEquals("Queued", server.getIssue(USER, PROJECT, "5").getTitle());
+	}
+
+	private TaskRepository createRepositoryWithCredentials() {
+		TaskRepository repository = new TaskRepository(GitHub.CONNECTOR_KIND,
+				GitHub.HTTP_GITHUB_COM + "/" + USER + "/" + PROJECT);
+		repository.setCredentials(AuthenticationType.REPOSITORY,
+				new AuthenticationCredentials(USER, "token"), false);
+		return repository;
+	}
+
+	private int collect(GitHubRepositoryConnector connector, TaskRepository repository,
+			IRepositoryQuery query) {
+		final List<TaskData> collected = new ArrayList<TaskData>();
+		IStatus status = connector.performQuery(repository, query, new TaskDataCollector() {
+			@Override
+			public void accept(TaskData taskData) {
+				collected.add(taskData);
+			}
+		}, null, new NullProgressMonitor());
+		assertTrue(status.toString(), status.isOK());
+		return collected.size();
+	}
+
+	private IRepositoryQuery createQuery(TaskRepository repository) {
+		RepositoryQuery query = new RepositoryQuery(GitHub.CONNECTOR_KIND, "query");
+		query.setRepositoryUrl(repository.getRepositoryUrl());
+		return query;
+	}
+}
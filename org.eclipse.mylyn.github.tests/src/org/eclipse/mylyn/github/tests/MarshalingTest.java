@@ -7,9 +7,14 @@ import static org.junit.Assert.assertEquals;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.io.StringReader;
 import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.eclipse.mylyn.github.internal.GitHubIssue;
+import org.eclipse.mylyn.github.internal.GitHubIssueHandler;
+import org.eclipse.mylyn.github.internal.GitHubIssueStreamParser;
 import org.eclipse.mylyn.github.internal.GitHubIssues;
 import org.junit.Before;
 import org.junit.Test;
@@ -52,6 +57,48 @@ public class MarshalingTest {
 		assertEquals("open",issue.getState());
 	}
 
+	@Test
+	public void streamIssues() throws Exception {
+		String json = getResource("resources/issues.json");
+		GitHubIssues issues = gson.fromJson(json, GitHubIssues.class);
+
+		final List<GitHubIssue> streamed = new ArrayList<GitHubIssue>();
+		int count = new GitHubIssueStreamParser(gson).parse(new StringReader(json),
+				new GitHubIssueHandler() {
+					public void handleIssue(GitHubIssue issue) {
+						streamed.add(issue);
+					}
+				});
+
+		assertEquals(issues.getIssues().length, count);
+		assertEquals(issues.getIssues().length, streamed.size());
+		for (int x = 0; x < count; ++x) {
+			assertEquals(issues.getIssues()[x].getNumber(), streamed.get(x).getNumber());
+			assertEquals(issues.getIssues()[x].getTitle(), streamed.get(x).getTitle());
+			assertEquals(issues.getIssues()[x].getBody(), streamed.get(x).getBody());
+		}
+	}
+
+	@Test
+	public void streamIssuesSkipsOtherMembers() throws Exception {
+		String json = "{\"total\": 2, \"meta\": {\"a\": [1, \"}]\"]}, "
+				+ "\"issues\": [{\"number\": 1, \"title\": \"brace } and \\\"quote\"}, "
+				+ "{\"number\": 2, \"labels\": [\"x\"], \"closed_at\": null}], \"done\": true}";
+		final List<GitHubIssue> streamed = new ArrayList<GitHubIssue>();
+		int count = new GitHubIssueStreamParser(gson).parse(new StringReader(json),
+				new GitHubIssueHandler() {
+					public void handleIssue(GitHubIssue issue) {
+						streamed.add(issue);
+					}
+				});
+
+		assertEquals(2, count);
+		assertEquals("1", streamed.get(0).getNumber());
+		assertEquals("brace } and \"quote", streamed.get(0).getTitle());
+		assertEquals("2", streamed.get(1).getNumber());
+		assertNull(streamed.get(1).getClosed_at());
+	}
+
 	private String getResource(String resource) {
 		try {
 			InputStream stream = MarshalingTest.class
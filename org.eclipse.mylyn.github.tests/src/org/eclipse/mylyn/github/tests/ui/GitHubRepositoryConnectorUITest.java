@@ -38,4 +38,33 @@ public class GitHubRepositoryConnectorUITest {
 		assertEquals(new Region(8,2),hyperlinks[0].getHyperlinkRegion());
 	}
 
+	@Test
+	public void testFindHyperlinksAtIndex() {
+		StringBuilder text = new StringBuilder();
+		for (int x = 0; x < 1000; ++x) {
+			text.append("see #").append(x).append(" and more\n");
+		}
+		int link = text.indexOf("#500");
+		IHyperlink[] hyperlinks = connectorUI.findHyperlinks(repository, text.toString(), link + 2, 10);
+		assertEquals(1,hyperlinks.length);
+		assertEquals(new Region(link + 10,4),hyperlinks[0].getHyperlinkRegion());
+
+		// the end of the link still belongs to it
+		hyperlinks = connectorUI.findHyperlinks(repository, text.toString(), link + 4, 10);
+		assertEquals(1,hyperlinks.length);
+		assertEquals(new Region(link + 10,4),hyperlinks[0].getHyperlinkRegion());
+
+		hyperlinks = connectorUI.findHyperlinks(repository, text.toString(), link + 6, 10);
+		assertEquals(0,hyperlinks.length);
+	}
+
+	@Test
+	public void testFindHyperlinksInChangedText() {
+		assertEquals(1,connectorUI.findHyperlinks(repository, "one #2 three", 5, 0).length);
+		assertEquals(0,connectorUI.findHyperlinks(repository, "one x2 three", 5, 0).length);
+		IHyperlink[] hyperlinks = connectorUI.findHyperlinks(repository, "one #23 three", 5, 0);
+		assertEquals(1,hyperlinks.length);
+		assertEquals(new Region(4,3),hyperlinks[0].getHyperlinkRegion());
+	}
+
 }
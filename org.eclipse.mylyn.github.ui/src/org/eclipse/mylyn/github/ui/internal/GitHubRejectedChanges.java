@@ -0,0 +1,168 @@
+/*
+ * Copyright 2009 Christian Trutz 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ */
+package org.eclipse.mylyn.github.ui.internal;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.mylyn.github.internal.GitHub;
+import org.eclipse.mylyn.github.internal.GitHubIssue;
+import org.eclipse.mylyn.github.internal.GitHubOutgoingOperation;
+import org.eclipse.mylyn.github.internal.GitHubOutgoingQueue;
+import org.eclipse.mylyn.github.internal.GitHubRepositoryConnector;
+import org.eclipse.mylyn.github.internal.GitHubRepositoryId;
+import org.eclipse.mylyn.github.internal.GitHubTaskAttributes;
+import org.eclipse.mylyn.github.internal.GitHubTaskOperation;
+import org.eclipse.mylyn.tasks.core.AbstractRepositoryConnector;
+import org.eclipse.mylyn.tasks.core.IRepositoryManager;
+import org.eclipse.mylyn.tasks.core.ITask;
+import org.eclipse.mylyn.tasks.core.ITask.SynchronizationState;
+import org.eclipse.mylyn.tasks.core.TaskRepository;
+import org.eclipse.mylyn.tasks.core.data.ITaskDataWorkingCopy;
+import org.eclipse.mylyn.tasks.core.data.TaskAttribute;
+import org.eclipse.mylyn.tasks.core.data.TaskData;
+import org.eclipse.mylyn.tasks.ui.TasksUi;
+import org.eclipse.ui.IStartup;
+
+/**
+ * Marks the task of a change the outgoing queue of the connector rejected,
+ * e.g. because the issue was changed on the server meanwhile, as outgoing
+ * again with the rejected values, so that the user can review and submit
+ * them. Once a change is sent, outgoing edits of its task that GitHub now
+ * has are discarded, so that the next synchronization does not report a
+ * conflict.
+ */
+public class GitHubRejectedChanges implements IStartup, GitHubOutgoingQueue.Listener {
+
+	public void earlyStartup() {
+		AbstractRepositoryConnector connector = TasksUi.getRepositoryConnector(GitHub.CONNECTOR_KIND);
+		if (connector instanceof GitHubRepositoryConnector) {
+			((GitHubRepositoryConnector) connector).addOutgoingListener(this);
+		}
+	}
+
+	public void sent(GitHubOutgoingOperation operation, GitHubIssue issue) {
+		ITask task = getTask(operation);
+		if (task == null || (task.getSynchronizationState() != SynchronizationState.OUTGOING
+				&& task.getSynchronizationState() != SynchronizationState.CONFLICT)) {
+			return;
+		}
+		try {
+			ITaskDataWorkingCopy workingCopy = TasksUi.getTaskDataManager().getWorkingCopy(task);
+			if (isSent(workingCopy.getEditsData(), issue)) {
+				TasksUi.getTaskDataManager().discardEdits(task);
+			}
+		} catch (CoreException e) {
+			GitHubUi.logError("Cannot clear the sent change of task " + task.getTaskKey(), e);
+		}
+	}
+
+	/**
+	 * Whether every edit equals the issue as GitHub returned it, so that
+	 * discarding the edits loses nothing.
+	 */
+	private static boolean isSent(TaskData edits, GitHubIssue issue) {
+		for (TaskAttribute attribute : edits.getRoot().getAttributes().values()) {
+			String id = attribute.getId();
+			String value = attribute.getValue();
+			if (GitHubTaskAttributes.TITLE.getId().equals(id)) {
+				if (!value.equals(issue.getTitle())) {
+					return false;
+				}
+			} else if (GitHubTaskAttributes.BODY.getId().equals(id)) {
+				if (!value.equals(issue.getBody())) {
+					return false;
+				}
+			} else if (TaskAttribute.OPERATION.equals(id)) {
+				GitHubTaskOperation operation = GitHubTaskOperation.fromId(value);
+				if ((operation == GitHubTaskOperation.CLOSE && !"closed".equals(issue.getState()))
+						|| (operation == GitHubTaskOperation.REOPEN && !"open".equals(issue
+								.getState()))) {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public void rejected(GitHubOutgoingOperation operation, String reason) {
+		ITask task = getTask(operation);
+		if (task == null) {
+			return;
+		}
+		try {
+			ITaskDataWorkingCopy workingCopy = TasksUi.getTaskDataManager().getWorkingCopy(task);
+			TaskData taskData = workingCopy.getLocalData();
+			Set<TaskAttribute> edits = new HashSet<TaskAttribute>();
+			switch (operation.getKind()) {
+			case EDIT:
+				setValue(taskData, GitHubTaskAttributes.TITLE.getId(), operation.getTitle(), edits);
+				setValue(taskData, GitHubTaskAttributes.BODY.getId(), operation.getBody(), edits);
+				break;
+			case CLOSE:
+				setValue(taskData, TaskAttribute.OPERATION, GitHubTaskOperation.CLOSE.getId(), edits);
+				break;
+			case REOPEN:
+				setValue(taskData, TaskAttribute.OPERATION, GitHubTaskOperation.REOPEN.getId(),
+						edits);
+				break;
+			default:
+				// labels are not edited in the task editor
+				break;
+			}
+			if (!edits.isEmpty()) {
+				workingCopy.save(edits, null);
+			}
+		} catch (CoreException e) {
+			GitHubUi.logError("Cannot restore the rejected change of task " + task.getTaskKey(), e);
+		}
+	}
+
+	/**
+	 * the task of the issue the operation changes, or null if it is not in
+	 * the task list
+	 */
+	private ITask getTask(GitHubOutgoingOperation operation) {
+		GitHubRepositoryId id = GitHubRepositoryId.get(operation.getRepositoryUrl());
+		if (id == null) {
+			return null;
+		}
+		IRepositoryManager repositoryManager = TasksUi.getRepositoryManager();
+		TaskRepository repository = repositoryManager.getRepository(GitHub.CONNECTOR_KIND,
+				GitHub.createGitHubUrl(id.getUser(), id.getProject()));
+		if (repository == null) {
+			repository = repositoryManager.getRepository(GitHub.CONNECTOR_KIND,
+					GitHub.createGitHubUrlAlternate(id.getUser(), id.getProject()));
+		}
+		if (repository == null) {
+			return null;
+		}
+		return TasksUi.getRepositoryModel().getTask(repository, operation.getIssueNumber());
+	}
+
+	private static void setValue(TaskData taskData, String attributeId, String value,
+			Set<TaskAttribute> edits) {
+		TaskAttribute attribute = taskData.getRoot().getAttribute(attributeId);
+		if (attribute != null && value != null) {
+			attribute.setValue(value);
+			edits.add(attribute);
+		}
+	}
+}
@@ -17,7 +17,9 @@
 package org.eclipse.mylyn.github.ui.internal;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -26,6 +28,8 @@ import org.eclipse.jface.text.hyperlink.IHyperlink;
 import org.eclipse.jface.text.hyperlink.URLHyperlink;
 import org.eclipse.jface.wizard.IWizard;
 import org.eclipse.mylyn.github.internal.GitHub;
+import org.eclipse.mylyn.tasks.core.IRepositoryListener;
+import org.eclipse.mylyn.tasks.core.IRepositoryManager;
 import org.eclipse.mylyn.tasks.core.IRepositoryQuery;
 import org.eclipse.mylyn.tasks.core.ITaskMapping;
 import org.eclipse.mylyn.tasks.core.TaskRepository;
@@ -46,6 +50,81 @@ import org.eclipse.mylyn.tasks.ui.wizards.RepositoryQueryWizard;
 public class GitHubRepositoryConnectorUI extends AbstractRepositoryConnectorUi {
 
 	private final Pattern issuePattern = Pattern.compile("(?:([a-zA-Z0-9_\\.-]+)(?:/([a-zA-Z0-9_\\.-]+))?)?\\#(\\d+)");
+
+	/**
+	 * the farthest a scan for the hyperlink at an index reaches to either
+	 * side, for texts with very long words
+	 */
+	private static final int MAX_WINDOW = 256;
+
+	/**
+	 * A hyperlink and the range of the text it was found in.
+	 */
+	private static class Link {
+		final int start;
+		final int end;
+		final IHyperlink hyperlink;
+
+		Link(int start, int end, IHyperlink hyperlink) {
+			this.start = start;
+			this.end = end;
+			this.hyperlink = hyperlink;
+		}
+	}
+
+	/**
+	 * The hyperlinks found in a range of a text.
+	 */
+	private static class ScannedText {
+		final TaskRepository repository;
+		final String window;
+		final int start;
+		final int textOffset;
+		final List<Link> links;
+
+		ScannedText(TaskRepository repository, String window, int start, int textOffset,
+				List<Link> links) {
+			this.repository = repository;
+			this.window = window;
+			this.start = start;
+			this.textOffset = textOffset;
+			this.links = links;
+		}
+
+		boolean matches(TaskRepository repository, String text, int start, int end,
+				int textOffset) {
+			return this.repository == repository && this.start == start
+					&& this.textOffset == textOffset && window.length() == end - start
+					&& text.regionMatches(start, window, 0, window.length());
+		}
+	}
+
+	/**
+	 * GitHub task repositories by user/project, null if there is none
+	 */
+	private final Map<String, TaskRepository> repositories = new HashMap<String, TaskRepository>();
+
+	private boolean listening = false;
+
+	private final IRepositoryListener repositoryListener = new IRepositoryListener() {
+		public void repositoryAdded(TaskRepository repository) {
+			invalidateRepositories();
+		}
+
+		public void repositoryRemoved(TaskRepository repository) {
+			invalidateRepositories();
+		}
+
+		public void repositorySettingsChanged(TaskRepository repository) {
+			invalidateRepositories();
+		}
+
+		public void repositoryUrlChanged(TaskRepository repository, String oldUrl) {
+			invalidateRepositories();
+		}
+	};
+
+	private volatile ScannedText lastScanned;
 	
 	/**
 	 * 
@@ -108,44 +187,119 @@ public class GitHubRepositoryConnectorUI extends AbstractRepositoryConnectorUi {
 	}
 	
 	
+	/**
+	 * Find the links to issues in the text. If the index is given, only the
+	 * word around it is scanned, since a link contains no white space.
+	 * The hyperlinks of the last scanned text are reused while it is
+	 * unchanged, e.g. while the mouse moves over the same word.
+	 */
 	public IHyperlink[] findHyperlinks(TaskRepository repository, String text, int index, int textOffset) {
+		int start = 0;
+		int end = text.length();
+		if (index != -1) {
+			start = Math.min(index, text.length());
+			while (start > 0 && index - start < MAX_WINDOW
+					&& !Character.isWhitespace(text.charAt(start - 1))) {
+				start--;
+			}
+			end = Math.min(index, text.length());
+			while (end < text.length() && end - index < MAX_WINDOW
+					&& !Character.isWhitespace(text.charAt(end))) {
+				end++;
+			}
+		}
+		ScannedText scanned = lastScanned;
+		if (scanned == null || !scanned.matches(repository, text, start, end, textOffset)) {
+			scanned = scan(repository, text, start, end, textOffset);
+			lastScanned = scanned;
+		}
+
 		List<IHyperlink> hyperlinks = new ArrayList<IHyperlink>();
-		
+		for (Link link : scanned.links) {
+			if (index == -1 || (index >= link.start && index <= link.end)) {
+				hyperlinks.add(link.hyperlink);
+			}
+		}
+		return hyperlinks.toArray(new IHyperlink[hyperlinks.size()]);
+	}
+
+	private ScannedText scan(TaskRepository repository, String text, int start, int end,
+			int textOffset) {
+		List<Link> links = new ArrayList<Link>();
 		Matcher matcher = issuePattern.matcher(text);
+		matcher.region(start, end);
 		while (matcher.find()) {
-			if (index == -1 || (index >= matcher.start() && index <= matcher.end())) {
-				String user = matcher.group(1);
-				String project = matcher.group(2);
-				String taskId = matcher.group(3);
-				
-				if (project == null && user != null) {
-					// same project name, different user
-					String url = repository.getUrl();
-					project = GitHub.computeTaskRepositoryProject(url);
-				}
-				
-				TaskRepository taskRepository = null;
-				if (user == null && project == null) { 
-					taskRepository = repository;
-				} else if (user != null && project != null) {
-					String repositoryUrl = GitHub.createGitHubUrl(user,project);
-					taskRepository = TasksUi.getRepositoryManager().getRepository(GitHub.CONNECTOR_KIND, repositoryUrl);
-					if (taskRepository == null) {
-						repositoryUrl = GitHub.createGitHubUrlAlternate(user,project);
-						taskRepository = TasksUi.getRepositoryManager().getRepository(GitHub.CONNECTOR_KIND, repositoryUrl);	
-					}
-				}
-				if (taskRepository != null) {
-					Region region = createRegion(textOffset, matcher);
-					hyperlinks.add(new TaskHyperlink(region, repository, taskId));
-				} else if (user != null && project != null) {
-					Region region = createRegion(textOffset, matcher);
-					String url = GitHub.createGitHubUrl(user, project)+"/issues/issue/"+taskId;
-					hyperlinks.add(new URLHyperlink(region, url));
-				}
+			String user = matcher.group(1);
+			String project = matcher.group(2);
+			String taskId = matcher.group(3);
+
+			if (project == null && user != null) {
+				// same project name, different user
+				String url = repository.getUrl();
+				project = GitHub.computeTaskRepositoryProject(url);
+			}
+
+			TaskRepository taskRepository = null;
+			if (user == null && project == null) {
+				taskRepository = repository;
+			} else if (user != null && project != null) {
+				taskRepository = getRepository(user, project);
+			}
+			IHyperlink hyperlink = null;
+			if (taskRepository != null) {
+				Region region = createRegion(textOffset, matcher);
+				hyperlink = new TaskHyperlink(region, taskRepository, taskId);
+			} else if (user != null && project != null) {
+				Region region = createRegion(textOffset, matcher);
+				String url = GitHub.createGitHubUrl(user, project)+"/issues/issue/"+taskId;
+				hyperlink = new URLHyperlink(region, url);
+			}
+			if (hyperlink != null) {
+				links.add(new Link(matcher.start(), matcher.end(), hyperlink));
 			}
 		}
-		return hyperlinks.toArray(new IHyperlink[hyperlinks.size()]);
+		return new ScannedText(repository, text.substring(start, end), start, textOffset, links);
+	}
+
+	/**
+	 * the GitHub task repository of the user's project, or null if there is
+	 * none; looked up in the repository manager once until repositories
+	 * change
+	 */
+	private TaskRepository getRepository(String user, String project) {
+		String key = user + "/" + project;
+		synchronized (repositories) {
+			if (repositories.containsKey(key)) {
+				return repositories.get(key);
+			}
+		}
+		IRepositoryManager repositoryManager = TasksUi.getRepositoryManager();
+		synchronized (repositories) {
+			if (!listening) {
+				listening = true;
+				repositoryManager.addListener(repositoryListener);
+			}
+		}
+		TaskRepository taskRepository = repositoryManager.getRepository(GitHub.CONNECTOR_KIND,
+				GitHub.createGitHubUrl(user, project));
+		if (taskRepository == null) {
+			taskRepository = repositoryManager.getRepository(GitHub.CONNECTOR_KIND,
+					GitHub.createGitHubUrlAlternate(user, project));
+		}
+		synchronized (repositories) {
+			repositories.put(key, taskRepository);
+		}
+		return taskRepository;
+	}
+
+	/**
+	 * Forget the resolved repositories and the hyperlinks referring to them.
+	 */
+	private void invalidateRepositories() {
+		synchronized (repositories) {
+			repositories.clear();
+		}
+		lastScanned = null;
 	}
 
 	private Region createRegion(int textOffset, Matcher matcher) {
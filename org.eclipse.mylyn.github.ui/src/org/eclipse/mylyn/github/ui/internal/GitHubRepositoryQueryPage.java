@@ -22,6 +22,7 @@ import org.eclipse.mylyn.tasks.ui.wizards.AbstractRepositoryQueryPage;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.layout.GridData;
 import org.eclipse.swt.layout.GridLayout;
+import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Combo;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Label;
@@ -39,10 +40,14 @@ public class GitHubRepositoryQueryPage extends AbstractRepositoryQueryPage {
 
 	private static final String ATTR_STATUS = "status";
 
+	private static final String ATTR_SEARCH_SERVER = "searchServer";
+
 	private Text queryText = null;
 
 	private Combo status = null;
 
+	private Button searchServer = null;
+
 	/**
 	 * @param taskRepository
 	 * @param query
@@ -73,6 +78,7 @@ public class GitHubRepositoryQueryPage extends AbstractRepositoryQueryPage {
 		query.setSummary(summary);
 		query.setAttribute(ATTR_STATUS, statusString);
 		query.setAttribute(ATTR_QUERY_TEXT, queryString);
+		query.setAttribute(ATTR_SEARCH_SERVER, Boolean.toString(searchServer.getSelection()));
 	}
 
 	/**
@@ -114,6 +120,15 @@ public class GitHubRepositoryQueryPage extends AbstractRepositoryQueryPage {
 		String queryModelText = getQuery()==null?null:getQuery().getAttribute(ATTR_QUERY_TEXT);
 		queryText.setText(queryModelText==null?"":queryModelText);
 
+		// query texts are matched against the synchronized issues, unless
+		// the server is asked
+		new Label(composite, SWT.NONE);
+		searchServer = new Button(composite, SWT.CHECK);
+		searchServer.setText("Search on server");
+		searchServer.setToolTipText("Send the query text to GitHub instead of searching the synchronized issues");
+		String queryModelSearchServer = getQuery()==null?null:getQuery().getAttribute(ATTR_SEARCH_SERVER);
+		searchServer.setSelection(Boolean.valueOf(queryModelSearchServer).booleanValue());
+
 		setControl(composite);
 	}
 
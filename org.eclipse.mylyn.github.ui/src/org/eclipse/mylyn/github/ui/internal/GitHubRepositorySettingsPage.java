@@ -17,6 +17,7 @@
  */
 package org.eclipse.mylyn.github.ui.internal;
 
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 
 
@@ -27,8 +28,9 @@ import org.eclipse.core.runtime.Status;
 import org.eclipse.mylyn.commons.net.AuthenticationCredentials;
 import org.eclipse.mylyn.commons.net.AuthenticationType;
 import org.eclipse.mylyn.github.internal.GitHub;
+import org.eclipse.mylyn.github.internal.GitHubAsyncService;
 import org.eclipse.mylyn.github.internal.GitHubCredentials;
-import org.eclipse.mylyn.github.internal.GitHubService;
+import org.eclipse.mylyn.github.internal.GitHubIssues;
 import org.eclipse.mylyn.github.internal.GitHubServiceException;
 import org.eclipse.mylyn.tasks.core.TaskRepository;
 import org.eclipse.mylyn.tasks.ui.wizards.AbstractRepositorySettingsPage;
@@ -113,27 +115,37 @@ public class GitHubRepositorySettingsPage extends
 					String repo = urlMatcher.group(2);
 					AuthenticationCredentials auth = repository.getCredentials(AuthenticationType.REPOSITORY);
 					
-					GitHubService service = new GitHubService();
+					GitHubAsyncService service = GitHubAsyncService.getDefault();
 	
 					monitor.subTask("Contacting server...");
+					// verify the repo and the credentials at the same time,
+					// cancelling the dialog aborts the requests
+					Future<GitHubIssues> search = service.searchIssues(user, repo, "open", "", null);
+					Future<Boolean> verification = null;
+					if (auth != null) {
+						GitHubCredentials credentials = new GitHubCredentials(auth.getUserName(), auth.getPassword());
+						verification = service.verifyCredentials(credentials, null);
+					}
 					try {
-						// verify the repo
-						service.searchIssues(user, repo, new String("open"),"");
+						GitHubAsyncService.await(search, monitor);
 						monitor.worked(400);
 						
-						// verify the credentials
-						if (auth == null) {
+						if (verification == null) {
 							setStatus(GitHubUi.createErrorStatus("Credentials are required.  Please specify username and API Token."));
 							return;
 						}
-						GitHubCredentials credentials = new GitHubCredentials(auth.getUserName(), auth.getPassword());
-						if (!service.verifyCredentials(credentials)) {
+						if (!GitHubAsyncService.await(verification, monitor)) {
 							setStatus(GitHubUi.createErrorStatus("Invalid credentials.  Please check your GitHub User ID and API Token.\nYou can find your API Token on your GitHub account settings page."));
 							return;	
 						}
 					} catch (GitHubServiceException e) {
 						setStatus(GitHubUi.createErrorStatus("Repository Test failed:"+ e.getMessage()));
 						return;
+					} finally {
+						search.cancel(true);
+						if (verification != null) {
+							verification.cancel(true);
+						}
 					}
 					
 					setStatus(new Status(IStatus.OK,GitHubUi.BUNDLE_ID, "Success!"));